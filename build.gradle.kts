@@ -10,6 +10,7 @@ plugins {
     id("com.github.kt3k.coveralls") version "2.12.0"
     id("io.github.gradle-nexus.publish-plugin") version "1.1.0"
     id("com.palantir.git-version") version "0.13.0"
+    id("me.champeau.jmh") version "0.6.6"
 }
 
 // we handle cases without .git directory
@@ -30,8 +31,6 @@ repositories {
 }
 
 dependencies {
-    implementation("io.github.dictzip:dictzip:0.13.0")
-    implementation("com.github.takawitter:trie4j:0.9.8")
     implementation("com.github.ben-manes.caffeine:caffeine:2.9.3")
     testImplementation("org.junit.jupiter:junit-jupiter-api:5.8.2")
     testRuntimeOnly("org.junit.jupiter:junit-jupiter-engine")
@@ -55,6 +54,15 @@ tasks.getByName<Test>("test") {
     useJUnitPlatform()
 }
 
+jmh {
+    jmhVersion.set("1.35")
+    // synthetic dictionaries are generated once and reused across runs
+    jvmArgsAppend.add("-Dstardict4j.bench.dir=${project.buildDir}/jmh-dicts")
+    if (project.hasProperty("jmhIncludes")) {
+        includes.add(project.property("jmhIncludes") as String)
+    }
+}
+
 jacoco {
     toolVersion="0.8.6"
 }
@@ -83,10 +91,15 @@ java {
 }
 
 tasks.withType<JavaCompile> {
+    options.encoding = "UTF-8"
     options.compilerArgs.add("-Xlint:deprecation")
     options.compilerArgs.add("-Xlint:unchecked")
 }
 
+tasks.withType<Javadoc> {
+    options.encoding = "UTF-8"
+}
+
 publishing {
     publications {
         create<MavenPublication>("mavenJava") {
@@ -0,0 +1,106 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Steady lookup load over a large article cache kept on or off the heap.
+ * <p>
+ * Run with {@code -prof gc} to compare allocation and collection time; the
+ * tear down also prints total GC count and time of the fork. The cache is
+ * filled before measurement, and random words of the whole dictionary keep
+ * it churning, so old generation holds the cache when it is on heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g", "-XX:MaxDirectMemorySize=1g", "-XX:+UseG1GC"})
+public class ArticleCacheGcBenchmark {
+
+    private static final long BUDGET = 256L * 1024 * 1024;
+
+    @Param({"heap", "offheap"})
+    String tier;
+
+    private StarDictDictionary dict;
+    private String[] words;
+    private Random random;
+
+    /**
+     * Load the dictionary and fill the cache.
+     * @throws Exception when load failed.
+     */
+    @Setup
+    public void setUp() throws Exception {
+        CacheOptions options = CacheOptions.builder().maximumWeight(BUDGET).noExpiry()
+                .offHeap("offheap".equals(tier)).build();
+        dict = StarDictLoader.load(SyntheticDictionary.prepare(1_000_000, false, false, false), options);
+        words = SyntheticDictionary.headwords(1_000_000);
+        for (String word : words) {
+            dict.readArticles(word).get(0).getArticleBytes();
+        }
+        random = new Random(42);
+    }
+
+    /**
+     * Print GC totals and close the dictionary.
+     * @throws Exception when close failed.
+     */
+    @TearDown
+    public void tearDown() throws Exception {
+        long count = 0;
+        long time = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += bean.getCollectionCount();
+            time += bean.getCollectionTime();
+        }
+        System.out.printf("%n%s: %d collections, %d ms, cache %d articles / %d bytes%n", tier, count, time,
+                dict.getCacheSize(), dict.getCacheWeightedSize());
+        dict.close();
+    }
+
+    /**
+     * Read the article of a random word through the cache.
+     * @return article bytes.
+     */
+    @Benchmark
+    public ByteBuffer lookup() {
+        return dict.readArticles(words[random.nextInt(words.length)]).get(0).getArticleBytes();
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Article reads through the cache and directly from .dict (read or mapped) / .dict.dz files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ArticleReadBenchmark {
+
+    private static final int SAMPLES = 4096;
+    private static final int HOT_WORDS = 64;
+
+    @Param({"10000", "1000000"})
+    int size;
+
+    @Param({"dict", "mmap", "dz"})
+    String format;
+
+    private StarDictDictionary dict;
+    private String[] hotWords;
+    private IndexEntry[] entries;
+    private int cursor;
+
+    /**
+     * Load the dictionary, pick words and warm the cache with hot words.
+     * @throws Exception when load failed.
+     */
+    @Setup
+    public void setUp() throws Exception {
+        dict = StarDictLoader.load(SyntheticDictionary.prepare(size, false, false, "dz".equals(format)),
+                CacheOptions.DEFAULT, LoadOptions.builder().memoryMapped("mmap".equals(format)).build());
+        String[] words = SyntheticDictionary.headwords(size);
+        Random random = new Random(42);
+        entries = new IndexEntry[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            entries[i] = dict.data.lookUp(words[random.nextInt(words.length)]).get(0).getValue();
+        }
+        hotWords = new String[HOT_WORDS];
+        for (int i = 0; i < HOT_WORDS; i++) {
+            hotWords[i] = words[random.nextInt(words.length)];
+            dict.readArticles(hotWords[i]).get(0).getArticle();
+        }
+    }
+
+    /**
+     * Close the dictionary.
+     * @throws Exception when close failed.
+     */
+    @TearDown
+    public void tearDown() throws Exception {
+        dict.close();
+    }
+
+    /**
+     * Read article of a hot word, served from the article cache.
+     * @return article.
+     */
+    @Benchmark
+    public String cached() {
+        cursor = (cursor + 1) & (HOT_WORDS - 1);
+        return dict.readArticles(hotWords[cursor]).get(0).getArticle();
+    }
+
+    /**
+     * Read a random article directly from the data file, bypassing the cache.
+     * @return article.
+     */
+    @Benchmark
+    public String uncached() {
+        cursor = (cursor + 1) & (SAMPLES - 1);
+        IndexEntry entry = entries[cursor];
+        return dict.readArticle(entry.getStart(), entry.getLen());
+    }
+
+    /**
+     * Read a random article as raw bytes, bypassing the cache; sliced without copy from mapped or cached chunk.
+     * @return article bytes.
+     */
+    @Benchmark
+    public ByteBuffer uncachedRaw() {
+        cursor = (cursor + 1) & (SAMPLES - 1);
+        IndexEntry entry = entries[cursor];
+        return dict.readBuffer(entry.getStart(), entry.getLen());
+    }
+}
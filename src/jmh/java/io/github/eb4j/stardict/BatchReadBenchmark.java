@@ -0,0 +1,139 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Articles of a batch of words, e.g. words of a document segment: a loop of
+ * readArticles against one batch call. Article cache holds a single entry,
+ * so each batch reads from the data file.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class BatchReadBenchmark {
+
+    private static final int BATCHES = 16;
+
+    @Param({"100000", "1000000"})
+    int size;
+
+    @Param({"dict", "dz"})
+    String format;
+
+    /** Number of words in a batch; a third of them are repeated or missing. */
+    @Param({"50", "300"})
+    int batchSize;
+
+    private StarDictDictionary dict;
+    private List<List<String>> batches;
+    private int cursor;
+
+    /**
+     * Load the dictionary and pick batches of words.
+     * @throws Exception when load failed.
+     */
+    @Setup
+    public void setUp() throws Exception {
+        dict = StarDictLoader.load(SyntheticDictionary.prepare(size, false, false, "dz".equals(format)),
+                CacheOptions.builder().maximumSize(1).build());
+        String[] words = SyntheticDictionary.headwords(size);
+        Random random = new Random(42);
+        batches = new ArrayList<>();
+        for (int i = 0; i < BATCHES; i++) {
+            String[] batch = new String[batchSize];
+            for (int j = 0; j < batchSize; j++) {
+                switch (j % 3) {
+                    case 1:
+                        batch[j] = batch[j - 1];
+                        break;
+                    case 2:
+                        batch[j] = "0" + j;
+                        break;
+                    default:
+                        batch[j] = words[random.nextInt(words.length)];
+                        break;
+                }
+            }
+            batches.add(Arrays.asList(batch));
+        }
+    }
+
+    /**
+     * Close the dictionary.
+     * @throws Exception when close failed.
+     */
+    @TearDown
+    public void tearDown() throws Exception {
+        dict.close();
+    }
+
+    private List<String> next() {
+        cursor = (cursor + 1) & (BATCHES - 1);
+        return batches.get(cursor);
+    }
+
+    /**
+     * Call readArticles for each word.
+     * @return entries by word.
+     */
+    @Benchmark
+    public Map<String, List<StarDictDictionary.Entry>> loop() {
+        Map<String, List<StarDictDictionary.Entry>> result = new HashMap<>();
+        for (String word : next()) {
+            List<StarDictDictionary.Entry> entries = dict.readArticles(word);
+            for (StarDictDictionary.Entry entry : entries) {
+                entry.getArticle();
+            }
+            result.put(word, entries);
+        }
+        return result;
+    }
+
+    /**
+     * Read all words with one batch call.
+     * @return entries by word.
+     */
+    @Benchmark
+    public Map<String, List<StarDictDictionary.Entry>> batch() {
+        return dict.readArticles(next());
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from opening a dictionary to the answer of its first query, with and without lazy open.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class FirstQueryBenchmark {
+
+    @Param({"100000", "1000000", "4000000"})
+    int size;
+
+    @Param({"false", "true"})
+    boolean lazy;
+
+    private File ifoFile;
+    private LoadOptions options;
+    private String word;
+    private StarDictDictionary lastLoaded;
+
+    /**
+     * Generate the dictionary before measurement.
+     * @throws Exception when generation failed.
+     */
+    @Setup
+    public void setUp() throws Exception {
+        ifoFile = SyntheticDictionary.prepare(size, false, true, false);
+        options = LoadOptions.builder().lazy(lazy).build();
+        String[] words = SyntheticDictionary.headwords(size);
+        word = words[words.length / 2];
+    }
+
+    /**
+     * Load the dictionary and read the first article. Background load of a
+     * lazy dictionary is awaited after measurement ends, so it does not
+     * overlap next iteration.
+     * @return article.
+     * @throws Exception when load failed.
+     */
+    @Benchmark
+    public String firstQuery() throws Exception {
+        try (StarDictDictionary dict = StarDictLoader.load(ifoFile, CacheOptions.DEFAULT, options)) {
+            String article = dict.readArticles(word).get(0).getArticle();
+            lastLoaded = dict;
+            return article;
+        }
+    }
+
+    /**
+     * Wait for background load of last lazily opened dictionary.
+     */
+    @TearDown(Level.Iteration)
+    public void awaitIndex() {
+        if (lastLoaded != null) {
+            lastLoaded.data.whenReady().join();
+            lastLoaded = null;
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fuzzy lookups of misspelled headwords, against a scan of all headwords.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class FuzzyLookupBenchmark {
+
+    private static final int SAMPLES = 256;
+    private static final int LIMIT = 10;
+
+    @Param({"1000000"})
+    int size;
+
+    @Param({"1", "2"})
+    int distance;
+
+    private StarDictDictionary dict;
+    private IndexTable table;
+    private String[] queries;
+    private int cursor;
+
+    /**
+     * Load the dictionary and misspell random headwords by one substitution.
+     * @throws Exception when load failed.
+     */
+    @Setup
+    public void setUp() throws Exception {
+        dict = StarDictLoader.load(SyntheticDictionary.prepare(size, false, false, false),
+                CacheOptions.DEFAULT);
+        table = dict.data.getIndexTable();
+        String[] words = SyntheticDictionary.headwords(size);
+        Random random = new Random(42);
+        queries = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            char[] chars = words[random.nextInt(words.length)].toCharArray();
+            chars[random.nextInt(chars.length)] = (char) ('a' + random.nextInt(26));
+            queries[i] = new String(chars);
+        }
+    }
+
+    /**
+     * Close the dictionary.
+     * @throws Exception when close failed.
+     */
+    @TearDown
+    public void tearDown() throws Exception {
+        dict.close();
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (SAMPLES - 1);
+        return cursor;
+    }
+
+    /**
+     * Fuzzy lookup walking the sorted index with pruning.
+     * @return matches.
+     */
+    @Benchmark
+    public List<FuzzyMatch> fuzzy() {
+        return dict.readArticlesFuzzy(queries[next()], distance, LIMIT);
+    }
+
+    /**
+     * Bounded edit distance to every headword, the approach fuzzy lookup replaces.
+     * @return number of headwords within distance.
+     */
+    @Benchmark
+    public int scan() {
+        int[] query = queries[next()].codePoints().toArray();
+        int count = 0;
+        for (int k = 0; k < table.size(); k++) {
+            if (FuzzySearch.distance(query, table.getKey(k).codePoints().toArray(), distance) <= distance) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Print heap retained by the index of a synthetic dictionary, without and
+ * with a .syn file, and bytes allocated while loading it.
+ * <p>
+ * Run with e.g. {@code java -cp ... io.github.eb4j.stardict.IndexFootprint 1000000}.
+ * Heap usage is measured after repeated full GCs, so results are estimates.
+ */
+public final class IndexFootprint {
+
+    private IndexFootprint() {
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            Thread.sleep(100);
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /**
+     * Bytes allocated so far by live threads, or -1 when the JVM cannot tell.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        long total = 0;
+        for (long bytes : ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(bean.getAllThreadIds())) {
+            total += Math.max(0, bytes);
+        }
+        return total;
+    }
+
+    /**
+     * Entry point.
+     * @param args sizes of synthetic dictionaries.
+     * @throws Exception when load failed.
+     */
+    public static void main(final String[] args) throws Exception {
+        for (String arg : args) {
+            int size = Integer.parseInt(arg);
+            for (boolean synonyms : new boolean[] {false, true}) {
+                File ifo = SyntheticDictionary.prepare(size, false, synonyms, false);
+                long before = usedHeap();
+                long allocated = allocatedBytes();
+                StarDictDictionary dict = StarDictLoader.load(ifo, CacheOptions.DEFAULT);
+                dict.data.whenReady().join();
+                allocated = allocatedBytes() - allocated;
+                long after = usedHeap();
+                String label = "headwords";
+                if (synonyms) {
+                    label = "headwords with synonyms";
+                }
+                System.out.printf("%,d %s: %,d bytes retained, %.1f bytes/headword, %,d bytes allocated%n",
+                        dict.data.size(), label, after - before,
+                        (double) (after - before) / dict.data.size(), allocated);
+                dict.close();
+            }
+        }
+    }
+}
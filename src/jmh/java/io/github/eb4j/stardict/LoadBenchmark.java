@@ -0,0 +1,106 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cold load of a dictionary: .ifo, index and optional synonyms or index cache, then open the .dict.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class LoadBenchmark {
+
+    @Param({"10000", "100000", "1000000", "4000000"})
+    int size;
+
+    @Param({"false", "true"})
+    boolean gzIndex;
+
+    @Param({"false", "true"})
+    boolean synonyms;
+
+    /** Whether index cache file is used; it is written during first warmup iteration. */
+    @Param({"false", "true"})
+    boolean indexCache;
+
+    /** Threads of load executor, zero to load in the calling thread. */
+    @Param({"0", "4"})
+    int threads;
+
+    private File ifoFile;
+    private LoadOptions options;
+    private ExecutorService executor;
+
+    /**
+     * Generate the dictionary before measurement.
+     * @throws Exception when generation failed.
+     */
+    @Setup
+    public void setUp() throws Exception {
+        ifoFile = SyntheticDictionary.prepare(size, gzIndex, synonyms, false);
+        LoadOptions.Builder builder = LoadOptions.builder().indexCache(indexCache);
+        if (threads > 0) {
+            executor = Executors.newFixedThreadPool(threads);
+            builder.executor(executor);
+        }
+        options = builder.build();
+    }
+
+    /**
+     * Stop load executor.
+     */
+    @TearDown
+    public void tearDown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Load and close the dictionary.
+     * @return loaded index size.
+     * @throws Exception when load failed.
+     */
+    @Benchmark
+    public int load() throws Exception {
+        try (StarDictDictionary dict = StarDictLoader.load(ifoFile, CacheOptions.DEFAULT, options)) {
+            return dict.data.size();
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Index lookups, and predictive lookups with articles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class LookupBenchmark {
+
+    private static final int SAMPLES = 4096;
+
+    @Param({"10000", "100000", "1000000", "4000000"})
+    int size;
+
+    @Param({"1", "3", "5"})
+    int prefixLength;
+
+    private StarDictDictionary dict;
+    private String[] hits;
+    private String[] misses;
+    private String[] prefixes;
+    private int cursor;
+
+    /**
+     * Load the dictionary and pick query words.
+     * @throws Exception when load failed.
+     */
+    @Setup
+    public void setUp() throws Exception {
+        dict = StarDictLoader.load(SyntheticDictionary.prepare(size, false, false, false),
+                CacheOptions.DEFAULT);
+        String[] words = SyntheticDictionary.headwords(size);
+        Random random = new Random(42);
+        hits = new String[SAMPLES];
+        misses = new String[SAMPLES];
+        prefixes = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            String word = words[random.nextInt(words.length)];
+            hits[i] = word;
+            misses[i] = word + "0";
+            prefixes[i] = word.substring(0, Math.min(prefixLength, word.length()));
+        }
+    }
+
+    /**
+     * Close the dictionary.
+     * @throws Exception when close failed.
+     */
+    @TearDown
+    public void tearDown() throws Exception {
+        dict.close();
+    }
+
+    private int next() {
+        cursor = (cursor + 1) & (SAMPLES - 1);
+        return cursor;
+    }
+
+    /**
+     * Exact lookup of an existing headword.
+     * @return index entries.
+     */
+    @Benchmark
+    public List<Map.Entry<String, IndexEntry>> exactHit() {
+        return dict.data.lookUp(hits[next()]);
+    }
+
+    /**
+     * Exact lookup of a missing headword.
+     * @return index entries.
+     */
+    @Benchmark
+    public List<Map.Entry<String, IndexEntry>> exactMiss() {
+        return dict.data.lookUp(misses[next()]);
+    }
+
+    /**
+     * Predictive lookup of a headword prefix.
+     * @return index entries.
+     */
+    @Benchmark
+    public List<Map.Entry<String, IndexEntry>> predictive() {
+        return dict.data.lookUpPredictive(prefixes[next()]);
+    }
+
+    /**
+     * Predictive lookup limited to first ten entries.
+     * @return index entries.
+     */
+    @Benchmark
+    public List<Map.Entry<String, IndexEntry>> predictiveLimit10() {
+        return dict.data.lookUpPredictive(prefixes[next()], 10);
+    }
+
+    /**
+     * Predictive lookup reading articles of all matches.
+     * @return entries with articles.
+     */
+    @Benchmark
+    public List<StarDictDictionary.Entry> predictiveArticles() {
+        return readAll(dict.readArticlesPredictive(prefixes[next()]));
+    }
+
+    /**
+     * Predictive lookup of all matches listing words only; articles are not read.
+     * @return entries.
+     */
+    @Benchmark
+    public List<StarDictDictionary.Entry> predictiveWords() {
+        return dict.readArticlesPredictive(prefixes[next()]);
+    }
+
+    /**
+     * Predictive lookup reading articles of first ten entries from a stream.
+     * @return entries with articles.
+     */
+    @Benchmark
+    public List<StarDictDictionary.Entry> predictiveArticlesStream10() {
+        return readAll(dict.streamArticlesPredictive(prefixes[next()]).limit(10).collect(Collectors.toList()));
+    }
+
+    private static List<StarDictDictionary.Entry> readAll(final List<StarDictDictionary.Entry> entries) {
+        for (StarDictDictionary.Entry entry : entries) {
+            entry.getArticle();
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Parsing of .idx file alone: the previous byte at a time loop against the block parser.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class ParseBenchmark {
+
+    private static final StarDictDictionary.EntryType[] TYPES = {StarDictDictionary.EntryType.MEAN};
+
+    @Param({"100000", "1000000", "4000000"})
+    int size;
+
+    @Param({"false", "true"})
+    boolean gzIndex;
+
+    private File idxFile;
+
+    /**
+     * Generate the dictionary before measurement.
+     * @throws Exception when generation failed.
+     */
+    @Setup
+    public void setUp() throws Exception {
+        File ifo = SyntheticDictionary.prepare(size, gzIndex, false, false);
+        String name = "synthetic.idx";
+        if (gzIndex) {
+            name += ".gz";
+        }
+        idxFile = new File(ifo.getParentFile(), name);
+    }
+
+    /**
+     * Parse with {@link IndexFileParser}.
+     * @return number of headwords.
+     * @throws IOException when parse failed.
+     */
+    @Benchmark
+    public int bulkBuffer() throws IOException {
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        IndexFileParser.parseIndex(idxFile, false, TYPES, builder);
+        return builder.build().size();
+    }
+
+    /**
+     * Parse with DataInputStream.read() per byte, as loader did before.
+     * @return number of headwords.
+     * @throws IOException when parse failed.
+     */
+    @Benchmark
+    public int byteLoop() throws IOException {
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        InputStream is = new FileInputStream(idxFile);
+        try {
+            if (gzIndex) {
+                is = new GZIPInputStream(is, 8192);
+            }
+            try (DataInputStream idx = new DataInputStream(new BufferedInputStream(is));
+                 ByteArrayOutputStream mem = new ByteArrayOutputStream()) {
+                while (true) {
+                    int b = idx.read();
+                    if (b == -1) {
+                        break;
+                    }
+                    if (b == 0) {
+                        byte[] key = mem.toByteArray();
+                        mem.reset();
+                        long bodyOffset = idx.readInt() & 0xffffffffL;
+                        int bodyLength = idx.readInt();
+                        builder.add(key, bodyOffset, bodyLength, TYPES[0]);
+                    } else {
+                        mem.write(b);
+                    }
+                }
+            }
+        } finally {
+            is.close();
+        }
+        return builder.build().size();
+    }
+}
@@ -0,0 +1,311 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Generator of synthetic StarDict dictionaries for benchmarks.
+ * <p>
+ * Headwords are unique lower-case ASCII strings, so natural order and StarDict
+ * order agree. Every 50th headword is repeated with a second article, and when
+ * requested every 10th headword gets a synonym. Output is deterministic for
+ * a given size, and generated files are kept under {@code stardict4j.bench.dir}
+ * so later runs reuse them.
+ */
+public final class SyntheticDictionary {
+
+    private static final int DICTZIP_CHUNK_LENGTH = 58315;
+    private static final String[] VOCABULARY = {
+        "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit", "sed", "do",
+        "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna", "aliqua", "enim",
+        "ad", "minim", "veniam", "quis", "nostrud", "exercitation", "ullamco", "laboris", "nisi", "aliquip",
+    };
+
+    private SyntheticDictionary() {
+    }
+
+    /**
+     * Get (and generate when missing) a synthetic dictionary.
+     * @param size number of distinct headwords.
+     * @param gzIndex write .idx.gz instead of .idx.
+     * @param synonyms write a .syn file.
+     * @param dictzip write .dict.dz instead of .dict.
+     * @return .ifo file of the dictionary.
+     * @throws IOException when files cannot be written.
+     */
+    public static File prepare(final int size, final boolean gzIndex, final boolean synonyms,
+                               final boolean dictzip) throws IOException {
+        String name = String.format("%d-%s-%s-%s", size, suffix(gzIndex, "idxgz", "idx"),
+                suffix(synonyms, "syn", "nosyn"), suffix(dictzip, "dz", "dict"));
+        File dir = new File(System.getProperty("stardict4j.bench.dir", "build/jmh-dicts"), name);
+        File ifo = new File(dir, "synthetic.ifo");
+        if (ifo.isFile()) {
+            return ifo;
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create directory " + dir);
+        }
+        generate(dir, size, gzIndex, synonyms, dictzip);
+        return ifo;
+    }
+
+    private static String suffix(final boolean flag, final String yes, final String no) {
+        if (flag) {
+            return yes;
+        }
+        return no;
+    }
+
+    /**
+     * Headwords of a dictionary of given size, in index order.
+     * @param size number of distinct headwords.
+     * @return sorted headwords without duplicates.
+     */
+    public static String[] headwords(final int size) {
+        Random random = new Random(size);
+        int width = 1;
+        long capacity = 26;
+        while (capacity < size) {
+            capacity *= 26;
+            width++;
+        }
+        String[] words = new String[size];
+        char[] buf = new char[width + 6];
+        for (int i = 0; i < size; i++) {
+            // bijective scramble keeps the fixed-width stem unique
+            long code = (i * 2654435761L) % capacity;
+            for (int j = width - 1; j >= 0; j--) {
+                buf[j] = (char) ('a' + code % 26);
+                code /= 26;
+            }
+            int tail = random.nextInt(7);
+            for (int j = 0; j < tail; j++) {
+                buf[width + j] = (char) ('a' + random.nextInt(26));
+            }
+            words[i] = new String(buf, 0, width + tail);
+        }
+        Arrays.sort(words);
+        return words;
+    }
+
+    private static void generate(final File dir, final int size, final boolean gzIndex, final boolean synonyms,
+                                 final boolean dictzip) throws IOException {
+        String[] words = headwords(size);
+        Random random = new Random(-size);
+        File dictFile = new File(dir, "synthetic.dict");
+        File idxFile = new File(dir, "synthetic.idx");
+        int entries = 0;
+        try (DataOutputStream dict = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dictFile)));
+             DataOutputStream idx = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(idxFile)))) {
+            for (int i = 0; i < words.length; i++) {
+                int repeat = 1;
+                if (i % 50 == 0) {
+                    repeat = 2;
+                }
+                for (int r = 0; r < repeat; r++) {
+                    byte[] article = article(words[i], random);
+                    idx.write(words[i].getBytes(StandardCharsets.UTF_8));
+                    idx.write(0);
+                    idx.writeInt(dict.size());
+                    idx.writeInt(article.length);
+                    dict.write(article);
+                    entries++;
+                }
+            }
+        }
+        long idxSize = idxFile.length();
+        if (gzIndex) {
+            gzip(idxFile, new File(dir, "synthetic.idx.gz"));
+            Files.delete(idxFile.toPath());
+        }
+        int synCount = 0;
+        if (synonyms) {
+            synCount = writeSynonyms(new File(dir, "synthetic.syn"), words);
+        }
+        if (dictzip) {
+            dictzip(dictFile, new File(dir, "synthetic.dict.dz"));
+            Files.delete(dictFile.toPath());
+        }
+        try (Writer ifo = Files.newBufferedWriter(new File(dir, "synthetic.ifo").toPath(), StandardCharsets.UTF_8)) {
+            ifo.write("StarDict's dict ifo file\n");
+            ifo.write("version=3.0.0\n");
+            ifo.write("bookname=synthetic " + size + "\n");
+            ifo.write("wordcount=" + entries + "\n");
+            if (synonyms) {
+                ifo.write("synwordcount=" + synCount + "\n");
+            }
+            ifo.write("idxfilesize=" + idxSize + "\n");
+            ifo.write("idxoffsetbits=32\n");
+            ifo.write("sametypesequence=m\n");
+        }
+    }
+
+    private static byte[] article(final String word, final Random random) {
+        StringBuilder sb = new StringBuilder(word).append(" :");
+        int count = 3 + random.nextInt(60);
+        for (int i = 0; i < count; i++) {
+            sb.append(' ').append(VOCABULARY[random.nextInt(VOCABULARY.length)]);
+        }
+        return sb.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int writeSynonyms(final File synFile, final String[] words) throws IOException {
+        // synonyms are reversed headwords pointing to the first entry of the headword
+        List<String[]> synonyms = new ArrayList<>();
+        int ordinal = 0;
+        for (int i = 0; i < words.length; i++) {
+            if (i % 10 == 0) {
+                synonyms.add(new String[] {new StringBuilder(words[i]).reverse().toString(),
+                        Integer.toString(ordinal)});
+            }
+            ordinal++;
+            if (i % 50 == 0) {
+                ordinal++;
+            }
+        }
+        synonyms.sort((a, b) -> a[0].compareTo(b[0]));
+        try (DataOutputStream syn = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(synFile)))) {
+            for (String[] s : synonyms) {
+                syn.write(s[0].getBytes(StandardCharsets.UTF_8));
+                syn.write(0);
+                syn.writeInt(Integer.parseInt(s[1]));
+            }
+        }
+        return synonyms.size();
+    }
+
+    private static void gzip(final File src, final File dest) throws IOException {
+        try (InputStream in = new FileInputStream(src);
+             OutputStream out = new GZIPOutputStream(new FileOutputStream(dest), 65536)) {
+            byte[] buf = new byte[65536];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+        }
+    }
+
+    /**
+     * Write a dictzip file: a gzip member whose deflate stream is flushed at every
+     * chunk boundary, with the chunk table kept in the "RA" extra field.
+     */
+    private static void dictzip(final File src, final File dest) throws IOException {
+        long length = src.length();
+        int chunkCount = (int) ((length + DICTZIP_CHUNK_LENGTH - 1) / DICTZIP_CHUNK_LENGTH);
+        if (chunkCount > 0xffff) {
+            throw new IOException("Too large for a single dictzip member: " + src);
+        }
+        int headerLength = 10 + 2 + 10 + 2 * chunkCount;
+        int[] chunkSizes = new int[chunkCount];
+        CRC32 crc = new CRC32();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try (InputStream in = new FileInputStream(src); RandomAccessFile out = new RandomAccessFile(dest, "rw")) {
+            out.setLength(0);
+            out.seek(headerLength);
+            byte[] chunk = new byte[DICTZIP_CHUNK_LENGTH];
+            byte[] buf = new byte[DICTZIP_CHUNK_LENGTH * 2];
+            for (int i = 0; i < chunkCount; i++) {
+                int len = (int) Math.min(DICTZIP_CHUNK_LENGTH, length - (long) i * DICTZIP_CHUNK_LENGTH);
+                int off = 0;
+                while (off < len) {
+                    int n = in.read(chunk, off, len - off);
+                    if (n < 0) {
+                        throw new IOException("Unexpected end of " + src);
+                    }
+                    off += n;
+                }
+                crc.update(chunk, 0, len);
+                deflater.setInput(chunk, 0, len);
+                int written = 0;
+                if (i == chunkCount - 1) {
+                    deflater.finish();
+                    while (!deflater.finished()) {
+                        written += deflater.deflate(buf, written, buf.length - written);
+                    }
+                } else {
+                    // output buffer is large enough to take a whole flushed chunk
+                    written = deflater.deflate(buf, 0, buf.length, Deflater.FULL_FLUSH);
+                }
+                if (written > 0xffff) {
+                    throw new IOException("Chunk too large for dictzip: " + written);
+                }
+                chunkSizes[i] = written;
+                out.write(buf, 0, written);
+            }
+            writeIntLE(out, (int) crc.getValue());
+            writeIntLE(out, (int) length);
+            out.seek(0);
+            out.write(new byte[] {0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, 3});
+            writeShortLE(out, 10 + 2 * chunkCount);
+            out.write('R');
+            out.write('A');
+            writeShortLE(out, 6 + 2 * chunkCount);
+            writeShortLE(out, 1);
+            writeShortLE(out, DICTZIP_CHUNK_LENGTH);
+            writeShortLE(out, chunkCount);
+            for (int size : chunkSizes) {
+                writeShortLE(out, size);
+            }
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static void writeShortLE(final RandomAccessFile out, final int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >>> 8) & 0xff);
+    }
+
+    private static void writeIntLE(final RandomAccessFile out, final int value) throws IOException {
+        writeShortLE(out, value & 0xffff);
+        writeShortLE(out, (value >>> 16) & 0xffff);
+    }
+
+    /**
+     * Generate dictionaries from command line.
+     * @param args sizes of dictionaries to generate.
+     * @throws IOException when files cannot be written.
+     */
+    public static void main(final String[] args) throws IOException {
+        for (String arg : args) {
+            int size = Integer.parseInt(arg);
+            for (int variant = 0; variant < 8; variant++) {
+                prepare(size, (variant & 1) != 0, (variant & 2) != 0, (variant & 4) != 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+/**
+ * Article cache of a dictionary, either its own or its part of a
+ * {@link SharedArticleCache}.
+ */
+interface ArticleCache {
+
+    /**
+     * Get cached article.
+     * @param indexEntry index entry of article.
+     * @return UTF-8 article, or null when not cached.
+     */
+    byte[] getIfPresent(IndexEntry indexEntry);
+
+    /**
+     * Cache article.
+     * @param indexEntry index entry of article.
+     * @param article UTF-8 article.
+     */
+    void put(IndexEntry indexEntry, byte[] article);
+
+    /**
+     * Number of cache hits.
+     * @return count, 0 when statistics are not recorded.
+     */
+    long hitCount();
+
+    /**
+     * Number of cache misses.
+     * @return count, 0 when statistics are not recorded.
+     */
+    long missCount();
+
+    /**
+     * Number of evicted articles.
+     * @return count, 0 when statistics are not recorded.
+     */
+    long evictionCount();
+
+    /**
+     * Approximate number of cached articles.
+     * @return count.
+     */
+    long size();
+
+    /**
+     * Total bytes of cached articles.
+     * @return byte count, or -1 when it is not tracked.
+     */
+    long weightedSize();
+
+    /**
+     * Drop articles of the dictionary when it is closed.
+     */
+    void close();
+}
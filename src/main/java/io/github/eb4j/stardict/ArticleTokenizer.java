@@ -0,0 +1,168 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Terms of article text for full-text search.
+ * <p>
+ * Markup of Pango, XDXF, HTML and KingSoft articles is stripped, with
+ * character entities decoded. Terms are runs of letters and digits,
+ * folded like {@link KeyFolding#CASE_AND_DIACRITICS}, so "Tortue" and
+ * "tortué" are the same term. Binary types, whose type value is an upper
+ * case letter, have no text.
+ */
+final class ArticleTokenizer {
+
+    private static final Map<String, Character> ENTITIES = new HashMap<>();
+
+    static {
+        ENTITIES.put("amp", '&');
+        ENTITIES.put("lt", '<');
+        ENTITIES.put("gt", '>');
+        ENTITIES.put("quot", '"');
+        ENTITIES.put("apos", '\'');
+        ENTITIES.put("nbsp", ' ');
+    }
+
+    private ArticleTokenizer() {
+    }
+
+    /**
+     * Whether articles of the type are text.
+     * @param type entry type.
+     * @return true for text types.
+     */
+    static boolean isText(final StarDictDictionary.EntryType type) {
+        return type != null && Character.isLowerCase(type.getTypeValue());
+    }
+
+    /**
+     * Text of an article without markup.
+     * @param article article.
+     * @param type entry type.
+     * @return plain text.
+     */
+    static String plainText(final String article, final StarDictDictionary.EntryType type) {
+        switch (type) {
+            case PANGO:
+            case XDXF:
+            case HTML:
+            case KINGSOFT:
+                return stripTags(article);
+            default:
+                return article;
+        }
+    }
+
+    /**
+     * Replace tags by spaces and decode character entities.
+     */
+    private static String stripTags(final String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        int i = 0;
+        while (i < text.length()) {
+            char c = text.charAt(i);
+            if (c == '<') {
+                int end = text.indexOf('>', i);
+                if (end < 0) {
+                    break;
+                }
+                sb.append(' ');
+                i = end + 1;
+            } else if (c == '&') {
+                int end = text.indexOf(';', i);
+                if (end > i + 1 && end - i <= 10 && appendEntity(text.substring(i + 1, end), sb)) {
+                    i = end + 1;
+                } else {
+                    sb.append(c);
+                    i++;
+                }
+            } else {
+                sb.append(c);
+                i++;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean appendEntity(final String name, final StringBuilder sb) {
+        if (name.charAt(0) == '#') {
+            try {
+                int codePoint;
+                if (name.length() > 1 && (name.charAt(1) == 'x' || name.charAt(1) == 'X')) {
+                    codePoint = Integer.parseInt(name.substring(2), 16);
+                } else {
+                    codePoint = Integer.parseInt(name.substring(1));
+                }
+                if (!Character.isValidCodePoint(codePoint)) {
+                    return false;
+                }
+                sb.appendCodePoint(codePoint);
+                return true;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        Character c = ENTITIES.get(name);
+        if (c == null) {
+            return false;
+        }
+        sb.append(c.charValue());
+        return true;
+    }
+
+    /**
+     * Pass folded terms of text to consumer, in order and with repeats.
+     * @param text plain text.
+     * @param consumer consumer of terms.
+     */
+    static void tokenize(final String text, final Consumer<String> consumer) {
+        int length = text.length();
+        int i = 0;
+        while (i < length) {
+            int codePoint = text.codePointAt(i);
+            if (!Character.isLetterOrDigit(codePoint)) {
+                i += Character.charCount(codePoint);
+                continue;
+            }
+            int start = i;
+            boolean ascii = true;
+            while (i < length) {
+                codePoint = text.codePointAt(i);
+                if (!Character.isLetterOrDigit(codePoint)
+                        && Character.getType(codePoint) != Character.NON_SPACING_MARK) {
+                    break;
+                }
+                ascii &= codePoint < 0x80;
+                i += Character.charCount(codePoint);
+            }
+            String term = text.substring(start, i);
+            if (ascii) {
+                consumer.accept(term.toLowerCase(Locale.ROOT));
+            } else {
+                consumer.accept(KeyFolding.CASE_AND_DIACRITICS.fold(term));
+            }
+        }
+    }
+}
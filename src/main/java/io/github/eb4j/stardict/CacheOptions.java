@@ -0,0 +1,267 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import java.time.Duration;
+
+/**
+ * Options of the article cache of a dictionary.
+ * <p>
+ * The cache is bounded either by number of articles or by total bytes of
+ * articles, and entries expire by one of {@link Expiry} policies. Many
+ * dictionaries may share one cache, see {@link SharedArticleCache}, and
+ * articles may be kept off the heap, see {@link Builder#offHeap(boolean)}.
+ * Instances are immutable; use {@link #builder()} to create one.
+ */
+public final class CacheOptions {
+
+    /** Default maximum number of cached articles. */
+    public static final long DEFAULT_MAXIMUM_SIZE = 1_000;
+
+    /** Default duration of expiry. */
+    public static final Duration DEFAULT_DURATION = Duration.ofMinutes(15);
+
+    /** Default options. */
+    public static final CacheOptions DEFAULT = builder().build();
+
+    private final long maximumSize;
+    private final long maximumWeight;
+    private final Expiry expiry;
+    private final Duration duration;
+    private final SharedArticleCache sharedCache;
+    private final boolean offHeap;
+
+    private CacheOptions(final Builder builder) {
+        this.maximumSize = builder.maximumSize;
+        this.maximumWeight = builder.maximumWeight;
+        this.expiry = builder.expiry;
+        this.duration = builder.duration;
+        this.sharedCache = builder.sharedCache;
+        this.offHeap = builder.offHeap;
+    }
+
+    /**
+     * Create a builder of options.
+     * @return new Builder object.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Maximum number of cached articles.
+     * @return number of articles, or -1 when cache is bounded by weight.
+     */
+    public long getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Maximum total bytes of cached articles.
+     * @return byte size, or -1 when cache is bounded by number of articles.
+     */
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    /**
+     * Whether cache is bounded by total bytes of articles.
+     * @return true when bounded by weight.
+     */
+    public boolean isWeighted() {
+        return maximumWeight >= 0;
+    }
+
+    /**
+     * Expiry policy.
+     * @return policy.
+     */
+    public Expiry getExpiry() {
+        return expiry;
+    }
+
+    /**
+     * Duration of expiry or refresh.
+     * @return duration, or null when entries do not expire.
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    /**
+     * Shared cache used instead of a cache of the dictionary.
+     * @return shared cache, or null.
+     */
+    public SharedArticleCache getSharedCache() {
+        return sharedCache;
+    }
+
+    /**
+     * Whether articles are kept in direct memory.
+     * @return true when off heap.
+     */
+    public boolean isOffHeap() {
+        return offHeap;
+    }
+
+    /**
+     * Expiry policies of cached articles.
+     */
+    public enum Expiry {
+        /** Articles are kept until evicted by size. */
+        NONE,
+        /** Articles expire when not read for the duration. */
+        AFTER_ACCESS,
+        /** Articles expire the duration after they are read from file. */
+        AFTER_WRITE,
+        /**
+         * Articles read from file more than the duration ago are read again
+         * in background when accessed, and the old article is returned
+         * meanwhile.
+         */
+        REFRESH_AFTER_WRITE,
+    }
+
+    /**
+     * Builder of CacheOptions.
+     */
+    public static final class Builder {
+        private long maximumSize = DEFAULT_MAXIMUM_SIZE;
+        private long maximumWeight = -1;
+        private Expiry expiry = Expiry.AFTER_ACCESS;
+        private Duration duration = DEFAULT_DURATION;
+        private SharedArticleCache sharedCache = null;
+        private boolean offHeap = false;
+
+        private Builder() {
+        }
+
+        /**
+         * Bound the cache by number of articles, regardless of their length.
+         * @param size maximum number of articles.
+         * @return this builder.
+         */
+        public Builder maximumSize(final long size) {
+            if (size < 0) {
+                throw new IllegalArgumentException("Negative cache size: " + size);
+            }
+            this.maximumSize = size;
+            this.maximumWeight = -1;
+            return this;
+        }
+
+        /**
+         * Bound the cache by total bytes of UTF-8 articles, so heap used by
+         * the cache can be planned for dictionaries with long articles.
+         * @param bytes maximum total byte length of articles.
+         * @return this builder.
+         */
+        public Builder maximumWeight(final long bytes) {
+            if (bytes < 0) {
+                throw new IllegalArgumentException("Negative cache weight: " + bytes);
+            }
+            this.maximumWeight = bytes;
+            this.maximumSize = -1;
+            return this;
+        }
+
+        /**
+         * Expire articles not read for the duration.
+         * @param value duration.
+         * @return this builder.
+         */
+        public Builder expireAfterAccess(final Duration value) {
+            return expiry(Expiry.AFTER_ACCESS, value);
+        }
+
+        /**
+         * Expire articles the duration after they are read from file.
+         * @param value duration.
+         * @return this builder.
+         */
+        public Builder expireAfterWrite(final Duration value) {
+            return expiry(Expiry.AFTER_WRITE, value);
+        }
+
+        /**
+         * Read articles again in background when accessed the duration after
+         * they are read from file, e.g. for dictionary files replaced in place.
+         * @param value duration.
+         * @return this builder.
+         */
+        public Builder refreshAfterWrite(final Duration value) {
+            return expiry(Expiry.REFRESH_AFTER_WRITE, value);
+        }
+
+        /**
+         * Keep articles until evicted by size.
+         * @return this builder.
+         */
+        public Builder noExpiry() {
+            this.expiry = Expiry.NONE;
+            this.duration = null;
+            return this;
+        }
+
+        /**
+         * Keep articles in a cache shared with other dictionaries, under its
+         * budget and expiry. Other options of this builder are ignored for
+         * dictionaries loaded with it.
+         * @param cache shared cache, or null to give each dictionary its own cache.
+         * @return this builder.
+         */
+        public Builder sharedCache(final SharedArticleCache cache) {
+            this.sharedCache = cache;
+            return this;
+        }
+
+        /**
+         * Keep article bytes in direct memory slabs instead of the heap, so a
+         * large cache does not lengthen garbage collections. The cache must be
+         * bounded by {@link #maximumWeight(long)}; articles are evicted by a
+         * clock over slabs, and expiry settings are ignored.
+         * @param value true to keep articles off heap.
+         * @return this builder.
+         */
+        public Builder offHeap(final boolean value) {
+            this.offHeap = value;
+            return this;
+        }
+
+        private Builder expiry(final Expiry policy, final Duration value) {
+            if (value == null || value.isNegative()) {
+                throw new IllegalArgumentException("Invalid cache duration: " + value);
+            }
+            this.expiry = policy;
+            this.duration = value;
+            return this;
+        }
+
+        /**
+         * Build CacheOptions object.
+         * @return CacheOptions object.
+         */
+        public CacheOptions build() {
+            if (offHeap && maximumWeight < 0) {
+                throw new IllegalArgumentException("Off-heap cache needs maximum weight");
+            }
+            return new CacheOptions(this);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+/**
+ * Listener passing events to two listeners, e.g. a user listener and
+ * metrics of the JMX bean.
+ */
+final class CompositeMetricsListener implements MetricsListener {
+
+    private final MetricsListener first;
+    private final MetricsListener second;
+
+    private CompositeMetricsListener(final MetricsListener first, final MetricsListener second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    /**
+     * Combine listeners.
+     * @param first listener, may be null.
+     * @param second listener, may be null.
+     * @return listener passing events to both, or null when both are null.
+     */
+    static MetricsListener of(final MetricsListener first, final MetricsListener second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return new CompositeMetricsListener(first, second);
+    }
+
+    @Override
+    public void onLookup(final LookupType type, final boolean hit, final long nanos) {
+        first.onLookup(type, hit, nanos);
+        second.onLookup(type, hit, nanos);
+    }
+
+    @Override
+    public void onRead(final int bytes, final long nanos) {
+        first.onRead(bytes, nanos);
+        second.onRead(bytes, nanos);
+    }
+
+    @Override
+    public void onChunkInflate(final int bytes, final long nanos) {
+        first.onChunkInflate(bytes, nanos);
+        second.onChunkInflate(bytes, nanos);
+    }
+
+    @Override
+    public void onLoadPhase(final LoadPhase phase, final long nanos) {
+        first.onLoadPhase(phase, nanos);
+        second.onLoadPhase(phase, nanos);
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Random access to chunks of a dictzip file.
+ * <p>
+ * Dictzip is a gzip file whose deflate stream is fully flushed at every chunk
+ * boundary, and whose "RA" extra field holds the chunk length and the
+ * compressed size of every chunk. Each chunk therefore can be inflated on its
+ * own. Compressed data is read with positional reads, so one instance can be
+ * used from many threads, and the file is opened again when an interrupted
+ * reader closes it.
+ */
+final class DictZipFile implements Closeable {
+
+    private static final int FHCRC = 2;
+    private static final int FEXTRA = 4;
+    private static final int FNAME = 8;
+    private static final int FCOMMENT = 16;
+    private static final int MAX_HEADER = 65536 * 2 + 1024;
+
+    private final ReopeningChannel channel;
+    private final int chunkLength;
+    private final long[] chunkOffsets;
+
+    /**
+     * Open dictzip file and read its header.
+     * @param file .dict.dz file.
+     * @throws IOException when file cannot be read, or is not a dictzip file.
+     */
+    DictZipFile(final File file) throws IOException {
+        channel = new ReopeningChannel(file);
+        try {
+            ByteBuffer header = ByteBuffer.allocate((int) Math.min(MAX_HEADER, channel.size()));
+            readFully(header, 0);
+            header.flip();
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            if (header.remaining() < 10 || (header.get() & 0xff) != 0x1f || (header.get() & 0xff) != 0x8b
+                    || header.get() != 8) {
+                throw new IOException("Not a gzip file: " + file);
+            }
+            int flags = header.get() & 0xff;
+            if ((flags & FEXTRA) == 0) {
+                throw new IOException("Not a dictzip file, no extra field: " + file);
+            }
+            header.position(10);
+            int extraEnd = (header.getShort() & 0xffff) + header.position();
+            int length = 0;
+            int[] sizes = null;
+            while (header.position() + 4 <= extraEnd) {
+                int si1 = header.get() & 0xff;
+                int si2 = header.get() & 0xff;
+                int len = header.getShort() & 0xffff;
+                int next = header.position() + len;
+                if (si1 == 'R' && si2 == 'A') {
+                    header.getShort(); // version
+                    length = header.getShort() & 0xffff;
+                    sizes = new int[header.getShort() & 0xffff];
+                    for (int i = 0; i < sizes.length; i++) {
+                        sizes[i] = header.getShort() & 0xffff;
+                    }
+                }
+                header.position(next);
+            }
+            if (sizes == null || length == 0) {
+                throw new IOException("Not a dictzip file, no RA field: " + file);
+            }
+            header.position(extraEnd);
+            if ((flags & FNAME) != 0) {
+                skipString(header);
+            }
+            if ((flags & FCOMMENT) != 0) {
+                skipString(header);
+            }
+            if ((flags & FHCRC) != 0) {
+                header.getShort();
+            }
+            chunkLength = length;
+            chunkOffsets = new long[sizes.length + 1];
+            chunkOffsets[0] = header.position();
+            for (int i = 0; i < sizes.length; i++) {
+                chunkOffsets[i + 1] = chunkOffsets[i] + sizes[i];
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            // header fields point past the bytes read
+            channel.close();
+            throw new IOException("Not a dictzip file: " + file, e);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static void skipString(final ByteBuffer buffer) {
+        byte b;
+        do {
+            b = buffer.get();
+        } while (b != 0);
+    }
+
+    private void readFully(final ByteBuffer buffer, final long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    /**
+     * Uncompressed length of every chunk but the last one.
+     * @return chunk length.
+     */
+    int getChunkLength() {
+        return chunkLength;
+    }
+
+    /**
+     * Number of chunks.
+     * @return chunk count.
+     */
+    int getChunkCount() {
+        return chunkOffsets.length - 1;
+    }
+
+    /**
+     * Read and inflate a chunk.
+     * @param index chunk index.
+     * @return uncompressed data of the chunk.
+     * @throws IOException when read failed, or data is broken.
+     */
+    byte[] inflateChunk(final int index) throws IOException {
+        if (index < 0 || index >= getChunkCount()) {
+            throw new EOFException("No such chunk: " + index);
+        }
+        ByteBuffer compressed = ByteBuffer.allocate((int) (chunkOffsets[index + 1] - chunkOffsets[index]));
+        readFully(compressed, chunkOffsets[index]);
+        byte[] result = new byte[chunkLength];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(compressed.array());
+            int n = 0;
+            while (n < result.length && !inflater.finished() && !inflater.needsInput()) {
+                int count = inflater.inflate(result, n, result.length - n);
+                if (count == 0) {
+                    break;
+                }
+                n += count;
+            }
+            if (n < result.length) {
+                return Arrays.copyOf(result, n);
+            }
+            return result;
+        } catch (DataFormatException e) {
+            throw new IOException("Broken dictzip chunk " + index, e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -19,32 +19,82 @@
 
 package io.github.eb4j.stardict;
 
-import org.trie4j.MapTrie;
-import org.trie4j.doublearray.MapDoubleArray;
-
-import java.util.AbstractMap;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Deque;
 import java.util.List;
+import java.util.Objects;
 import java.util.Map.Entry;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * A class that encapsulates the storage and retrieval of string-keyed data.
+ * <p>
+ * Data is held in a sorted {@link IndexTable} with primitive columns, either
+ * built from the index file or mapped from an index cache file. IndexEntry
+ * objects are only created for lookup results. When opened lazily, queries are
+ * answered from the mapped .idx file until the table is loaded in background.
+ * A {@link FoldedIndex} may be built over the table for case and accent
+ * insensitive lookups.
  *
  * @author Aaron Madlon-Kay
  * @author Hiroshi Miura
- * @param <T>
- *            The type of data stored
  */
-class DictionaryData<T> {
+class DictionaryData {
+
+    /** Number of candidate headwords from which pattern search runs in parallel. */
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private volatile IndexTable table;
+    private volatile LazyIndex lazy;
+    private final CompletableFuture<Void> ready;
+    private volatile CompletableFuture<FoldedIndex> folded;
+
+    /**
+     * POJO class to hold dictionary data in sorted table.
+     */
+    DictionaryData(final IndexTable table) {
+        this.table = table;
+        this.lazy = null;
+        this.ready = CompletableFuture.completedFuture(null);
+    }
 
-    private final MapDoubleArray<Object> data;
+    /**
+     * Dictionary data answering from .idx file until full data is loaded.
+     * @param lazy index over mapped .idx file.
+     * @param loaded full data being loaded in background.
+     */
+    DictionaryData(final LazyIndex lazy, final CompletableFuture<DictionaryData> loaded) {
+        this.lazy = lazy;
+        this.ready = loaded.thenAccept(data -> {
+            // table first, so readers seeing no lazy index see the table
+            table = data.getIndexTable();
+            this.lazy = null;
+        });
+    }
 
     /**
-     * POJO class to hold dictionary data.
+     * Lazy index while full data is being loaded.
+     * @return LazyIndex object, or null when the table is ready.
+     * @throws IllegalStateException when background load failed.
      */
-    DictionaryData(final MapTrie<Object> mapTrie) {
-        data = new MapDoubleArray<>(mapTrie);
+    private LazyIndex getLazyIndex() {
+        if (table != null) {
+            return null;
+        }
+        if (ready.isCompletedExceptionally()) {
+            // do not answer from the .idx file alone for good, e.g. without synonyms
+            getIndexTable();
+        }
+        return lazy;
     }
 
     /**
@@ -54,9 +104,35 @@ class DictionaryData<T> {
      *            The word to look up
      * @return A list of stored objects matching the given word
      */
-    public List<Entry<String, T>> lookUp(final String word) {
-        List<Entry<String, T>> result = new ArrayList<>();
-        get(word, data.get(word), result);
+    public List<Entry<String, IndexEntry>> lookUp(final String word) {
+        LazyIndex index = getLazyIndex();
+        if (index != null) {
+            return index.lookUp(word);
+        }
+        IndexTable current = table;
+        List<Entry<String, IndexEntry>> result = new ArrayList<>();
+        int k = current.find(word.getBytes(StandardCharsets.UTF_8));
+        if (k >= 0) {
+            current.collect(k, word, result);
+        }
+        return result;
+    }
+
+    /**
+     * Look up the given word, comparing keys under the folding.
+     *
+     * @param word
+     *            The word to look up
+     * @param folding
+     *            Folding of the query; NONE for exact keys
+     * @return A list of stored objects matching the given word
+     */
+    public List<Entry<String, IndexEntry>> lookUp(final String word, final KeyFolding folding) {
+        if (folding == KeyFolding.NONE) {
+            return lookUp(word);
+        }
+        List<Entry<String, IndexEntry>> result = new ArrayList<>();
+        getFoldedIndex(folding).lookUp(word, folding, result);
         return result;
     }
 
@@ -68,34 +144,260 @@ class DictionaryData<T> {
      *            The word to look up
      * @return A list of stored objects matching the given word
      */
-    public List<Entry<String, T>> lookUpPredictive(final String word) {
-        List<Entry<String, T>> result = new ArrayList<>();
-        data.predictiveSearch(word).forEach(w -> get(w, data.get(w), result));
+    public List<Entry<String, IndexEntry>> lookUpPredictive(final String word) {
+        return lookUpPredictive(word, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Look up the given word using predictive completion, up to limit results.
+     *
+     * @param word
+     *            The word to look up
+     * @param limit
+     *            Maximum number of results
+     * @return A list of stored objects matching the given word, in index order
+     */
+    public List<Entry<String, IndexEntry>> lookUpPredictive(final String word, final int limit) {
+        List<Entry<String, IndexEntry>> result = new ArrayList<>();
+        byte[] prefix = word.getBytes(StandardCharsets.UTF_8);
+        LazyIndex index = getLazyIndex();
+        if (index != null) {
+            index.collectPredictive(prefix, -1, limit, result);
+        } else {
+            table.collectPredictive(prefix, -1, limit, result);
+        }
+        if (result.size() > limit) {
+            // last headword may have more entries than needed
+            return new ArrayList<>(result.subList(0, limit));
+        }
+        return result;
+    }
+
+    /**
+     * Look up the given word using predictive completion, comparing keys
+     * under the folding, up to limit results.
+     *
+     * @param word
+     *            The word to look up
+     * @param limit
+     *            Maximum number of results
+     * @param folding
+     *            Folding of the query; NONE for exact keys
+     * @return A list of stored objects matching the given word, in index
+     *         order when NONE, otherwise in order of folded keys
+     */
+    public List<Entry<String, IndexEntry>> lookUpPredictive(final String word, final int limit,
+                                                            final KeyFolding folding) {
+        if (folding == KeyFolding.NONE) {
+            return lookUpPredictive(word, limit);
+        }
+        List<Entry<String, IndexEntry>> result = new ArrayList<>();
+        getFoldedIndex(folding).lookUpPredictive(word, folding, limit, result);
+        if (result.size() > limit) {
+            return new ArrayList<>(result.subList(0, limit));
+        }
         return result;
     }
 
     /**
-     * Unpack the given stored object (singular, or array) into the given
-     * collection.
+     * Look up headwords within edit distance of the word, waiting for
+     * background load when opened lazily.
      *
-     * @param key
-     * @param value
-     * @param into
-     */
-    @SuppressWarnings("unchecked")
-    private <U> void get(final U key, final Object value, final Collection<Entry<U, T>> into) {
-        if (value == null) {
-            return;
+     * @param word
+     *            The word to look up
+     * @param maxDistance
+     *            Maximum Levenshtein distance in code points
+     * @param limit
+     *            Maximum number of headwords
+     * @return Matches, closest first and then in index order
+     */
+    List<FuzzySearch.Match> lookUpFuzzy(final String word, final int maxDistance, final int limit) {
+        return FuzzySearch.search(getIndexTable(), word, maxDistance, limit);
+    }
+
+    /**
+     * Stream of headwords matching the pattern. Candidates are the range
+     * of headwords starting with the literal prefix of the pattern, and the
+     * stream splits that range for parallel use. Waits for background load
+     * when opened lazily.
+     *
+     * @param pattern
+     *            Compiled pattern
+     * @param parallel
+     *            Whether to scan in parallel when the range is large
+     * @return A stream of stored objects matching the pattern, in index order
+     */
+    Stream<Entry<String, IndexEntry>> streamMatching(final HeadwordPattern pattern, final boolean parallel) {
+        IndexTable current = getIndexTable();
+        byte[] prefix = pattern.getPrefixBytes();
+        int from = current.lowerBound(prefix);
+        int to = current.skipFolded(from, prefix, prefix.length);
+        IntStream range = IntStream.range(from, to);
+        if (parallel && to - from >= PARALLEL_THRESHOLD) {
+            range = range.parallel();
         }
-        if (value instanceof Object[]) {
-            for (Object o : (Object[]) value) {
-                if (o != null) {
-                    into.add(new AbstractMap.SimpleImmutableEntry<>(key, (T) o));
-                }
+        return range.mapToObj(k -> {
+            String key = current.getKey(k);
+            if (!pattern.matches(key)) {
+                return null;
             }
-        } else {
-            into.add(new AbstractMap.SimpleImmutableEntry<>(key, (T) value));
+            List<Entry<String, IndexEntry>> entries = new ArrayList<>(1);
+            current.collect(k, key, entries);
+            return entries;
+        }).filter(Objects::nonNull).flatMap(List::stream);
+    }
+
+    /**
+     * Build folded index of the table, after background load when opened lazily.
+     * @param folding folding of keys, other than NONE.
+     */
+    void buildFoldedIndex(final KeyFolding folding) {
+        folded = ready.thenApply(v -> FoldedIndex.build(table, folding));
+    }
+
+    /**
+     * Get folded index answering queries of the folding, waiting for it
+     * when it is being built.
+     * @param folding folding of the query.
+     * @return FoldedIndex object.
+     * @throws IllegalStateException when no index of the folding or a stronger one was built.
+     */
+    private FoldedIndex getFoldedIndex(final KeyFolding folding) {
+        CompletableFuture<FoldedIndex> future = folded;
+        if (future != null) {
+            // fails as the table when background load failed
+            getIndexTable();
+            FoldedIndex index = future.join();
+            if (index.getFolding().compareTo(folding) >= 0) {
+                return index;
+            }
+        }
+        throw new IllegalStateException("No folded index for " + folding + " lookups");
+    }
+
+    /**
+     * Approximate heap bytes of the folded index.
+     * @return byte count, 0 when no folded index is built or it is being built.
+     */
+    long getFoldedIndexBytes() {
+        CompletableFuture<FoldedIndex> future = folded;
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) {
+            return 0;
         }
+        return future.join().memoryBytes();
+    }
+
+    /**
+     * Stream of predictive completion results. Index is walked as the
+     * stream is consumed, so a limited stream of a short prefix is cheap.
+     *
+     * @param word
+     *            The word to look up
+     * @return A sequential stream of stored objects matching the given word, in index order
+     */
+    public Stream<Entry<String, IndexEntry>> streamPredictive(final String word) {
+        byte[] prefix = word.getBytes(StandardCharsets.UTF_8);
+        // stay on the index found at start, positions differ between them
+        LazyIndex index = getLazyIndex();
+        IndexTable current = table;
+        Spliterator<Entry<String, IndexEntry>> spliterator =
+                new Spliterators.AbstractSpliterator<Entry<String, IndexEntry>>(Long.MAX_VALUE,
+                        Spliterator.ORDERED | Spliterator.NONNULL) {
+                    private final Deque<Entry<String, IndexEntry>> buffer = new ArrayDeque<>();
+                    private int position = -1;
+                    private boolean done = false;
+
+                    @Override
+                    public boolean tryAdvance(final Consumer<? super Entry<String, IndexEntry>> action) {
+                        while (buffer.isEmpty() && !done) {
+                            if (index != null) {
+                                position = index.collectPredictive(prefix, position, 1, buffer);
+                            } else {
+                                position = current.collectPredictive(prefix, position, 1, buffer);
+                            }
+                            done = position < 0;
+                        }
+                        if (buffer.isEmpty()) {
+                            return false;
+                        }
+                        action.accept(buffer.poll());
+                        return true;
+                    }
+                };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Position of a word in index order. Waits for background load when
+     * opened lazily.
+     *
+     * @param word
+     *            The word to look up
+     * @return Position of the word when it is stored, otherwise of the next
+     *         stored key, or size() when all keys are less
+     */
+    int position(final String word) {
+        return getIndexTable().position(word.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Stored key at a position in index order. Waits for background load
+     * when opened lazily.
+     *
+     * @param position
+     *            Position from 0 to size() - 1
+     * @return Stored key
+     * @throws IndexOutOfBoundsException when position is out of range
+     */
+    String getKey(final int position) {
+        IndexTable current = getIndexTable();
+        if (position < 0 || position >= current.size()) {
+            throw new IndexOutOfBoundsException("Invalid position: " + position);
+        }
+        return current.getKey(position);
+    }
+
+    /**
+     * Stream of stored objects of keys from a position up to another, in
+     * index order. Keys are decoded as the stream is consumed, so a limited
+     * stream of a large range is cheap. Waits for background load when opened
+     * lazily.
+     *
+     * @param from
+     *            Position of first key, inclusive
+     * @param to
+     *            Position after last key, exclusive; clamped to size()
+     * @return A sequential stream of stored objects
+     */
+    Stream<Entry<String, IndexEntry>> streamRange(final int from, final int to) {
+        IndexTable current = getIndexTable();
+        int start = Math.max(0, from);
+        int end = Math.min(to, current.size());
+        Spliterator<Entry<String, IndexEntry>> spliterator =
+                new Spliterators.AbstractSpliterator<Entry<String, IndexEntry>>(Long.MAX_VALUE,
+                        Spliterator.ORDERED | Spliterator.NONNULL) {
+                    private int position = start;
+                    private int slot = -1;
+                    private int slotEnd = -1;
+                    private String key;
+
+                    @Override
+                    public boolean tryAdvance(final Consumer<? super Entry<String, IndexEntry>> action) {
+                        while (slot == slotEnd) {
+                            if (position >= end) {
+                                return false;
+                            }
+                            key = current.getKey(position);
+                            slot = current.getValueStart(position);
+                            slotEnd = current.getValueStart(position + 1);
+                            position++;
+                        }
+                        action.accept(current.entry(key, slot));
+                        slot++;
+                        return true;
+                    }
+                };
+        return StreamSupport.stream(spliterator, false);
     }
 
     /**
@@ -104,6 +406,34 @@ class DictionaryData<T> {
      * @return The number of stored keys
      */
     public int size() {
-        return data.size();
+        LazyIndex index = getLazyIndex();
+        if (index != null) {
+            return index.size();
+        }
+        return table.size();
+    }
+
+    /**
+     * Get contents as a sorted table, waiting for background load.
+     *
+     * @return IndexTable object
+     * @throws IllegalStateException when background load failed, with its cause.
+     */
+    IndexTable getIndexTable() {
+        try {
+            ready.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Index could not be loaded", e.getCause());
+        }
+        return table;
+    }
+
+    /**
+     * Completion of background load of lazily opened data.
+     *
+     * @return future completed when the sorted table is in use.
+     */
+    CompletableFuture<Void> whenReady() {
+        return ready;
     }
 }
@@ -18,76 +18,410 @@
 
 package io.github.eb4j.stardict;
 
-import org.trie4j.MapTrie;
-import org.trie4j.patricia.MapPatriciaTrie;
+import java.util.Arrays;
 
-import java.util.ArrayList;
-import java.util.List;
+/**
+ * Builder of DictionaryData.
+ * <p>
+ * Entries are accumulated in .idx order into primitive columns, and adjacent
+ * entries of the same headword are grouped as a run. StarDict index files are
+ * sorted, so normally runs are the final headword table as is; otherwise runs
+ * are sorted and merged when building.
+ */
+final class DictionaryDataBuilder {
+
+    private byte[] keys;
+    private int keyBytes = 0;
+    private int[] runKeyOffsets;
+    private int[] runStarts;
+    private int runCount = 0;
+    private boolean sorted = true;
 
-final class DictionaryDataBuilder<T> {
+    private long[] starts;
+    private int[] lengths;
+    private byte[] types;
+    private int entryCount = 0;
 
-    private MapTrie<Object> mapPatriciaTrie = new MapPatriciaTrie<>();
-    private List<String> keys = new ArrayList<>();
+    private Synonyms synonyms = new Synonyms();
+    /** Slot of each .idx ordinal in the merged table, null when the index is sorted. */
+    private int[] ordinalSlots;
 
     /**
      * Builder factory for POJO class DictionaryData.
      */
     DictionaryDataBuilder() {
+        this(1024, 8192);
     }
 
     /**
-     * build DictionaryData POJO.
-     * @return DictionaryData immutable object.
+     * Builder factory for POJO class DictionaryData with size hints,
+     * e.g. from wordcount and idxfilesize of .ifo file.
+     * @param expectedEntries expected number of entries.
+     * @param expectedKeyBytes expected total bytes of headwords.
+     */
+    DictionaryDataBuilder(final int expectedEntries, final long expectedKeyBytes) {
+        int entries = Math.max(16, expectedEntries);
+        keys = new byte[(int) Math.max(16, Math.min(Integer.MAX_VALUE - 8, expectedKeyBytes))];
+        runKeyOffsets = new int[entries + 1];
+        runStarts = new int[entries + 1];
+        starts = new long[entries];
+        lengths = new int[entries];
+        types = new byte[entries];
+    }
+
+    /**
+     * Add an index entry.
+     * Dictionaries may store multiple definitions for the same key, they are
+     * grouped into a headword.
+     *
+     * @param key UTF-8 bytes of headword.
+     * @param start article offset.
+     * @param len article length.
+     * @param type article type.
+     */
+    public void add(final byte[] key, final long start, final int len, final StarDictDictionary.EntryType type) {
+        add(key, 0, key.length, start, len, type);
+    }
+
+    /**
+     * Add an index entry whose headword is a slice of a buffer.
+     *
+     * @param buf buffer holding UTF-8 bytes of headword.
+     * @param off offset of headword in buffer.
+     * @param keyLen byte length of headword.
+     * @param start article offset.
+     * @param len article length.
+     * @param type article type.
      */
-    public DictionaryData<T> build() {
-        return new DictionaryData<T>(mapPatriciaTrie);
+    public void add(final byte[] buf, final int off, final int keyLen, final long start, final int len,
+                    final StarDictDictionary.EntryType type) {
+        int cmp = 1;
+        if (runCount > 0) {
+            int last = runKeyOffsets[runCount - 1];
+            cmp = -StarDictCollation.compare(keys, last, keyBytes - last, buf, off, keyLen);
+        }
+        if (cmp != 0) {
+            if (cmp < 0) {
+                sorted = false;
+            }
+            if (runCount + 1 >= runStarts.length) {
+                int size = IndexTable.grow(runStarts.length, runCount + 2);
+                runKeyOffsets = Arrays.copyOf(runKeyOffsets, size);
+                runStarts = Arrays.copyOf(runStarts, size);
+            }
+            if (keyBytes + keyLen > keys.length) {
+                keys = Arrays.copyOf(keys, IndexTable.grow(keys.length, keyBytes + keyLen));
+            }
+            System.arraycopy(buf, off, keys, keyBytes, keyLen);
+            runKeyOffsets[runCount] = keyBytes;
+            runStarts[runCount] = entryCount;
+            keyBytes += keyLen;
+            runCount++;
+        }
+        if (entryCount == starts.length) {
+            int size = IndexTable.grow(starts.length, entryCount + 1);
+            starts = Arrays.copyOf(starts, size);
+            lengths = Arrays.copyOf(lengths, size);
+            types = Arrays.copyOf(types, size);
+        }
+        starts[entryCount] = start;
+        lengths[entryCount] = len;
+        types[entryCount] = (byte) type.getTypeValue();
+        entryCount++;
     }
 
     /**
-     * Do the actual storing of the value. Most values are going to be singular,
-     * but dictionaries may store multiple definitions for the same key, so in
-     * that case we store the values in an array.
+     * Add a synonym entry.
      *
-     * @param key
+     * @param key UTF-8 bytes of synonym.
+     * @param index ordinal of the entry in .idx file.
      */
-    public void add(final String key, final IndexEntry entry) {
-        keys.add(key);
-        Object stored = mapPatriciaTrie.get(key);
-        if (stored == null) {
-            mapPatriciaTrie.insert(key, entry);
+    public void addSynonym(final byte[] key, final int index) {
+        synonyms.add(key, 0, key.length, index);
+    }
+
+    /**
+     * Add a synonym entry whose word is a slice of a buffer.
+     *
+     * @param buf buffer holding UTF-8 bytes of synonym.
+     * @param off offset of synonym in buffer.
+     * @param keyLen byte length of synonym.
+     * @param index ordinal of the entry in .idx file.
+     */
+    public void addSynonym(final byte[] buf, final int off, final int keyLen, final int index) {
+        synonyms.add(buf, off, keyLen, index);
+    }
+
+    /**
+     * Use synonyms collected separately, e.g. parsed in parallel with .idx file.
+     * They replace synonyms added to this builder.
+     *
+     * @param value synonyms in .syn order.
+     */
+    public void setSynonyms(final Synonyms value) {
+        synonyms = value;
+    }
+
+    /**
+     * build DictionaryData POJO.
+     * @return DictionaryData immutable object.
+     */
+    public DictionaryData build() {
+        runKeyOffsets[runCount] = keyBytes;
+        runStarts[runCount] = entryCount;
+        IndexTable table;
+        if (sorted) {
+            // drop spare capacity, the table is kept for the life of the dictionary
+            table = IndexTable.wrap(trim(keys, keyBytes), trim(runKeyOffsets, runCount + 1),
+                    trim(runStarts, runCount + 1), runCount, trim(starts, entryCount), trim(lengths, entryCount),
+                    trim(types, entryCount), entryCount);
         } else {
-            if (stored instanceof Object[]) {
-                stored = extendArray((Object[]) stored, entry);
+            table = mergeRuns();
+        }
+        if (synonyms.count > 0) {
+            table = resolveSynonyms(table);
+        }
+        return new DictionaryData(table);
+    }
+
+    private static byte[] trim(final byte[] array, final int length) {
+        if (array.length == length) {
+            return array;
+        }
+        return Arrays.copyOf(array, length);
+    }
+
+    private static int[] trim(final int[] array, final int length) {
+        if (array.length == length) {
+            return array;
+        }
+        return Arrays.copyOf(array, length);
+    }
+
+    private static long[] trim(final long[] array, final int length) {
+        if (array.length == length) {
+            return array;
+        }
+        return Arrays.copyOf(array, length);
+    }
+
+    /**
+     * Sort runs of unsorted index file and merge runs of same headword.
+     */
+    private IndexTable mergeRuns() {
+        int[] order = sortRuns();
+        IndexTable.Builder builder = new IndexTable.Builder(runCount);
+        ordinalSlots = new int[entryCount];
+        int next = 0;
+        for (int i = 0; i < runCount; i++) {
+            int run = order[i];
+            if (i == 0 || compareRuns(order[i - 1], run) != 0) {
+                builder.addKey(Arrays.copyOfRange(keys, runKeyOffsets[run], runKeyOffsets[run + 1]));
+            }
+            for (int slot = runStarts[run]; slot < runStarts[run + 1]; slot++) {
+                ordinalSlots[slot] = next++;
+                builder.addEntry(starts[slot], lengths[slot],
+                        StarDictDictionary.EntryType.getTypeByValue((char) types[slot]));
+            }
+        }
+        return builder.build();
+    }
+
+    private int compareRuns(final int a, final int b) {
+        return StarDictCollation.compare(keys, runKeyOffsets[a], runKeyOffsets[a + 1] - runKeyOffsets[a], keys,
+                runKeyOffsets[b], runKeyOffsets[b + 1] - runKeyOffsets[b]);
+    }
+
+    /**
+     * Stable bottom up merge sort of run numbers by key, so runs of the same
+     * headword stay in .idx order. Pairs already in order are copied without
+     * merging, which is most of them in a nearly sorted file.
+     * @return run numbers in key order.
+     */
+    private int[] sortRuns() {
+        int[] order = new int[runCount];
+        for (int i = 0; i < runCount; i++) {
+            order[i] = i;
+        }
+        int[] merged = new int[runCount];
+        for (long width = 1; width < runCount; width *= 2) {
+            for (long low = 0; low < runCount; low += 2 * width) {
+                int lo = (int) low;
+                int mid = (int) Math.min(low + width, runCount);
+                int hi = (int) Math.min(low + 2 * width, runCount);
+                if (mid == hi || compareRuns(order[mid - 1], order[mid]) <= 0) {
+                    System.arraycopy(order, lo, merged, lo, hi - lo);
+                    continue;
+                }
+                int i = lo;
+                int j = mid;
+                for (int k = lo; k < hi; k++) {
+                    if (j == hi || (i < mid && compareRuns(order[i], order[j]) <= 0)) {
+                        merged[k] = order[i++];
+                    } else {
+                        merged[k] = order[j++];
+                    }
+                }
+            }
+            int[] swap = order;
+            order = merged;
+            merged = swap;
+        }
+        return order;
+    }
+
+    /**
+     * Resolve synonyms: each synonym word gets the entry of its .idx
+     * ordinal, marked with the headword of that entry. Synonym words which
+     * are not headwords are merged into the table as new headwords.
+     */
+    private IndexTable resolveSynonyms(final IndexTable table) {
+        int[] order = synonyms.order(entryCount);
+        if (order.length == 0) {
+            return table;
+        }
+        int size = table.size();
+        int[] owners = new int[entryCount];
+        for (int k = 0; k < size; k++) {
+            Arrays.fill(owners, table.getValueStart(k), table.getValueStart(k + 1), k);
+        }
+        IndexTable.Builder builder = new IndexTable.Builder(size + order.length);
+        int[] newKeys = new int[size];
+        int k = 0;
+        int s = 0;
+        while (s < order.length) {
+            byte[] word = synonyms.key(order[s]);
+            // headwords before the synonym word are copied as they are
+            int end = table.position(word);
+            copyHeadwords(table, k, end, builder, newKeys);
+            k = end;
+            int own = -1;
+            if (k < size && Arrays.equals(table.getKeyBytes(k), word)) {
+                own = k;
+                copyHeadwords(table, k, k + 1, builder, newKeys);
+                k++;
             } else {
-                stored = new Object[] {stored, entry};
+                builder.addKey(word);
+            }
+            int last = -1;
+            for (; s < order.length && synonyms.compare(order[s], word) == 0; s++) {
+                int ordinal = synonyms.indexes[order[s]];
+                int slot = ordinal;
+                if (ordinalSlots != null) {
+                    slot = ordinalSlots[ordinal];
+                }
+                // a synonym of its own headword, or repeated, adds nothing
+                if (slot != last && owners[slot] != own) {
+                    builder.addSynonymEntry(table, slot, owners[slot]);
+                    last = slot;
+                }
             }
-            mapPatriciaTrie.put(key, stored);
         }
+        copyHeadwords(table, k, size, builder, newKeys);
+        builder.mapSynonymHeadwords(newKeys);
+        return builder.build();
     }
 
-    public void addSynonym(final String key, final int index) {
-        String ref = keys.get(index);
-        Object stored = mapPatriciaTrie.get(key);
-        IndexEntry entry;
-        if (stored instanceof Object[]) {
-            entry = (IndexEntry) ((Object[]) stored)[0];
-        } else {
-            entry = (IndexEntry) stored;
+    private static void copyHeadwords(final IndexTable table, final int from, final int to,
+                                      final IndexTable.Builder builder, final int[] newKeys) {
+        int base = builder.size() - from;
+        for (int k = from; k < to; k++) {
+            newKeys[k] = base + k;
         }
-        add(ref, entry);
+        builder.addHeadwords(table, from, to);
     }
 
     /**
-     * Return the given array with the given value appended to it.
-     *
-     * @param array
-     * @param value
-     * @return
+     * Synonym words of .syn file with ordinals of their .idx entries.
      */
-    Object[] extendArray(final Object[] array, final Object value) {
-        Object[] newArray = new Object[array.length + 1];
-        System.arraycopy(array, 0, newArray, 0, array.length);
-        newArray[newArray.length - 1] = value;
-        return newArray;
+    static final class Synonyms {
+        private byte[] keys = new byte[0];
+        private int keyBytes = 0;
+        private int[] keyOffsets = new int[1];
+        private int[] indexes = new int[0];
+        private int count = 0;
+
+        /**
+         * Add a synonym entry whose word is a slice of a buffer.
+         *
+         * @param buf buffer holding UTF-8 bytes of synonym.
+         * @param off offset of synonym in buffer.
+         * @param keyLen byte length of synonym.
+         * @param index ordinal of the entry in .idx file.
+         */
+        void add(final byte[] buf, final int off, final int keyLen, final int index) {
+            if (count + 1 >= keyOffsets.length) {
+                int size = IndexTable.grow(keyOffsets.length, count + 2);
+                keyOffsets = Arrays.copyOf(keyOffsets, size);
+                indexes = Arrays.copyOf(indexes, size);
+            }
+            if (keyBytes + keyLen > keys.length) {
+                keys = Arrays.copyOf(keys, IndexTable.grow(keys.length, keyBytes + keyLen));
+            }
+            System.arraycopy(buf, off, keys, keyBytes, keyLen);
+            keyOffsets[count] = keyBytes;
+            indexes[count] = index;
+            keyBytes += keyLen;
+            count++;
+            keyOffsets[count] = keyBytes;
+        }
+
+        /**
+         * Synonyms with ordinals below entry count, in StarDict order of
+         * their words, then in .syn order.
+         * @param entryCount number of .idx entries.
+         * @return synonym numbers.
+         */
+        int[] order(final int entryCount) {
+            int[] result = new int[count];
+            int n = 0;
+            boolean ordered = true;
+            for (int i = 0; i < count; i++) {
+                if (indexes[i] < 0 || indexes[i] >= entryCount) {
+                    continue;
+                }
+                if (n > 0 && compare(result[n - 1], i) > 0) {
+                    ordered = false;
+                }
+                result[n++] = i;
+            }
+            result = Arrays.copyOf(result, n);
+            if (!ordered) {
+                // .syn files are sorted, so this is rare
+                Integer[] boxed = new Integer[n];
+                for (int i = 0; i < n; i++) {
+                    boxed[i] = result[i];
+                }
+                Arrays.sort(boxed, this::compare);
+                for (int i = 0; i < n; i++) {
+                    result[i] = boxed[i];
+                }
+            }
+            return result;
+        }
+
+        private int compare(final int a, final int b) {
+            return StarDictCollation.compare(keys, keyOffsets[a], keyOffsets[a + 1] - keyOffsets[a], keys,
+                    keyOffsets[b], keyOffsets[b + 1] - keyOffsets[b]);
+        }
+
+        /**
+         * Compare word of a synonym with a key in StarDict order.
+         * @param i synonym number.
+         * @param key UTF-8 key.
+         * @return negative, zero or positive as the word is less than, equal to or greater than key.
+         */
+        int compare(final int i, final byte[] key) {
+            return StarDictCollation.compare(keys, keyOffsets[i], keyOffsets[i + 1] - keyOffsets[i], key);
+        }
+
+        /**
+         * Word of a synonym.
+         * @param i synonym number.
+         * @return UTF-8 bytes.
+         */
+        byte[] key(final int i) {
+            return Arrays.copyOfRange(keys, keyOffsets[i], keyOffsets[i + 1]);
+        }
     }
 }
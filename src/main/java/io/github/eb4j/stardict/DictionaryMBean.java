@@ -0,0 +1,189 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * MXBean of a dictionary, reading article cache statistics of the
+ * dictionary and counters of its {@link DictionaryMetrics}.
+ */
+final class DictionaryMBean implements StarDictDictionaryMXBean {
+
+    private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+    private final StarDictDictionary dictionary;
+    private final DictionaryMetrics metrics;
+
+    private DictionaryMBean(final StarDictDictionary dictionary, final DictionaryMetrics metrics) {
+        this.dictionary = dictionary;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Register MXBean of a dictionary on the platform MBean server.
+     * @param dictionary dictionary.
+     * @param metrics metrics of the dictionary.
+     * @return registered name.
+     * @throws JMException when registration failed.
+     */
+    static ObjectName register(final StarDictDictionary dictionary, final DictionaryMetrics metrics)
+            throws JMException {
+        // same dictionary may be loaded more than once
+        ObjectName name = new ObjectName("io.github.eb4j.stardict:type=StarDictDictionary,name="
+                + ObjectName.quote(String.valueOf(dictionary.getDictionaryName())) + ",id="
+                + SEQUENCE.incrementAndGet());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(new StandardMBean(new DictionaryMBean(dictionary, metrics),
+                StarDictDictionaryMXBean.class, true), name);
+        return name;
+    }
+
+    /**
+     * Unregister MXBean.
+     * @param name registered name.
+     */
+    static void unregister(final ObjectName name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException ignored) {
+            // already unregistered
+        }
+    }
+
+    @Override
+    public String getDictionaryName() {
+        return dictionary.getDictionaryName();
+    }
+
+    @Override
+    public long getArticleCacheSize() {
+        return dictionary.getCacheSize();
+    }
+
+    @Override
+    public long getArticleCacheHitCount() {
+        return dictionary.getCacheHitCount();
+    }
+
+    @Override
+    public long getArticleCacheMissCount() {
+        return dictionary.getCacheMissCount();
+    }
+
+    @Override
+    public double getArticleCacheHitRate() {
+        long hits = dictionary.getCacheHitCount();
+        long total = hits + dictionary.getCacheMissCount();
+        if (total == 0) {
+            return 1.0;
+        }
+        return (double) hits / total;
+    }
+
+    @Override
+    public long getArticleCacheEvictionCount() {
+        return dictionary.getCacheEvictionCount();
+    }
+
+    @Override
+    public long getFoldedIndexBytes() {
+        return dictionary.getFoldedIndexBytes();
+    }
+
+    @Override
+    public long getExactLookupCount() {
+        return metrics.getLookupCount(MetricsListener.LookupType.EXACT);
+    }
+
+    @Override
+    public long getExactLookupHitCount() {
+        return metrics.getLookupHitCount(MetricsListener.LookupType.EXACT);
+    }
+
+    @Override
+    public double getExactLookupMeanNanos() {
+        return metrics.getLookupMeanNanos(MetricsListener.LookupType.EXACT);
+    }
+
+    @Override
+    public long getExactLookupP99Nanos() {
+        return metrics.getLookupPercentileNanos(MetricsListener.LookupType.EXACT, 99);
+    }
+
+    @Override
+    public long getPredictiveLookupCount() {
+        return metrics.getLookupCount(MetricsListener.LookupType.PREDICTIVE);
+    }
+
+    @Override
+    public long getPredictiveLookupHitCount() {
+        return metrics.getLookupHitCount(MetricsListener.LookupType.PREDICTIVE);
+    }
+
+    @Override
+    public double getPredictiveLookupMeanNanos() {
+        return metrics.getLookupMeanNanos(MetricsListener.LookupType.PREDICTIVE);
+    }
+
+    @Override
+    public long getPredictiveLookupP99Nanos() {
+        return metrics.getLookupPercentileNanos(MetricsListener.LookupType.PREDICTIVE, 99);
+    }
+
+    @Override
+    public long getReadCount() {
+        return metrics.getReadCount();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return metrics.getBytesRead();
+    }
+
+    @Override
+    public double getReadMeanNanos() {
+        return metrics.getReadMeanNanos();
+    }
+
+    @Override
+    public long getReadP99Nanos() {
+        return metrics.getReadPercentileNanos(99);
+    }
+
+    @Override
+    public long getChunksInflated() {
+        return metrics.getChunksInflated();
+    }
+
+    @Override
+    public long getBytesInflated() {
+        return metrics.getBytesInflated();
+    }
+
+    @Override
+    public long getLoadNanos() {
+        return metrics.getLoadPhaseNanos(MetricsListener.LoadPhase.TOTAL);
+    }
+}
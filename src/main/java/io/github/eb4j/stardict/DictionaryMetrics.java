@@ -0,0 +1,197 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics listener keeping counters and latency histograms.
+ * <p>
+ * Recording is lock free and does not allocate. Latency percentiles are
+ * upper bounds of power of two buckets. One object may be shared by
+ * dictionaries to get totals over them.
+ */
+public final class DictionaryMetrics implements MetricsListener {
+
+    private final LatencyHistogram exactLookups = new LatencyHistogram();
+    private final LatencyHistogram predictiveLookups = new LatencyHistogram();
+    private final LongAdder exactHits = new LongAdder();
+    private final LongAdder predictiveHits = new LongAdder();
+    private final LatencyHistogram reads = new LatencyHistogram();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LatencyHistogram chunkInflates = new LatencyHistogram();
+    private final LongAdder bytesInflated = new LongAdder();
+    private final Map<LoadPhase, LongAdder> loadPhases = new EnumMap<>(LoadPhase.class);
+
+    /**
+     * Create empty metrics.
+     */
+    public DictionaryMetrics() {
+        for (LoadPhase phase : LoadPhase.values()) {
+            loadPhases.put(phase, new LongAdder());
+        }
+    }
+
+    @Override
+    public void onLookup(final LookupType type, final boolean hit, final long nanos) {
+        if (type == LookupType.EXACT) {
+            exactLookups.record(nanos);
+            if (hit) {
+                exactHits.increment();
+            }
+        } else {
+            predictiveLookups.record(nanos);
+            if (hit) {
+                predictiveHits.increment();
+            }
+        }
+    }
+
+    @Override
+    public void onRead(final int bytes, final long nanos) {
+        reads.record(nanos);
+        bytesRead.add(bytes);
+    }
+
+    @Override
+    public void onChunkInflate(final int bytes, final long nanos) {
+        chunkInflates.record(nanos);
+        bytesInflated.add(bytes);
+    }
+
+    @Override
+    public void onLoadPhase(final LoadPhase phase, final long nanos) {
+        loadPhases.get(phase).add(nanos);
+    }
+
+    private LatencyHistogram lookups(final LookupType type) {
+        if (type == LookupType.EXACT) {
+            return exactLookups;
+        }
+        return predictiveLookups;
+    }
+
+    /**
+     * Number of lookups.
+     * @param type kind of lookup.
+     * @return count.
+     */
+    public long getLookupCount(final LookupType type) {
+        return lookups(type).getCount();
+    }
+
+    /**
+     * Number of lookups finding any entry.
+     * @param type kind of lookup.
+     * @return count.
+     */
+    public long getLookupHitCount(final LookupType type) {
+        if (type == LookupType.EXACT) {
+            return exactHits.sum();
+        }
+        return predictiveHits.sum();
+    }
+
+    /**
+     * Mean time of lookups.
+     * @param type kind of lookup.
+     * @return nanoseconds.
+     */
+    public double getLookupMeanNanos(final LookupType type) {
+        return lookups(type).getMean();
+    }
+
+    /**
+     * Percentile of time of lookups.
+     * @param type kind of lookup.
+     * @param percentile percentile between 0 and 100.
+     * @return nanoseconds, within a factor of two.
+     */
+    public long getLookupPercentileNanos(final LookupType type, final double percentile) {
+        return lookups(type).getPercentile(percentile);
+    }
+
+    /**
+     * Number of article reads from the data file.
+     * @return count.
+     */
+    public long getReadCount() {
+        return reads.getCount();
+    }
+
+    /**
+     * Bytes of articles read from the data file.
+     * @return byte count.
+     */
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * Mean time of article reads.
+     * @return nanoseconds.
+     */
+    public double getReadMeanNanos() {
+        return reads.getMean();
+    }
+
+    /**
+     * Percentile of time of article reads.
+     * @param percentile percentile between 0 and 100.
+     * @return nanoseconds, within a factor of two.
+     */
+    public long getReadPercentileNanos(final double percentile) {
+        return reads.getPercentile(percentile);
+    }
+
+    /**
+     * Number of inflated dictzip chunks.
+     * @return count.
+     */
+    public long getChunksInflated() {
+        return chunkInflates.getCount();
+    }
+
+    /**
+     * Bytes of inflated dictzip chunks.
+     * @return byte count.
+     */
+    public long getBytesInflated() {
+        return bytesInflated.sum();
+    }
+
+    /**
+     * Total time spent inflating dictzip chunks.
+     * @return nanoseconds.
+     */
+    public long getInflateNanos() {
+        return chunkInflates.getTotal();
+    }
+
+    /**
+     * Total time of a loading phase.
+     * @param phase phase of loading.
+     * @return nanoseconds.
+     */
+    public long getLoadPhaseNanos(final LoadPhase phase) {
+        return loadPhases.get(phase).sum();
+    }
+}
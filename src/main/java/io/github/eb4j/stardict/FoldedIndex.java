@@ -0,0 +1,220 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Index of folded headwords of an {@link IndexTable}.
+ * <p>
+ * Distinct folded keys are kept as UTF-8 bytes sorted by unsigned byte
+ * value, each with the range of headword indices of the table folding to
+ * it. Lookups fold the query the same way and return entries of the
+ * original headwords, so keys and entries are not copied.
+ */
+final class FoldedIndex {
+
+    private final IndexTable table;
+    private final KeyFolding folding;
+    private final int keyCount;
+    private final byte[] keys;
+    private final int[] keyOffsets;
+    private final int[] headwordStarts;
+    private final int[] headwords;
+
+    private FoldedIndex(final IndexTable table, final KeyFolding folding, final byte[] keys, final int[] keyOffsets,
+                        final int[] headwordStarts, final int[] headwords) {
+        this.table = table;
+        this.folding = folding;
+        this.keyCount = keyOffsets.length - 1;
+        this.keys = keys;
+        this.keyOffsets = keyOffsets;
+        this.headwordStarts = headwordStarts;
+        this.headwords = headwords;
+    }
+
+    /**
+     * Build folded index of a table.
+     * @param table sorted table.
+     * @param folding folding of keys, other than NONE.
+     * @return FoldedIndex object.
+     */
+    static FoldedIndex build(final IndexTable table, final KeyFolding folding) {
+        int size = table.size();
+        byte[][] folded = new byte[size][];
+        Integer[] order = new Integer[size];
+        for (int k = 0; k < size; k++) {
+            folded[k] = folding.fold(table.getKey(k)).getBytes(StandardCharsets.UTF_8);
+            order[k] = k;
+        }
+        // table is already in ASCII case insensitive order, so the stable merge sort mostly finds runs
+        Arrays.sort(order, (a, b) -> compare(folded[a], 0, folded[a].length, folded[b]));
+        int[] headwords = new int[size];
+        int[] keyOffsets = new int[size + 1];
+        int[] headwordStarts = new int[size + 1];
+        byte[] keys = new byte[Math.max(16, size * 8)];
+        int count = 0;
+        int keyBytes = 0;
+        byte[] last = null;
+        for (int i = 0; i < size; i++) {
+            int k = order[i];
+            headwords[i] = k;
+            if (last != null && Arrays.equals(last, folded[k])) {
+                continue;
+            }
+            last = folded[k];
+            if (keyBytes + last.length > keys.length) {
+                keys = Arrays.copyOf(keys, IndexTable.grow(keys.length, keyBytes + last.length));
+            }
+            System.arraycopy(last, 0, keys, keyBytes, last.length);
+            keyOffsets[count] = keyBytes;
+            headwordStarts[count] = i;
+            keyBytes += last.length;
+            count++;
+        }
+        keyOffsets[count] = keyBytes;
+        headwordStarts[count] = size;
+        return new FoldedIndex(table, folding, Arrays.copyOf(keys, keyBytes), Arrays.copyOf(keyOffsets, count + 1),
+                Arrays.copyOf(headwordStarts, count + 1), headwords);
+    }
+
+    /**
+     * Compare a slice of bytes with a key as unsigned bytes.
+     * @return negative, zero or positive as the slice is less, equal or greater.
+     */
+    static int compare(final byte[] array, final int offset, final int length, final byte[] key) {
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int a = array[offset + i] & 0xff;
+            int b = key[i] & 0xff;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * Folding of the index.
+     * @return folding.
+     */
+    KeyFolding getFolding() {
+        return folding;
+    }
+
+    /**
+     * Number of distinct folded keys.
+     * @return key count.
+     */
+    int size() {
+        return keyCount;
+    }
+
+    /**
+     * Approximate heap bytes held by the index besides the table.
+     * @return byte count.
+     */
+    long memoryBytes() {
+        return keys.length + 4L * (keyOffsets.length + headwordStarts.length + headwords.length);
+    }
+
+    private int keyLength(final int i) {
+        return keyOffsets[i + 1] - keyOffsets[i];
+    }
+
+    /**
+     * First folded key not less than the key.
+     */
+    private int lowerBound(final byte[] key) {
+        int low = 0;
+        int high = keyCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(keys, keyOffsets[mid], keyLength(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private boolean startsWith(final int i, final byte[] prefix) {
+        return keyLength(i) >= prefix.length && compare(keys, keyOffsets[i], prefix.length, prefix) == 0;
+    }
+
+    /**
+     * Add entries of headwords equal to the word under the folding.
+     * @param word word to look up.
+     * @param queryFolding folding of the query, not stronger than the index.
+     * @param into collection to add entries.
+     */
+    void lookUp(final String word, final KeyFolding queryFolding,
+                final Collection<Map.Entry<String, IndexEntry>> into) {
+        byte[] key = folding.fold(word).getBytes(StandardCharsets.UTF_8);
+        int i = lowerBound(key);
+        if (i < keyCount && keyLength(i) == key.length && startsWith(i, key)) {
+            String query = queryFolding.fold(word);
+            collect(i, query, false, queryFolding, into);
+        }
+    }
+
+    /**
+     * Add entries of headwords starting with the word under the folding, in
+     * order of folded keys.
+     * @param word prefix to look up.
+     * @param queryFolding folding of the query, not stronger than the index.
+     * @param limit stop before a folded key when collection has this many entries.
+     * @param into collection to add entries.
+     */
+    void lookUpPredictive(final String word, final KeyFolding queryFolding, final int limit,
+                          final Collection<Map.Entry<String, IndexEntry>> into) {
+        byte[] prefix = folding.fold(word).getBytes(StandardCharsets.UTF_8);
+        String query = queryFolding.fold(word);
+        for (int i = lowerBound(prefix); i < keyCount && startsWith(i, prefix); i++) {
+            if (into.size() >= limit) {
+                return;
+            }
+            collect(i, query, true, queryFolding, into);
+        }
+    }
+
+    private void collect(final int i, final String query, final boolean prefix, final KeyFolding queryFolding,
+                         final Collection<Map.Entry<String, IndexEntry>> into) {
+        for (int h = headwordStarts[i]; h < headwordStarts[i + 1]; h++) {
+            int k = headwords[h];
+            String headword = table.getKey(k);
+            if (queryFolding != folding && !matches(queryFolding.fold(headword), query, prefix)) {
+                // folded alike by the index, but not by the weaker folding of the query
+                continue;
+            }
+            table.collect(k, headword, into);
+        }
+    }
+
+    private static boolean matches(final String headword, final String query, final boolean prefix) {
+        if (prefix) {
+            return headword.startsWith(query);
+        }
+        return headword.equals(query);
+    }
+}
@@ -0,0 +1,628 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Inverted index of article text, kept in a sidecar file.
+ * <p>
+ * Documents are distinct text articles in order of their offsets in the
+ * .dict file, each with the headword and entry slot of the {@link IndexTable}
+ * it is reported with. Terms are those of {@link ArticleTokenizer}, sorted
+ * by UTF-8 bytes, each with the ascending numbers of documents holding it,
+ * stored as deltas in variable length bytes. The index is built by reading
+ * the .dict file in segments of consecutive articles, tokenized in parallel,
+ * and is rebuilt only when sizes or modification times of the dictionary
+ * files change. A valid file is memory mapped. Layout, all values big endian:
+ * <pre>
+ *   long   magic "S4JFTS" + 2 bytes of zero
+ *   int    format version
+ *   int    headword count K and int entry count E of the table
+ *   int    document count D
+ *   int    term count T
+ *   int    term bytes B
+ *   int    posting bytes P
+ *   long   size, long mtime of .ifo, .idx, .syn and .dict (-1 when absent)
+ *   int[D] headwords of documents
+ *   int[D] entry slots of documents
+ *   int[T+1] term offsets
+ *   int[T+1] posting offsets
+ *   byte[B] UTF-8 terms
+ *   byte[P] postings
+ * </pre>
+ */
+final class FullTextIndex {
+
+    /** Suffix of full-text index file name. */
+    static final String SUFFIX = ".fts.s4j";
+    /** Bytes of .dict read and tokenized by one task, unless a single article is larger. */
+    static final int SEGMENT_SIZE = 1 << 20;
+    private static final long MAGIC = 0x53344A4654530000L;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8 + 4 * 7 + 4 * 16;
+
+    private final int keyCount;
+    private final int entryCount;
+    private final int docCount;
+    private final int termCount;
+    private final IntBuffer headwords;
+    private final IntBuffer slots;
+    private final IntBuffer termOffsets;
+    private final IntBuffer postingOffsets;
+    private final ByteBuffer terms;
+    private final ByteBuffer postings;
+
+    private FullTextIndex(final int keyCount, final int entryCount, final IntBuffer headwords, final IntBuffer slots,
+                          final IntBuffer termOffsets, final IntBuffer postingOffsets, final ByteBuffer terms,
+                          final ByteBuffer postings) {
+        this.keyCount = keyCount;
+        this.entryCount = entryCount;
+        this.docCount = headwords.limit();
+        this.termCount = termOffsets.limit() - 1;
+        this.headwords = headwords;
+        this.slots = slots;
+        this.termOffsets = termOffsets;
+        this.postingOffsets = postingOffsets;
+        this.terms = terms;
+        this.postings = postings;
+    }
+
+    /**
+     * Reader of a range of the .dict file.
+     */
+    @FunctionalInterface
+    interface RangeReader {
+        /**
+         * Read bytes.
+         * @param start start offset.
+         * @param length length of range.
+         * @return bytes, shorter than length at end of file, or null when read failed.
+         */
+        byte[] read(long start, int length);
+    }
+
+    /**
+     * Read index file when it is valid for the table and source files,
+     * otherwise build it and write the file for next loads.
+     * @param file index file.
+     * @param table index table of the dictionary.
+     * @param reader reader of the .dict file.
+     * @param sources .ifo, .idx, .syn and .dict files, null when absent.
+     * @return FullTextIndex object, memory mapped unless the file could not be written.
+     * @throws IOException when articles could not be read.
+     */
+    static FullTextIndex load(final File file, final IndexTable table, final RangeReader reader,
+                              final File... sources) throws IOException {
+        FullTextIndex index = read(file, table, sources);
+        if (index != null) {
+            return index;
+        }
+        index = build(table, reader);
+        try {
+            index.write(file, sources);
+        } catch (IOException ignored) {
+            // file is optional, e.g. directory may be read only
+            return index;
+        }
+        FullTextIndex mapped = read(file, table, sources);
+        if (mapped == null) {
+            return index;
+        }
+        return mapped;
+    }
+
+    /**
+     * Read index file when it is valid for the table and source files.
+     * @param file index file.
+     * @param table index table of the dictionary.
+     * @param sources .ifo, .idx, .syn and .dict files, null when absent.
+     * @return FullTextIndex object, or null when the file is missing, stale or broken.
+     */
+    static FullTextIndex read(final File file, final IndexTable table, final File... sources) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    return null;
+                }
+            }
+            header.flip();
+            if (header.getLong() != MAGIC || header.getInt() != VERSION) {
+                return null;
+            }
+            if (header.getInt() != table.size() || header.getInt() != table.entryCount()) {
+                return null;
+            }
+            int docs = header.getInt();
+            int termTotal = header.getInt();
+            int termBytes = header.getInt();
+            int postingBytes = header.getInt();
+            for (long stamp : IndexCacheFile.stamps(sources)) {
+                if (header.getLong() != stamp) {
+                    return null;
+                }
+            }
+            long expected = HEADER_SIZE + 8L * docs + 8L * (termTotal + 1) + termBytes + (long) postingBytes;
+            if (docs < 0 || termTotal < 0 || termBytes < 0 || postingBytes < 0 || channel.size() != expected) {
+                return null;
+            }
+            long position = HEADER_SIZE;
+            IntBuffer headwords = map(channel, position, 4L * docs).asIntBuffer();
+            position += 4L * docs;
+            IntBuffer slots = map(channel, position, 4L * docs).asIntBuffer();
+            position += 4L * docs;
+            IntBuffer termOffsets = map(channel, position, 4L * (termTotal + 1)).asIntBuffer();
+            position += 4L * (termTotal + 1);
+            IntBuffer postingOffsets = map(channel, position, 4L * (termTotal + 1)).asIntBuffer();
+            position += 4L * (termTotal + 1);
+            ByteBuffer terms = map(channel, position, termBytes);
+            position += termBytes;
+            ByteBuffer postings = map(channel, position, postingBytes);
+            return new FullTextIndex(table.size(), table.entryCount(), headwords, slots, termOffsets, postingOffsets,
+                    terms, postings);
+        } catch (IOException | IllegalArgumentException ignored) {
+            return null;
+        }
+    }
+
+    private static ByteBuffer map(final FileChannel channel, final long position, final long size)
+            throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Section too large to map");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
+
+    /**
+     * Build index on the heap.
+     * @param table index table of the dictionary.
+     * @param reader reader of the .dict file.
+     * @return FullTextIndex object.
+     * @throws IOException when articles could not be read.
+     */
+    static FullTextIndex build(final IndexTable table, final RangeReader reader) throws IOException {
+        int entries = table.entryCount();
+        LongBuffer starts = table.getStarts();
+        IntBuffer lengths = table.getLengths();
+        ByteBuffer types = table.getTypes();
+        int[] owners = new int[entries];
+        for (int k = 0; k < table.size(); k++) {
+            Arrays.fill(owners, table.getValueStart(k), table.getValueStart(k + 1), k);
+        }
+        Integer[] order = new Integer[entries];
+        int textCount = 0;
+        for (int slot = 0; slot < entries; slot++) {
+            if (ArticleTokenizer.isText(StarDictDictionary.EntryType.getTypeByValue((char) types.get(slot)))) {
+                order[textCount++] = slot;
+            }
+        }
+        // stable, so each article is reported with its first own headword in index order
+        Arrays.sort(order, 0, textCount, Comparator.comparingLong((Integer s) -> starts.get(s))
+                .thenComparingInt(s -> lengths.get(s)).thenComparingInt(s -> types.get(s))
+                .thenComparing(s -> table.getCanonical(s) >= 0));
+        int[] docSlots = new int[textCount];
+        int docs = 0;
+        for (int i = 0; i < textCount; i++) {
+            int slot = order[i];
+            if (docs > 0) {
+                int last = docSlots[docs - 1];
+                if (starts.get(last) == starts.get(slot) && lengths.get(last) == lengths.get(slot)
+                        && types.get(last) == types.get(slot)) {
+                    // same article under another headword or synonym
+                    continue;
+                }
+            }
+            docSlots[docs++] = slot;
+        }
+        int[] docHeadwords = new int[docs];
+        for (int d = 0; d < docs; d++) {
+            docHeadwords[d] = owners[docSlots[d]];
+        }
+        int[] segments = segment(docSlots, docs, starts, lengths);
+        List<Map<String, Postings>> parts;
+        try {
+            parts = IntStream.range(0, segments.length - 1).parallel()
+                    .mapToObj(i -> tokenize(table, reader, docSlots, segments[i], segments[i + 1]))
+                    .collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        // segments are in document order, so merged postings are ascending
+        Map<String, Postings> merged = new HashMap<>();
+        for (Map<String, Postings> part : parts) {
+            for (Map.Entry<String, Postings> e : part.entrySet()) {
+                Postings postings = merged.get(e.getKey());
+                if (postings == null) {
+                    merged.put(e.getKey(), e.getValue());
+                } else {
+                    postings.addAll(e.getValue());
+                }
+            }
+        }
+        parts.clear();
+        return encode(table, merged, docHeadwords, Arrays.copyOf(docSlots, docs));
+    }
+
+    /**
+     * Split documents into segments of consecutive articles.
+     * @return first document of each segment, and document count.
+     */
+    private static int[] segment(final int[] docSlots, final int docs, final LongBuffer starts,
+                                 final IntBuffer lengths) {
+        int[] result = new int[16];
+        int count = 0;
+        long segmentStart = 0;
+        for (int d = 0; d < docs; d++) {
+            long end = starts.get(docSlots[d]) + lengths.get(docSlots[d]);
+            if (count == 0 || end - segmentStart > SEGMENT_SIZE) {
+                if (count + 1 == result.length) {
+                    result = Arrays.copyOf(result, result.length * 2);
+                }
+                result[count++] = d;
+                segmentStart = starts.get(docSlots[d]);
+            }
+        }
+        result[count++] = docs;
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Read a segment with one read and collect terms of its documents.
+     */
+    private static Map<String, Postings> tokenize(final IndexTable table, final RangeReader reader,
+                                                  final int[] docSlots, final int from, final int to) {
+        long start = Long.MAX_VALUE;
+        long end = 0;
+        for (int d = from; d < to; d++) {
+            IndexEntry entry = table.getEntry(docSlots[d]);
+            start = Math.min(start, entry.getStart());
+            end = Math.max(end, entry.getStart() + entry.getLen());
+        }
+        Map<String, Postings> result = new HashMap<>();
+        if (from == to) {
+            return result;
+        }
+        if (end - start > Integer.MAX_VALUE) {
+            throw new UncheckedIOException(new IOException("Articles too large at " + start));
+        }
+        byte[] bytes = reader.read(start, (int) (end - start));
+        if (bytes == null) {
+            throw new UncheckedIOException(new IOException("Cannot read articles at " + start));
+        }
+        for (int d = from; d < to; d++) {
+            IndexEntry entry = table.getEntry(docSlots[d]);
+            int offset = (int) (entry.getStart() - start);
+            int length = Math.min(entry.getLen(), bytes.length - offset);
+            if (length <= 0) {
+                continue;
+            }
+            String text = ArticleTokenizer.plainText(new String(bytes, offset, length, StandardCharsets.UTF_8),
+                    entry.getType());
+            int doc = d;
+            ArticleTokenizer.tokenize(text, term -> result.computeIfAbsent(term, t -> new Postings()).add(doc));
+        }
+        return result;
+    }
+
+    private static FullTextIndex encode(final IndexTable table, final Map<String, Postings> merged,
+                                        final int[] docHeadwords, final int[] docSlots) {
+        int count = merged.size();
+        String[] words = merged.keySet().toArray(new String[0]);
+        byte[][] keys = new byte[count][];
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = words[i].getBytes(StandardCharsets.UTF_8);
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> FoldedIndex.compare(keys[a], 0, keys[a].length, keys[b]));
+        int[] termOffsets = new int[count + 1];
+        int[] postingOffsets = new int[count + 1];
+        byte[] termBytes = new byte[Math.max(16, count * 8)];
+        byte[] postingBytes = new byte[Math.max(16, count * 4)];
+        int termLength = 0;
+        int postingLength = 0;
+        for (int i = 0; i < count; i++) {
+            byte[] key = keys[order[i]];
+            if (termLength + key.length > termBytes.length) {
+                termBytes = Arrays.copyOf(termBytes, IndexTable.grow(termBytes.length, termLength + key.length));
+            }
+            System.arraycopy(key, 0, termBytes, termLength, key.length);
+            termOffsets[i] = termLength;
+            termLength += key.length;
+            Postings postings = merged.get(words[order[i]]);
+            postingOffsets[i] = postingLength;
+            int previous = 0;
+            for (int j = 0; j < postings.size; j++) {
+                if (postingLength + 5 > postingBytes.length) {
+                    postingBytes = Arrays.copyOf(postingBytes, IndexTable.grow(postingBytes.length,
+                            postingLength + 5));
+                }
+                postingLength = writeVarInt(postingBytes, postingLength, postings.docs[j] - previous);
+                previous = postings.docs[j];
+            }
+        }
+        termOffsets[count] = termLength;
+        postingOffsets[count] = postingLength;
+        return new FullTextIndex(table.size(), table.entryCount(), IntBuffer.wrap(docHeadwords),
+                IntBuffer.wrap(docSlots), IntBuffer.wrap(termOffsets), IntBuffer.wrap(postingOffsets),
+                ByteBuffer.wrap(termBytes, 0, termLength).slice(),
+                ByteBuffer.wrap(postingBytes, 0, postingLength).slice());
+    }
+
+    private static int writeVarInt(final byte[] bytes, final int offset, final int value) {
+        int position = offset;
+        int rest = value;
+        while ((rest & ~0x7f) != 0) {
+            bytes[position++] = (byte) ((rest & 0x7f) | 0x80);
+            rest >>>= 7;
+        }
+        bytes[position++] = (byte) rest;
+        return position;
+    }
+
+    /**
+     * Write index file.
+     * <p>
+     * The file is written to a temporary file then renamed, so concurrent
+     * readers never see a partial file.
+     * @param file index file.
+     * @param sources .ifo, .idx, .syn and .dict files, null when absent.
+     * @throws IOException when file cannot be written.
+     */
+    void write(final File file, final File... sources) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temp.toPath()), 65536))) {
+                out.writeLong(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(keyCount);
+                out.writeInt(entryCount);
+                out.writeInt(docCount);
+                out.writeInt(termCount);
+                out.writeInt(terms.limit());
+                out.writeInt(postings.limit());
+                for (long stamp : IndexCacheFile.stamps(sources)) {
+                    out.writeLong(stamp);
+                }
+                for (IntBuffer column : new IntBuffer[] {headwords, slots, termOffsets, postingOffsets}) {
+                    for (int i = 0; i < column.limit(); i++) {
+                        out.writeInt(column.get(i));
+                    }
+                }
+                for (ByteBuffer column : new ByteBuffer[] {terms, postings}) {
+                    ByteBuffer source = column.duplicate();
+                    byte[] buf = new byte[8192];
+                    while (source.hasRemaining()) {
+                        int n = Math.min(buf.length, source.remaining());
+                        source.get(buf, 0, n);
+                        out.write(buf, 0, n);
+                    }
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+
+    /**
+     * Number of documents.
+     * @return document count.
+     */
+    int size() {
+        return docCount;
+    }
+
+    /**
+     * Number of distinct terms.
+     * @return term count.
+     */
+    int termCount() {
+        return termCount;
+    }
+
+    /**
+     * Term number of a folded term.
+     * @return term number, or -1 when absent.
+     */
+    private int findTerm(final byte[] key) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareTerm(mid, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareTerm(final int i, final byte[] key) {
+        int offset = termOffsets.get(i);
+        int length = termOffsets.get(i + 1) - offset;
+        int n = Math.min(length, key.length);
+        for (int j = 0; j < n; j++) {
+            int a = terms.get(offset + j) & 0xff;
+            int b = key[j] & 0xff;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * Documents holding a term.
+     * @param i term number.
+     * @return ascending document numbers.
+     */
+    private int[] postings(final int i) {
+        int position = postingOffsets.get(i);
+        int end = postingOffsets.get(i + 1);
+        int[] result = new int[16];
+        int count = 0;
+        int doc = 0;
+        while (position < end) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = postings.get(position++);
+                value |= (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+            doc += value;
+            if (count == result.length) {
+                result = Arrays.copyOf(result, result.length * 2);
+            }
+            result[count++] = doc;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Search documents holding terms of the queries.
+     * @param queries words or phrases, split into terms.
+     * @param all true when documents must hold all terms, false for any term.
+     * @return ascending document numbers.
+     */
+    int[] search(final Collection<String> queries, final boolean all) {
+        List<String> words = new ArrayList<>();
+        for (String query : queries) {
+            ArticleTokenizer.tokenize(query, words::add);
+        }
+        List<Integer> found = new ArrayList<>();
+        for (String word : words) {
+            int i = findTerm(word.getBytes(StandardCharsets.UTF_8));
+            if (i >= 0) {
+                found.add(i);
+            } else if (all) {
+                return new int[0];
+            }
+        }
+        if (found.isEmpty()) {
+            return new int[0];
+        }
+        if (!all) {
+            BitSet union = new BitSet(docCount);
+            for (int i : found) {
+                for (int doc : postings(i)) {
+                    union.set(doc);
+                }
+            }
+            return union.stream().toArray();
+        }
+        // shortest postings first, so intersections stay small
+        found.sort(Comparator.comparingInt(i -> postingOffsets.get(i + 1) - postingOffsets.get(i)));
+        int[] result = postings(found.get(0));
+        for (int j = 1; j < found.size() && result.length > 0; j++) {
+            result = intersect(result, postings(found.get(j)));
+        }
+        return result;
+    }
+
+    private static int[] intersect(final int[] a, final int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Add entry of a document to collection.
+     * @param doc document number.
+     * @param table index table the index was built for.
+     * @param into collection to add entry.
+     */
+    void collect(final int doc, final IndexTable table, final Collection<Map.Entry<String, IndexEntry>> into) {
+        into.add(table.entry(table.getKey(headwords.get(doc)), slots.get(doc)));
+    }
+
+    /**
+     * Ascending document numbers of a term, while building.
+     */
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private int size;
+
+        void add(final int doc) {
+            if (size > 0 && docs[size - 1] == doc) {
+                return;
+            }
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+            }
+            docs[size++] = doc;
+        }
+
+        void addAll(final Postings other) {
+            if (size + other.size > docs.length) {
+                docs = Arrays.copyOf(docs, IndexTable.grow(docs.length, size + other.size));
+            }
+            System.arraycopy(other.docs, 0, docs, size, other.size);
+            size += other.size;
+        }
+    }
+}
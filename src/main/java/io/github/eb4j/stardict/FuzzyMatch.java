@@ -0,0 +1,62 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Headword similar to a looked up word, with its edit distance.
+ */
+public final class FuzzyMatch {
+
+    private final String word;
+    private final int distance;
+    private final List<StarDictDictionary.Entry> entries;
+
+    FuzzyMatch(final String word, final int distance, final List<StarDictDictionary.Entry> entries) {
+        this.word = word;
+        this.distance = distance;
+        this.entries = Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * Headword.
+     * @return headword.
+     */
+    public String getWord() {
+        return word;
+    }
+
+    /**
+     * Levenshtein distance from the looked up word, in code points.
+     * @return edit distance.
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * Entries of the headword. Articles are read when first requested.
+     * @return unmodifiable list of entries.
+     */
+    public List<StarDictDictionary.Entry> getEntries() {
+        return entries;
+    }
+}
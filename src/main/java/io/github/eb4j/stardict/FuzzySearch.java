@@ -0,0 +1,283 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Bounded edit distance search over headwords of an {@link IndexTable}.
+ * <p>
+ * Sorted headwords are walked as an implicit trie: rows of the Levenshtein
+ * table are kept per code point of the current headword and reused for the
+ * prefix shared with the previous one. Rows are computed with ASCII case
+ * folded, as StarDict order folds case, so when no cell of a row is within
+ * the bound, no headword with that folded prefix can be, and the contiguous
+ * run of them is skipped by binary search. Distances of the remaining
+ * candidates are computed exactly, in code points. Once enough matches are
+ * found, the bound is tightened to the worst of them.
+ */
+final class FuzzySearch {
+
+    private final IndexTable table;
+    private final int[] folded;
+    private final int[] query;
+    private final int maxDistance;
+    private final int limit;
+    private final PriorityQueue<Match> best;
+    private int[][] rows;
+    private int[] byteEnds;
+
+    private FuzzySearch(final IndexTable table, final String word, final int maxDistance, final int limit) {
+        this.table = table;
+        this.query = word.codePoints().toArray();
+        this.folded = new int[query.length];
+        for (int i = 0; i < query.length; i++) {
+            folded[i] = fold(query[i]);
+        }
+        this.maxDistance = maxDistance;
+        this.limit = limit;
+        // worst match first
+        this.best = new PriorityQueue<>(Comparator.comparingInt((Match m) -> m.distance)
+                .thenComparingInt(m -> m.headword).reversed());
+        rows = new int[16][];
+        byteEnds = new int[16];
+        rows[0] = new int[query.length + 1];
+        for (int i = 0; i <= query.length; i++) {
+            rows[0][i] = i;
+        }
+    }
+
+    /**
+     * Find headwords within edit distance of the word.
+     * @param table sorted table.
+     * @param word word to look up.
+     * @param maxDistance maximum edit distance in code points.
+     * @param limit maximum number of headwords.
+     * @return matches, closest first, then in index order.
+     */
+    static List<Match> search(final IndexTable table, final String word, final int maxDistance, final int limit) {
+        FuzzySearch search = new FuzzySearch(table, word, maxDistance, limit);
+        search.run();
+        List<Match> result = new ArrayList<>(search.best);
+        result.sort(Comparator.comparingInt((Match m) -> m.distance).thenComparingInt(m -> m.headword));
+        for (Match match : result) {
+            table.collect(match.headword, match.word, match.entries);
+        }
+        return result;
+    }
+
+    private int bound() {
+        if (best.size() < limit) {
+            return maxDistance;
+        }
+        return best.peek().distance - 1;
+    }
+
+    private void run() {
+        int size = table.size();
+        byte[] previous = new byte[0];
+        int depth = 0;
+        int k = 0;
+        while (k < size && bound() >= 0) {
+            byte[] key = table.getKeyBytes(k);
+            int common = commonPrefix(previous, key);
+            while (byteEnds[depth] > common) {
+                depth--;
+            }
+            int bound = bound();
+            boolean pruned = false;
+            int offset = byteEnds[depth];
+            while (offset < key.length) {
+                int length = sequenceLength(key, offset);
+                int codePoint = fold(decode(key, offset, length));
+                if (depth + 1 == rows.length) {
+                    rows = Arrays.copyOf(rows, rows.length * 2);
+                    byteEnds = Arrays.copyOf(byteEnds, byteEnds.length * 2);
+                }
+                int min = nextRow(depth, codePoint);
+                depth++;
+                offset += length;
+                byteEnds[depth] = offset;
+                if (min > bound) {
+                    pruned = true;
+                    break;
+                }
+            }
+            previous = key;
+            if (pruned) {
+                k = table.skipFolded(k + 1, key, byteEnds[depth]);
+                continue;
+            }
+            if (rows[depth][folded.length] <= bound) {
+                String headword = table.getKey(k);
+                int distance = distance(query, headword.codePoints().toArray(), bound);
+                if (distance <= bound) {
+                    if (best.size() == limit) {
+                        best.poll();
+                    }
+                    best.add(new Match(k, headword, distance));
+                }
+            }
+            k++;
+        }
+    }
+
+    /**
+     * Compute row of depth + 1 from row of depth.
+     * @return minimum of the new row.
+     */
+    private int nextRow(final int depth, final int codePoint) {
+        int[] row = rows[depth];
+        int[] next = rows[depth + 1];
+        if (next == null) {
+            next = new int[folded.length + 1];
+            rows[depth + 1] = next;
+        }
+        next[0] = row[0] + 1;
+        int min = next[0];
+        for (int i = 1; i <= folded.length; i++) {
+            int cost = row[i - 1];
+            if (folded[i - 1] != codePoint) {
+                cost++;
+            }
+            cost = Math.min(cost, Math.min(row[i] + 1, next[i - 1] + 1));
+            next[i] = cost;
+            min = Math.min(min, cost);
+        }
+        return min;
+    }
+
+    /**
+     * Edit distance of code points, or bound + 1 when it is larger than bound.
+     */
+    static int distance(final int[] a, final int[] b, final int bound) {
+        if (Math.abs(a.length - b.length) > bound) {
+            return bound + 1;
+        }
+        int[] row = new int[b.length + 1];
+        int[] next = new int[b.length + 1];
+        for (int j = 0; j <= b.length; j++) {
+            row[j] = j;
+        }
+        for (int i = 1; i <= a.length; i++) {
+            next[0] = i;
+            int min = i;
+            for (int j = 1; j <= b.length; j++) {
+                int cost = row[j - 1];
+                if (a[i - 1] != b[j - 1]) {
+                    cost++;
+                }
+                next[j] = Math.min(cost, Math.min(row[j] + 1, next[j - 1] + 1));
+                min = Math.min(min, next[j]);
+            }
+            if (min > bound) {
+                return bound + 1;
+            }
+            int[] swap = row;
+            row = next;
+            next = swap;
+        }
+        return row[b.length];
+    }
+
+    private static int fold(final int codePoint) {
+        if (codePoint >= 'A' && codePoint <= 'Z') {
+            return codePoint + ('a' - 'A');
+        }
+        return codePoint;
+    }
+
+    private static int commonPrefix(final byte[] a, final byte[] b) {
+        int n = Math.min(a.length, b.length);
+        int i = 0;
+        while (i < n && a[i] == b[i]) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Length of UTF-8 sequence at offset; a malformed byte counts as one.
+     */
+    private static int sequenceLength(final byte[] bytes, final int offset) {
+        int b = bytes[offset] & 0xff;
+        int length = 1;
+        if (b >= 0xf0) {
+            length = 4;
+        } else if (b >= 0xe0) {
+            length = 3;
+        } else if (b >= 0xc0) {
+            length = 2;
+        }
+        if (offset + length > bytes.length) {
+            return 1;
+        }
+        for (int i = 1; i < length; i++) {
+            if ((bytes[offset + i] & 0xc0) != 0x80) {
+                return 1;
+            }
+        }
+        return length;
+    }
+
+    private static int decode(final byte[] bytes, final int offset, final int length) {
+        int b = bytes[offset] & 0xff;
+        if (length == 1) {
+            return b;
+        }
+        int codePoint = b & (0xff >> (length + 1));
+        for (int i = 1; i < length; i++) {
+            codePoint = (codePoint << 6) | (bytes[offset + i] & 0x3f);
+        }
+        return codePoint;
+    }
+
+    /**
+     * Headword found by fuzzy search.
+     */
+    static final class Match {
+        private final int headword;
+        private final String word;
+        private final int distance;
+        private final List<Map.Entry<String, IndexEntry>> entries = new ArrayList<>();
+
+        Match(final int headword, final String word, final int distance) {
+            this.headword = headword;
+            this.word = word;
+            this.distance = distance;
+        }
+
+        String getWord() {
+            return word;
+        }
+
+        int getDistance() {
+            return distance;
+        }
+
+        List<Map.Entry<String, IndexEntry>> getEntries() {
+            return entries;
+        }
+    }
+}
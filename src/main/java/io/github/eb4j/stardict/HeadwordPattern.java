@@ -0,0 +1,125 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Pattern;
+
+/**
+ * Compiled pattern of headwords, with the literal prefix every match starts with.
+ * <p>
+ * In wildcard patterns {@code *} matches any sequence and {@code ?} any one
+ * character; a backslash escapes the next character. The literal prefix
+ * narrows candidates to a contiguous range of the index, and only the rest
+ * is matched by the regular expression. A pattern whose rest is a single
+ * {@code *} is matched by the prefix alone.
+ */
+final class HeadwordPattern {
+
+    private final String prefix;
+    private final byte[] prefixBytes;
+    private final Pattern regex;
+
+    private HeadwordPattern(final String prefix, final Pattern regex) {
+        this.prefix = prefix;
+        this.prefixBytes = prefix.getBytes(StandardCharsets.UTF_8);
+        this.regex = regex;
+    }
+
+    /**
+     * Compile wildcard pattern.
+     * @param glob pattern with {@code *} and {@code ?}.
+     * @return compiled pattern.
+     */
+    static HeadwordPattern glob(final String glob) {
+        StringBuilder literal = new StringBuilder();
+        int i = 0;
+        while (i < glob.length()) {
+            char c = glob.charAt(i);
+            if (c == '*' || c == '?') {
+                break;
+            }
+            if (c == '\\' && i + 1 < glob.length()) {
+                i++;
+                c = glob.charAt(i);
+            }
+            literal.append(c);
+            i++;
+        }
+        String rest = glob.substring(i);
+        if ("*".equals(rest)) {
+            return new HeadwordPattern(literal.toString(), null);
+        }
+        StringBuilder regex = new StringBuilder(Pattern.quote(literal.toString()));
+        StringBuilder quoted = new StringBuilder();
+        for (int j = 0; j < rest.length(); j++) {
+            char c = rest.charAt(j);
+            if (c == '*' || c == '?') {
+                if (quoted.length() > 0) {
+                    regex.append(Pattern.quote(quoted.toString()));
+                    quoted.setLength(0);
+                }
+                if (c == '*') {
+                    regex.append(".*");
+                } else {
+                    regex.append('.');
+                }
+            } else {
+                if (c == '\\' && j + 1 < rest.length()) {
+                    j++;
+                    c = rest.charAt(j);
+                }
+                quoted.append(c);
+            }
+        }
+        if (quoted.length() > 0) {
+            regex.append(Pattern.quote(quoted.toString()));
+        }
+        return new HeadwordPattern(literal.toString(), Pattern.compile(regex.toString(), Pattern.DOTALL));
+    }
+
+    /**
+     * Wrap regular expression, matched against whole headwords without a literal prefix.
+     * @param regex regular expression.
+     * @return pattern.
+     */
+    static HeadwordPattern regex(final Pattern regex) {
+        return new HeadwordPattern("", regex);
+    }
+
+    /**
+     * UTF-8 literal prefix of all matches.
+     * @return prefix bytes.
+     */
+    byte[] getPrefixBytes() {
+        return prefixBytes;
+    }
+
+    /**
+     * Whether headword matches; it is known to start with the prefix ignoring ASCII case.
+     * @param headword headword.
+     * @return true when matched.
+     */
+    boolean matches(final String headword) {
+        if (!headword.startsWith(prefix)) {
+            return false;
+        }
+        return regex == null || regex.matcher(headword).matches();
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Precompiled index sidecar file.
+ * <p>
+ * The file holds an {@link IndexTable} together with sizes and modification
+ * times of the .ifo, .idx and .syn files it was built from. A valid file is
+ * memory mapped section by section, so loading it needs neither parsing nor
+ * building a trie. Layout, all values big endian:
+ * <pre>
+ *   long   magic "S4JIDX" + 2 bytes of zero
+ *   int    format version
+ *   int    headword count K
+ *   int    entry count E
+ *   int    headword bytes B
+ *   int    synonym entry count S
+ *   long   size, long mtime of .ifo, .idx and .syn (-1 when absent)
+ *   long[E] article offsets
+ *   int[E]  article lengths
+ *   int[K+1] headword offsets
+ *   int[K+1] first entry of headwords
+ *   byte[E] article types
+ *   byte[B] UTF-8 headwords
+ *   int[S] entry slots found through synonyms
+ *   int[S] headwords of their .idx entries
+ * </pre>
+ */
+final class IndexCacheFile {
+
+    /** Suffix of index cache file name. */
+    static final String SUFFIX = ".idx.s4j";
+    private static final long MAGIC = 0x53344A4944580000L;
+    private static final int VERSION = 2;
+    private static final int HEADER_SIZE = 8 + 4 * 5 + 3 * 16;
+
+    private IndexCacheFile() {
+    }
+
+    /**
+     * Sizes and modification times of source files, -1 for absent ones.
+     * @param sources source files, null when absent.
+     * @return size and mtime of each file.
+     * @throws IOException when file attributes cannot be read.
+     */
+    static long[] stamps(final File... sources) throws IOException {
+        long[] result = new long[sources.length * 2];
+        for (int i = 0; i < sources.length; i++) {
+            if (sources[i] == null) {
+                result[i * 2] = -1;
+                result[i * 2 + 1] = -1;
+            } else {
+                result[i * 2] = Files.size(sources[i].toPath());
+                result[i * 2 + 1] = Files.getLastModifiedTime(sources[i].toPath()).toMillis();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read index cache file when it is valid for source files.
+     * @param cacheFile index cache file.
+     * @param ifoFile .ifo file.
+     * @param idxFile .idx or .idx.gz file.
+     * @param synFile .syn file or null.
+     * @return IndexTable object, or null when cache is missing, stale or broken.
+     */
+    static IndexTable read(final File cacheFile, final File ifoFile, final File idxFile, final File synFile) {
+        if (!cacheFile.isFile()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(cacheFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining()) {
+                if (channel.read(header) < 0) {
+                    return null;
+                }
+            }
+            header.flip();
+            if (header.getLong() != MAGIC || header.getInt() != VERSION) {
+                return null;
+            }
+            int keyCount = header.getInt();
+            int entryCount = header.getInt();
+            int keyBytes = header.getInt();
+            int synonymCount = header.getInt();
+            for (long stamp : stamps(ifoFile, idxFile, synFile)) {
+                if (header.getLong() != stamp) {
+                    return null;
+                }
+            }
+            long expected = HEADER_SIZE + 13L * entryCount + 8L * (keyCount + 1) + keyBytes + 8L * synonymCount;
+            if (keyCount < 0 || entryCount < 0 || keyBytes < 0 || synonymCount < 0 || channel.size() != expected) {
+                return null;
+            }
+            long position = HEADER_SIZE;
+            LongBuffer starts = map(channel, position, 8L * entryCount).asLongBuffer();
+            position += 8L * entryCount;
+            IntBuffer lengths = map(channel, position, 4L * entryCount).asIntBuffer();
+            position += 4L * entryCount;
+            IntBuffer keyOffsets = map(channel, position, 4L * (keyCount + 1)).asIntBuffer();
+            position += 4L * (keyCount + 1);
+            IntBuffer valueStarts = map(channel, position, 4L * (keyCount + 1)).asIntBuffer();
+            position += 4L * (keyCount + 1);
+            ByteBuffer types = map(channel, position, entryCount);
+            position += entryCount;
+            ByteBuffer keys = map(channel, position, keyBytes);
+            position += keyBytes;
+            IntBuffer synonymSlots = map(channel, position, 4L * synonymCount).asIntBuffer();
+            position += 4L * synonymCount;
+            IntBuffer synonymHeadwords = map(channel, position, 4L * synonymCount).asIntBuffer();
+            return new IndexTable(keys, keyOffsets, valueStarts, starts, lengths, types, synonymSlots,
+                    synonymHeadwords);
+        } catch (IOException | IllegalArgumentException ignored) {
+            return null;
+        }
+    }
+
+    private static ByteBuffer map(final FileChannel channel, final long position, final long size)
+            throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("Section too large to map");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
+
+    /**
+     * Write index cache file.
+     * <p>
+     * The file is written to a temporary file then renamed, so concurrent
+     * readers never see a partial file.
+     * @param cacheFile index cache file.
+     * @param table index table to store.
+     * @param ifoFile .ifo file.
+     * @param idxFile .idx or .idx.gz file.
+     * @param synFile .syn file or null.
+     * @throws IOException when file cannot be written.
+     */
+    static void write(final File cacheFile, final IndexTable table, final File ifoFile, final File idxFile,
+                      final File synFile) throws IOException {
+        File dir = cacheFile.getAbsoluteFile().getParentFile();
+        File temp = File.createTempFile(cacheFile.getName(), ".tmp", dir);
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temp.toPath()), 65536))) {
+                ByteBuffer keys = table.getKeys();
+                LongBuffer starts = table.getStarts();
+                IntBuffer lengths = table.getLengths();
+                IntBuffer keyOffsets = table.getKeyOffsets();
+                IntBuffer valueStarts = table.getValueStarts();
+                ByteBuffer types = table.getTypes();
+                IntBuffer synonymSlots = table.getSynonymSlots();
+                IntBuffer synonymHeadwords = table.getSynonymHeadwords();
+                out.writeLong(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(table.size());
+                out.writeInt(table.entryCount());
+                out.writeInt(keys.remaining());
+                out.writeInt(synonymSlots.remaining());
+                for (long stamp : stamps(ifoFile, idxFile, synFile)) {
+                    out.writeLong(stamp);
+                }
+                while (starts.hasRemaining()) {
+                    out.writeLong(starts.get());
+                }
+                while (lengths.hasRemaining()) {
+                    out.writeInt(lengths.get());
+                }
+                while (keyOffsets.hasRemaining()) {
+                    out.writeInt(keyOffsets.get());
+                }
+                while (valueStarts.hasRemaining()) {
+                    out.writeInt(valueStarts.get());
+                }
+                while (types.hasRemaining()) {
+                    out.writeByte(types.get());
+                }
+                byte[] buf = new byte[8192];
+                while (keys.hasRemaining()) {
+                    int n = Math.min(buf.length, keys.remaining());
+                    keys.get(buf, 0, n);
+                    out.write(buf, 0, n);
+                }
+                while (synonymSlots.hasRemaining()) {
+                    out.writeInt(synonymSlots.get());
+                }
+                while (synonymHeadwords.hasRemaining()) {
+                    out.writeInt(synonymHeadwords.get());
+                }
+            }
+            Files.move(temp.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.concurrent.Executor;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Parser of .idx and .syn files.
+ * <p>
+ * Records are NUL terminated UTF-8 words followed by fixed size big-endian
+ * fields. Files are read in large blocks, and headwords are handed to the
+ * builder as slices of the block without intermediate copies.
+ */
+final class IndexFileParser {
+
+    static final int BUFFER_SIZE = 1 << 20;
+
+    private IndexFileParser() {
+    }
+
+    /**
+     * Parse .idx or .idx.gz file.
+     * @param idxFile index file.
+     * @param off64 whether article offsets are 64-bit.
+     * @param types article types of sametypesequence.
+     * @param builder builder to receive entries.
+     * @throws IOException when file is broken or cannot be read.
+     */
+    static void parseIndex(final File idxFile, final boolean off64, final StarDictDictionary.EntryType[] types,
+                           final DictionaryDataBuilder builder) throws IOException {
+        parseIndex(idxFile, off64, types, builder, null);
+    }
+
+    /**
+     * Parse .idx or .idx.gz file.
+     * @param idxFile index file.
+     * @param off64 whether article offsets are 64-bit.
+     * @param types article types of sametypesequence.
+     * @param builder builder to receive entries.
+     * @param executor executor to inflate .idx.gz in parallel with parsing, or null.
+     * @throws IOException when file is broken or cannot be read.
+     */
+    static void parseIndex(final File idxFile, final boolean off64, final StarDictDictionary.EntryType[] types,
+                           final DictionaryDataBuilder builder, final Executor executor) throws IOException {
+        int offsetSize = 4;
+        if (off64) {
+            offsetSize = 8;
+        }
+        try (RecordReader reader = new RecordReader(open(idxFile, executor), offsetSize + 4)) {
+            int c = 0;
+            while (reader.next()) {
+                long bodyOffset;
+                if (off64) {
+                    bodyOffset = reader.getLong(0);
+                } else {
+                    bodyOffset = reader.getInt(0) & 0xffffffffL;
+                }
+                int bodyLength = reader.getInt(offsetSize);
+                builder.add(reader.buffer(), reader.keyOffset(), reader.keyLength(), bodyOffset, bodyLength,
+                        types[c]);
+                c++;
+                if (c == types.length) {
+                    c = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Parse .syn or .syn.gz file.
+     * @param synFile synonym file.
+     * @param builder builder to receive synonyms.
+     * @throws IOException when file is broken or cannot be read.
+     */
+    static void parseSynonyms(final File synFile, final DictionaryDataBuilder builder) throws IOException {
+        builder.setSynonyms(parseSynonyms(synFile, (Executor) null));
+    }
+
+    /**
+     * Parse .syn or .syn.gz file.
+     * @param synFile synonym file.
+     * @param executor executor to inflate .syn.gz in parallel with parsing, or null.
+     * @return synonyms.
+     * @throws IOException when file is broken or cannot be read.
+     */
+    static DictionaryDataBuilder.Synonyms parseSynonyms(final File synFile, final Executor executor)
+            throws IOException {
+        DictionaryDataBuilder.Synonyms synonyms = new DictionaryDataBuilder.Synonyms();
+        try (RecordReader reader = new RecordReader(open(synFile, executor), 4)) {
+            while (reader.next()) {
+                synonyms.add(reader.buffer(), reader.keyOffset(), reader.keyLength(), reader.getInt(0));
+            }
+        }
+        return synonyms;
+    }
+
+    private static InputStream open(final File file, final Executor executor) throws IOException {
+        InputStream is = Files.newInputStream(file.toPath());
+        if (file.getName().endsWith(".gz")) {
+            try {
+                is = new GZIPInputStream(is, 65536);
+            } catch (IOException e) {
+                is.close();
+                throw e;
+            }
+            if (executor != null) {
+                // inflate on another thread while this one parses
+                return new ReadAheadInputStream(is, executor);
+            }
+        }
+        return is;
+    }
+
+    /**
+     * Cursor over records of a word file.
+     */
+    private static final class RecordReader implements Closeable {
+        private final InputStream in;
+        private final int trailerSize;
+        private byte[] buf = new byte[BUFFER_SIZE];
+        private ByteBuffer view = ByteBuffer.wrap(buf);
+        private int limit = 0;
+        private int pos = 0;
+        private int keyOffset;
+        private int keyLength;
+        private boolean eof = false;
+
+        RecordReader(final InputStream in, final int trailerSize) {
+            this.in = in;
+            this.trailerSize = trailerSize;
+        }
+
+        /**
+         * Move to next record.
+         * @return false at end of file.
+         * @throws IOException when file is truncated or cannot be read.
+         */
+        boolean next() throws IOException {
+            int scan = pos;
+            while (true) {
+                int nul = indexOfNul(scan);
+                if (nul >= 0 && nul + 1 + trailerSize <= limit) {
+                    keyOffset = pos;
+                    keyLength = nul - pos;
+                    pos = nul + 1 + trailerSize;
+                    return true;
+                }
+                if (nul < 0) {
+                    scan = limit;
+                } else {
+                    scan = nul;
+                }
+                if (eof) {
+                    if (nul >= 0) {
+                        throw new EOFException("Unexpected end of index file");
+                    }
+                    // bytes without terminator at the end are ignored
+                    return false;
+                }
+                scan -= pos;
+                fill();
+            }
+        }
+
+        private int indexOfNul(final int from) {
+            for (int i = from; i < limit; i++) {
+                if (buf[i] == 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Move unread bytes to head of buffer and read more.
+         */
+        private void fill() throws IOException {
+            int remain = limit - pos;
+            if (pos > 0) {
+                System.arraycopy(buf, pos, buf, 0, remain);
+            } else if (remain == buf.length) {
+                // single record longer than the buffer
+                byte[] larger = new byte[IndexTable.grow(buf.length, buf.length + 1)];
+                System.arraycopy(buf, 0, larger, 0, remain);
+                buf = larger;
+                view = ByteBuffer.wrap(buf);
+            }
+            pos = 0;
+            limit = remain;
+            while (limit < buf.length) {
+                int n = in.read(buf, limit, buf.length - limit);
+                if (n < 0) {
+                    eof = true;
+                    return;
+                }
+                limit += n;
+            }
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+
+        int keyOffset() {
+            return keyOffset;
+        }
+
+        int keyLength() {
+            return keyLength;
+        }
+
+        int getInt(final int skip) {
+            return view.getInt(keyOffset + keyLength + 1 + skip);
+        }
+
+        long getLong(final int skip) {
+            return view.getLong(keyOffset + keyLength + 1 + skip);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
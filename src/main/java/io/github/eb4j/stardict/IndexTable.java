@@ -0,0 +1,626 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Sorted headword table with columnar index entries.
+ * <p>
+ * Unique headwords are kept as UTF-8 bytes in StarDict order. Entries of
+ * headword {@code k} are the slots {@code valueStarts[k]} to
+ * {@code valueStarts[k + 1] - 1} of the offset, length and type columns.
+ * All columns are buffers, so a table can live on the heap or in a memory
+ * mapped file; reads use absolute positions only and are thread safe.
+ * <p>
+ * Entries a headword got through a .syn synonym are listed in ascending
+ * {@code synonymSlots}, with the headword of the referred .idx entry in
+ * {@code synonymHeadwords}; both are empty without synonyms.
+ */
+final class IndexTable {
+
+    private final int keyCount;
+    private final ByteBuffer keys;
+    private final IntBuffer keyOffsets;
+    private final IntBuffer valueStarts;
+    private final LongBuffer starts;
+    private final IntBuffer lengths;
+    private final ByteBuffer types;
+    private final IntBuffer synonymSlots;
+    private final IntBuffer synonymHeadwords;
+
+    /**
+     * Constructor of table without synonyms.
+     * @param keys UTF-8 bytes of all headwords.
+     * @param keyOffsets offsets of headwords in keys, keyCount + 1 values.
+     * @param valueStarts first entry slot of each headword, keyCount + 1 values.
+     * @param starts article offsets.
+     * @param lengths article lengths.
+     * @param types article type values.
+     */
+    IndexTable(final ByteBuffer keys, final IntBuffer keyOffsets, final IntBuffer valueStarts,
+               final LongBuffer starts, final IntBuffer lengths, final ByteBuffer types) {
+        this(keys, keyOffsets, valueStarts, starts, lengths, types, IntBuffer.allocate(0), IntBuffer.allocate(0));
+    }
+
+    /**
+     * Constructor.
+     * @param keys UTF-8 bytes of all headwords.
+     * @param keyOffsets offsets of headwords in keys, keyCount + 1 values.
+     * @param valueStarts first entry slot of each headword, keyCount + 1 values.
+     * @param starts article offsets.
+     * @param lengths article lengths.
+     * @param types article type values.
+     * @param synonymSlots ascending entry slots found through synonyms.
+     * @param synonymHeadwords headwords of the referred entries.
+     */
+    IndexTable(final ByteBuffer keys, final IntBuffer keyOffsets, final IntBuffer valueStarts,
+               final LongBuffer starts, final IntBuffer lengths, final ByteBuffer types,
+               final IntBuffer synonymSlots, final IntBuffer synonymHeadwords) {
+        this.keyCount = keyOffsets.limit() - 1;
+        this.keys = keys;
+        this.keyOffsets = keyOffsets;
+        this.valueStarts = valueStarts;
+        this.starts = starts;
+        this.lengths = lengths;
+        this.types = types;
+        this.synonymSlots = synonymSlots;
+        this.synonymHeadwords = synonymHeadwords;
+    }
+
+    /**
+     * Number of headwords.
+     * @return headword count.
+     */
+    int size() {
+        return keyCount;
+    }
+
+    /**
+     * Number of entry slots.
+     * @return entry count.
+     */
+    int entryCount() {
+        return starts.limit();
+    }
+
+    ByteBuffer getKeys() {
+        return keys.duplicate();
+    }
+
+    IntBuffer getKeyOffsets() {
+        return keyOffsets.duplicate();
+    }
+
+    IntBuffer getValueStarts() {
+        return valueStarts.duplicate();
+    }
+
+    LongBuffer getStarts() {
+        return starts.duplicate();
+    }
+
+    IntBuffer getLengths() {
+        return lengths.duplicate();
+    }
+
+    ByteBuffer getTypes() {
+        return types.duplicate();
+    }
+
+    IntBuffer getSynonymSlots() {
+        return synonymSlots.duplicate();
+    }
+
+    IntBuffer getSynonymHeadwords() {
+        return synonymHeadwords.duplicate();
+    }
+
+    /**
+     * Headword of the .idx entry an entry slot refers to through a synonym.
+     * @param slot entry slot.
+     * @return headword index, or -1 when the entry is the headword's own.
+     */
+    int getCanonical(final int slot) {
+        int low = 0;
+        int high = synonymSlots.limit() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = synonymSlots.get(mid);
+            if (value < slot) {
+                low = mid + 1;
+            } else if (value > slot) {
+                high = mid - 1;
+            } else {
+                return synonymHeadwords.get(mid);
+            }
+        }
+        return -1;
+    }
+
+    private int keyOffset(final int k) {
+        return keyOffsets.get(k);
+    }
+
+    private int keyLength(final int k) {
+        return keyOffsets.get(k + 1) - keyOffsets.get(k);
+    }
+
+    /**
+     * Decode headword.
+     * @param k headword index.
+     * @return headword.
+     */
+    String getKey(final int k) {
+        return new String(getKeyBytes(k), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Get UTF-8 bytes of headword.
+     * @param k headword index.
+     * @return UTF-8 bytes.
+     */
+    byte[] getKeyBytes(final int k) {
+        byte[] bytes = new byte[keyLength(k)];
+        ByteBuffer buffer = keys.duplicate();
+        buffer.position(keyOffset(k));
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Find a headword.
+     * @param key UTF-8 headword.
+     * @return headword index, or -1 when not found.
+     */
+    int find(final byte[] key) {
+        int low = 0;
+        int high = keyCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = StarDictCollation.compare(keys, keyOffset(mid), keyLength(mid), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * First headword not less than a key in StarDict order.
+     * @param key UTF-8 key.
+     * @return headword index of the key when it is a headword, otherwise
+     *         of the next one, or size() when all headwords are less.
+     */
+    int position(final byte[] key) {
+        int low = 0;
+        int high = keyCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (StarDictCollation.compare(keys, keyOffset(mid), keyLength(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First headword whose case folded form is not less than case folded prefix.
+     * @param prefix UTF-8 prefix.
+     * @return headword index, or size() when all headwords are less.
+     */
+    int lowerBound(final byte[] prefix) {
+        int low = 0;
+        int high = keyCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (StarDictCollation.compareFolded(keys, keyOffset(mid), keyLength(mid), prefix, prefix.length) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * First headword from given one not starting with prefix ignoring ASCII
+     * case. Headwords from the given one up to the result all start with it.
+     * @param from headword index to start from, right after a headword starting with prefix.
+     * @param prefix UTF-8 bytes holding prefix.
+     * @param prefixLength number of bytes of prefix.
+     * @return headword index, or size() when all remaining headwords start with prefix.
+     */
+    int skipFolded(final int from, final byte[] prefix, final int prefixLength) {
+        // gallop first, runs of long prefixes are short
+        int low = from;
+        int high = keyCount;
+        int step = 1;
+        while (low + step < keyCount) {
+            int probe = low + step;
+            if (StarDictCollation.compareFolded(keys, keyOffset(probe), keyLength(probe), prefix, prefixLength) > 0) {
+                high = probe;
+                break;
+            }
+            low = probe + 1;
+            step <<= 1;
+        }
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (StarDictCollation.compareFolded(keys, keyOffset(mid), keyLength(mid), prefix, prefixLength) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Whether headword starts with prefix ignoring ASCII case.
+     * @param k headword index.
+     * @param prefix UTF-8 prefix.
+     * @return true when headword starts with folded prefix.
+     */
+    boolean startsWithFolded(final int k, final byte[] prefix) {
+        return StarDictCollation.compareFolded(keys, keyOffset(k), keyLength(k), prefix, prefix.length) == 0;
+    }
+
+    /**
+     * Whether headword starts with prefix.
+     * @param k headword index.
+     * @param prefix UTF-8 prefix.
+     * @return true when headword starts with prefix.
+     */
+    boolean startsWith(final int k, final byte[] prefix) {
+        return StarDictCollation.startsWith(keys, keyOffset(k), keyLength(k), prefix);
+    }
+
+    /**
+     * Get an entry.
+     * @param slot entry slot.
+     * @return IndexEntry object.
+     */
+    IndexEntry getEntry(final int slot) {
+        return new IndexEntry(starts.get(slot), lengths.get(slot),
+                StarDictDictionary.EntryType.getTypeByValue((char) types.get(slot)));
+    }
+
+    /**
+     * Pair of a headword and an entry, marked with the canonical headword
+     * when the entry is found through a synonym.
+     * @param key headword.
+     * @param slot entry slot.
+     * @return map entry, a SynonymEntry for synonyms.
+     */
+    Map.Entry<String, IndexEntry> entry(final String key, final int slot) {
+        int canonical = getCanonical(slot);
+        if (canonical < 0) {
+            return new AbstractMap.SimpleImmutableEntry<>(key, getEntry(slot));
+        }
+        return new SynonymEntry(key, getEntry(slot), getKey(canonical));
+    }
+
+    /**
+     * Add entries of a headword to collection.
+     * @param k headword index.
+     * @param key headword.
+     * @param into collection to add entries.
+     */
+    void collect(final int k, final String key, final Collection<Map.Entry<String, IndexEntry>> into) {
+        int end = valueStarts.get(k + 1);
+        for (int slot = valueStarts.get(k); slot < end; slot++) {
+            into.add(entry(key, slot));
+        }
+    }
+
+    /**
+     * Add entries of headwords starting with prefix, case sensitive, from given headword.
+     * @param prefix UTF-8 prefix.
+     * @param from headword index to continue from, or -1 to start.
+     * @param limit stop before a headword when collection has this many entries.
+     * @param into collection to add entries.
+     * @return headword index to continue from, or -1 when there are no more matches.
+     */
+    int collectPredictive(final byte[] prefix, final int from, final int limit,
+                          final Collection<Map.Entry<String, IndexEntry>> into) {
+        int k = from;
+        if (k < 0) {
+            k = lowerBound(prefix);
+        }
+        for (; k < keyCount && startsWithFolded(k, prefix); k++) {
+            if (into.size() >= limit) {
+                return k;
+            }
+            if (startsWith(k, prefix)) {
+                collect(k, getKey(k), into);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Create a table on heap arrays. Arrays may be longer than needed.
+     * @param keys UTF-8 bytes of all headwords.
+     * @param keyOffsets offsets of headwords in keys, keyCount + 1 values.
+     * @param valueStarts first entry slot of each headword, keyCount + 1 values.
+     * @param keyCount number of headwords.
+     * @param starts article offsets.
+     * @param lengths article lengths.
+     * @param types article type values.
+     * @param entryCount number of entries.
+     * @return IndexTable object.
+     */
+    static IndexTable wrap(final byte[] keys, final int[] keyOffsets, final int[] valueStarts, final int keyCount,
+                           final long[] starts, final int[] lengths, final byte[] types, final int entryCount) {
+        return new IndexTable(ByteBuffer.wrap(keys, 0, keyOffsets[keyCount]).slice(),
+                IntBuffer.wrap(keyOffsets, 0, keyCount + 1).slice(),
+                IntBuffer.wrap(valueStarts, 0, keyCount + 1).slice(),
+                LongBuffer.wrap(starts, 0, entryCount).slice(),
+                IntBuffer.wrap(lengths, 0, entryCount).slice(),
+                ByteBuffer.wrap(types, 0, entryCount).slice());
+    }
+
+    /**
+     * First entry slot of a headword.
+     * @param k headword index.
+     * @return entry slot.
+     */
+    int getValueStart(final int k) {
+        return valueStarts.get(k);
+    }
+
+    /**
+     * New capacity of a growing array.
+     * @param length current length.
+     * @param required required length.
+     * @return new length.
+     */
+    static int grow(final int length, final int required) {
+        long size = Math.max((long) length + (length >> 1), required);
+        if (size > Integer.MAX_VALUE - 8) {
+            if (required > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Index too large");
+            }
+            return Integer.MAX_VALUE - 8;
+        }
+        return (int) size;
+    }
+
+    /**
+     * Builder of in-memory IndexTable.
+     * <p>
+     * Headwords should be added in StarDict order without duplicates, each
+     * followed by its entries.
+     */
+    static final class Builder {
+        private byte[] keys;
+        private int keyBytes = 0;
+        private int[] keyOffsets;
+        private int[] valueStarts;
+        private int keyCount = 0;
+        private long[] starts;
+        private int[] lengths;
+        private byte[] types;
+        private int entryCount = 0;
+        private int[] synonymSlots = new int[0];
+        private int[] synonymHeadwords = new int[0];
+        private int synonymCount = 0;
+
+        /**
+         * Constructor.
+         * @param expectedKeys expected number of headwords.
+         */
+        Builder(final int expectedKeys) {
+            int capacity = Math.max(16, expectedKeys);
+            keys = new byte[capacity * 8];
+            keyOffsets = new int[capacity + 1];
+            valueStarts = new int[capacity + 1];
+            starts = new long[capacity];
+            lengths = new int[capacity];
+            types = new byte[capacity];
+        }
+
+        /**
+         * Start a new headword.
+         * @param key UTF-8 headword.
+         */
+        void addKey(final byte[] key) {
+            if (keyCount + 2 > keyOffsets.length) {
+                int size = grow(keyOffsets.length, keyCount + 2);
+                keyOffsets = Arrays.copyOf(keyOffsets, size);
+                valueStarts = Arrays.copyOf(valueStarts, size);
+            }
+            if (keyBytes + key.length > keys.length) {
+                keys = Arrays.copyOf(keys, grow(keys.length, keyBytes + key.length));
+            }
+            System.arraycopy(key, 0, keys, keyBytes, key.length);
+            keyOffsets[keyCount] = keyBytes;
+            valueStarts[keyCount] = entryCount;
+            keyBytes += key.length;
+            keyCount++;
+        }
+
+        /**
+         * Add an entry to the last headword.
+         * @param start article offset.
+         * @param length article length.
+         * @param type article type.
+         */
+        void addEntry(final long start, final int length, final StarDictDictionary.EntryType type) {
+            if (entryCount == starts.length) {
+                int size = grow(starts.length, entryCount + 1);
+                starts = Arrays.copyOf(starts, size);
+                lengths = Arrays.copyOf(lengths, size);
+                types = Arrays.copyOf(types, size);
+            }
+            starts[entryCount] = start;
+            lengths[entryCount] = length;
+            types[entryCount] = (byte) type.getTypeValue();
+            entryCount++;
+        }
+
+        /**
+         * Add a copy of an entry of another table to the last headword.
+         * @param table source table.
+         * @param slot entry slot in source table.
+         */
+        void addEntry(final IndexTable table, final int slot) {
+            addEntry(table.starts.get(slot), table.lengths.get(slot),
+                    StarDictDictionary.EntryType.getTypeByValue((char) table.types.get(slot)));
+        }
+
+        /**
+         * Add copies of a range of headwords of another table with their entries.
+         * @param table source table.
+         * @param from first headword index in source table.
+         * @param to headword index after the last one.
+         */
+        void addHeadwords(final IndexTable table, final int from, final int to) {
+            int count = to - from;
+            int byteStart = table.keyOffset(from);
+            int byteCount = table.keyOffset(to) - byteStart;
+            int slotStart = table.valueStarts.get(from);
+            int slotCount = table.valueStarts.get(to) - slotStart;
+            if (keyCount + count + 1 > keyOffsets.length) {
+                int size = grow(keyOffsets.length, keyCount + count + 1);
+                keyOffsets = Arrays.copyOf(keyOffsets, size);
+                valueStarts = Arrays.copyOf(valueStarts, size);
+            }
+            if (keyBytes + byteCount > keys.length) {
+                keys = Arrays.copyOf(keys, grow(keys.length, keyBytes + byteCount));
+            }
+            if (entryCount + slotCount > starts.length) {
+                int size = grow(starts.length, entryCount + slotCount);
+                starts = Arrays.copyOf(starts, size);
+                lengths = Arrays.copyOf(lengths, size);
+                types = Arrays.copyOf(types, size);
+            }
+            for (int k = from; k < to; k++) {
+                keyOffsets[keyCount] = keyBytes + table.keyOffset(k) - byteStart;
+                valueStarts[keyCount] = entryCount + table.valueStarts.get(k) - slotStart;
+                keyCount++;
+            }
+            ByteBuffer keySource = table.keys.duplicate();
+            keySource.position(byteStart);
+            keySource.get(keys, keyBytes, byteCount);
+            LongBuffer startSource = table.starts.duplicate();
+            startSource.position(slotStart);
+            startSource.get(starts, entryCount, slotCount);
+            IntBuffer lengthSource = table.lengths.duplicate();
+            lengthSource.position(slotStart);
+            lengthSource.get(lengths, entryCount, slotCount);
+            ByteBuffer typeSource = table.types.duplicate();
+            typeSource.position(slotStart);
+            typeSource.get(types, entryCount, slotCount);
+            keyBytes += byteCount;
+            entryCount += slotCount;
+        }
+
+        /**
+         * Add a copy of an entry of another table to the last headword,
+         * found through a synonym.
+         * @param table source table.
+         * @param slot entry slot in source table.
+         * @param headword headword of the referred entry; see {@link #mapSynonymHeadwords(int[])}.
+         */
+        void addSynonymEntry(final IndexTable table, final int slot, final int headword) {
+            if (synonymCount == synonymSlots.length) {
+                int size = grow(synonymSlots.length, synonymCount + 1);
+                synonymSlots = Arrays.copyOf(synonymSlots, size);
+                synonymHeadwords = Arrays.copyOf(synonymHeadwords, size);
+            }
+            synonymSlots[synonymCount] = entryCount;
+            synonymHeadwords[synonymCount] = headword;
+            synonymCount++;
+            addEntry(table, slot);
+        }
+
+        /**
+         * Replace headwords of synonym entries, e.g. when they were given
+         * as indices of a source table before its headwords were all added.
+         * @param mapping new headword index of each given one.
+         */
+        void mapSynonymHeadwords(final int[] mapping) {
+            for (int i = 0; i < synonymCount; i++) {
+                synonymHeadwords[i] = mapping[synonymHeadwords[i]];
+            }
+        }
+
+        /**
+         * Number of headwords added.
+         * @return headword count.
+         */
+        int size() {
+            return keyCount;
+        }
+
+        /**
+         * Build IndexTable.
+         * @return IndexTable object.
+         */
+        IndexTable build() {
+            keyOffsets[keyCount] = keyBytes;
+            valueStarts[keyCount] = entryCount;
+            IndexTable table = wrap(Arrays.copyOf(keys, keyBytes), Arrays.copyOf(keyOffsets, keyCount + 1),
+                    Arrays.copyOf(valueStarts, keyCount + 1), keyCount, Arrays.copyOf(starts, entryCount),
+                    Arrays.copyOf(lengths, entryCount), Arrays.copyOf(types, entryCount), entryCount);
+            if (synonymCount == 0) {
+                return table;
+            }
+            return new IndexTable(table.keys, table.keyOffsets, table.valueStarts, table.starts, table.lengths,
+                    table.types, IntBuffer.wrap(Arrays.copyOf(synonymSlots, synonymCount)),
+                    IntBuffer.wrap(Arrays.copyOf(synonymHeadwords, synonymCount)));
+        }
+    }
+
+    /**
+     * Headword and entry found through a .syn synonym, with the headword
+     * of the referred .idx entry.
+     */
+    static final class SynonymEntry extends AbstractMap.SimpleImmutableEntry<String, IndexEntry> {
+        private static final long serialVersionUID = 1L;
+        private final String headword;
+
+        SynonymEntry(final String key, final IndexEntry value, final String headword) {
+            super(key, value);
+            this.headword = headword;
+        }
+
+        /**
+         * Headword of the referred .idx entry.
+         * @return canonical headword.
+         */
+        String getHeadword() {
+            return headword;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * How headwords and queries are folded before they are compared.
+ * <p>
+ * A folded index is built at load time with
+ * {@link LoadOptions.Builder#foldedIndex(KeyFolding)}; it answers queries
+ * of its own folding and of weaker ones, e.g. an index of
+ * {@link #CASE_AND_DIACRITICS} also answers {@link #CASE} queries.
+ */
+public enum KeyFolding {
+    /** Exact keys. */
+    NONE,
+    /** Keys compared ignoring case, e.g. "Testudo" matches "testudo". */
+    CASE,
+    /**
+     * Keys compared ignoring case and diacritics, after compatibility
+     * decomposition (NFKD), e.g. "resume" matches "résumé".
+     */
+    CASE_AND_DIACRITICS;
+
+    /**
+     * Fold a key.
+     * @param key headword or query.
+     * @return folded key.
+     */
+    String fold(final String key) {
+        if (this == NONE) {
+            return key;
+        }
+        String text = key;
+        if (this == CASE_AND_DIACRITICS) {
+            text = stripMarks(Normalizer.normalize(text, Normalizer.Form.NFKD));
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static String stripMarks(final String text) {
+        StringBuilder sb = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                if (sb == null) {
+                    sb = new StringBuilder(text.length());
+                    sb.append(text, 0, i);
+                }
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        if (sb == null) {
+            return text;
+        }
+        return sb.toString();
+    }
+}
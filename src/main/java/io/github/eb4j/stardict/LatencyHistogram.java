@@ -0,0 +1,105 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of durations in power of two buckets.
+ * <p>
+ * Recording is lock free and does not allocate. Percentiles are upper
+ * bounds of buckets, so they are within a factor of two.
+ */
+final class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * Record a duration.
+     * @param nanos duration in nanoseconds.
+     */
+    void record(final long nanos) {
+        long value = Math.max(0, nanos);
+        // bucket of bit length of the value
+        buckets.incrementAndGet(BUCKETS - Long.numberOfLeadingZeros(value));
+        count.increment();
+        total.add(value);
+    }
+
+    long getCount() {
+        return count.sum();
+    }
+
+    long getTotal() {
+        return total.sum();
+    }
+
+    /**
+     * Mean duration.
+     * @return mean in nanoseconds, or 0 when nothing is recorded.
+     */
+    double getMean() {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        return (double) total.sum() / n;
+    }
+
+    /**
+     * Estimate percentile.
+     * @param percentile percentile between 0 and 100.
+     * @return upper bound of bucket of the percentile in nanoseconds, or 0 when nothing is recorded.
+     */
+    long getPercentile(final double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = buckets.get(i);
+            n += snapshot[i];
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * Math.min(100, Math.max(0, percentile)) / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank && snapshot[i] > 0) {
+                return upperBound(i);
+            }
+        }
+        return upperBound(BUCKETS - 1);
+    }
+
+    /**
+     * Largest value of bucket, bucket i holds values of bit length i.
+     */
+    private static long upperBound(final int bucket) {
+        if (bucket >= BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        return (1L << bucket) - 1;
+    }
+}
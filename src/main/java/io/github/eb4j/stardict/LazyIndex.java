@@ -0,0 +1,235 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Index answering queries straight from a memory mapped .idx file.
+ * <p>
+ * One pass over the file records where each record starts, then lookups
+ * binary search the records, which are sorted in StarDict order. It serves
+ * queries while the full {@link IndexTable} is built, and does not know
+ * about synonyms.
+ */
+final class LazyIndex {
+
+    private final ByteBuffer idx;
+    private final int[] recordOffsets;
+    private final int recordCount;
+    private final int headwordCount;
+    private final boolean off64;
+    private final int trailerSize;
+    private final StarDictDictionary.EntryType[] types;
+
+    private LazyIndex(final ByteBuffer idx, final int[] recordOffsets, final int recordCount,
+                      final int headwordCount, final boolean off64, final StarDictDictionary.EntryType[] types) {
+        this.idx = idx;
+        this.recordOffsets = recordOffsets;
+        this.recordCount = recordCount;
+        this.headwordCount = headwordCount;
+        this.off64 = off64;
+        if (off64) {
+            trailerSize = 12;
+        } else {
+            trailerSize = 8;
+        }
+        this.types = types;
+    }
+
+    /**
+     * Map .idx file and find records.
+     * @param idxFile uncompressed index file.
+     * @param off64 whether article offsets are 64-bit.
+     * @param types article types of sametypesequence.
+     * @param wordCount expected number of records.
+     * @return LazyIndex object, or null when the file is too large to map at once or not sorted.
+     * @throws IOException when file cannot be read.
+     */
+    static LazyIndex open(final File idxFile, final boolean off64, final StarDictDictionary.EntryType[] types,
+                          final int wordCount) throws IOException {
+        ByteBuffer idx;
+        try (FileChannel channel = FileChannel.open(idxFile.toPath(), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                return null;
+            }
+            idx = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int trailer = 8;
+        if (off64) {
+            trailer = 12;
+        }
+        int limit = idx.limit();
+        // wordcount of .ifo is only a hint, a record takes at least a one byte key, NUL and trailer
+        int[] offsets = new int[Math.max(16, Math.min(Math.max(0, wordCount), limit / (trailer + 2)) + 1)];
+        int count = 0;
+        int headwords = 0;
+        int previous = -1;
+        int previousLength = 0;
+        int pos = 0;
+        while (pos < limit) {
+            int end = pos;
+            while (end < limit && idx.get(end) != 0) {
+                end++;
+            }
+            if (end + 1 + trailer > limit) {
+                // truncated record, leave it to the full parser
+                break;
+            }
+            int cmp = 1;
+            if (previous >= 0) {
+                cmp = StarDictCollation.compare(idx, pos, end - pos, previous, previousLength);
+            }
+            if (cmp < 0) {
+                // not sorted, binary search is not possible
+                return null;
+            }
+            if (cmp > 0) {
+                headwords++;
+            }
+            if (count + 1 >= offsets.length) {
+                offsets = Arrays.copyOf(offsets, IndexTable.grow(offsets.length, count + 2));
+            }
+            offsets[count++] = pos;
+            previous = pos;
+            previousLength = end - pos;
+            pos = end + 1 + trailer;
+        }
+        offsets[count] = pos;
+        return new LazyIndex(idx, offsets, count, headwords, off64, types);
+    }
+
+    private int keyOffset(final int record) {
+        return recordOffsets[record];
+    }
+
+    private int keyLength(final int record) {
+        return recordOffsets[record + 1] - recordOffsets[record] - 1 - trailerSize;
+    }
+
+    private String getKey(final int record) {
+        byte[] key = new byte[keyLength(record)];
+        ByteBuffer buffer = idx.duplicate();
+        buffer.position(keyOffset(record));
+        buffer.get(key);
+        return new String(key, StandardCharsets.UTF_8);
+    }
+
+    private IndexEntry getEntry(final int record) {
+        int pos = keyOffset(record) + keyLength(record) + 1;
+        long start;
+        int len;
+        if (off64) {
+            start = idx.getLong(pos);
+            len = idx.getInt(pos + 8);
+        } else {
+            start = idx.getInt(pos) & 0xffffffffL;
+            len = idx.getInt(pos + 4);
+        }
+        return new IndexEntry(start, len, types[record % types.length]);
+    }
+
+    /**
+     * Number of headwords.
+     * @return number of distinct keys.
+     */
+    int size() {
+        return headwordCount;
+    }
+
+    /**
+     * Look up the given word.
+     * @param word the word to look up.
+     * @return entries of the word.
+     */
+    List<Map.Entry<String, IndexEntry>> lookUp(final String word) {
+        List<Map.Entry<String, IndexEntry>> result = new ArrayList<>();
+        byte[] key = word.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = recordCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (StarDictCollation.compare(idx, keyOffset(mid), keyLength(mid), key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        for (int r = low; r < recordCount && StarDictCollation.compare(idx, keyOffset(r), keyLength(r), key) == 0;
+             r++) {
+            result.add(new AbstractMap.SimpleImmutableEntry<>(word, getEntry(r)));
+        }
+        return result;
+    }
+
+    /**
+     * Add entries of words starting with prefix, records from given position.
+     * @param prefix UTF-8 prefix.
+     * @param from record to continue from, or -1 to start.
+     * @param limit stop before a record when collection has this many entries.
+     * @param into collection to add entries.
+     * @return record to continue from, or -1 when there are no more matches.
+     */
+    int collectPredictive(final byte[] prefix, final int from, final int limit,
+                          final Collection<Map.Entry<String, IndexEntry>> into) {
+        int r = from;
+        if (r < 0) {
+            int low = 0;
+            int high = recordCount;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (StarDictCollation.compareFolded(idx, keyOffset(mid), keyLength(mid), prefix, prefix.length) < 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            r = low;
+        }
+        String key = null;
+        for (; r < recordCount
+                && StarDictCollation.compareFolded(idx, keyOffset(r), keyLength(r), prefix, prefix.length) == 0; r++) {
+            if (into.size() >= limit) {
+                return r;
+            }
+            if (!StarDictCollation.startsWith(idx, keyOffset(r), keyLength(r), prefix)) {
+                continue;
+            }
+            // records of same headword share the key string
+            if (key == null
+                    || StarDictCollation.compare(idx, keyOffset(r - 1), keyLength(r - 1), keyOffset(r), keyLength(r))
+                    != 0) {
+                key = getKey(r);
+            }
+            into.add(new AbstractMap.SimpleImmutableEntry<>(key, getEntry(r)));
+        }
+        return -1;
+    }
+}
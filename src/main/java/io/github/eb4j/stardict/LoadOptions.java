@@ -0,0 +1,317 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import java.io.File;
+import java.util.concurrent.Executor;
+
+/**
+ * Options to control how a dictionary is loaded and accessed.
+ * <p>
+ * Instances are immutable; use {@link #builder()} to create one.
+ */
+public final class LoadOptions {
+
+    /** Default options. */
+    public static final LoadOptions DEFAULT = builder().build();
+
+    /** Default byte size of inflated dictzip chunk cache. */
+    public static final long DEFAULT_CHUNK_CACHE_SIZE = 4L * 1024 * 1024;
+
+    private final boolean memoryMapped;
+    private final long chunkCacheSize;
+    private final boolean indexCache;
+    private final File indexCacheDirectory;
+    private final Executor executor;
+    private final boolean lazy;
+    private final MetricsListener metrics;
+    private final boolean jmx;
+    private final KeyFolding foldedIndex;
+    private final boolean fullTextIndex;
+
+    private LoadOptions(final Builder builder) {
+        this.memoryMapped = builder.memoryMapped;
+        this.chunkCacheSize = builder.chunkCacheSize;
+        this.indexCache = builder.indexCache;
+        this.indexCacheDirectory = builder.indexCacheDirectory;
+        this.executor = builder.executor;
+        this.lazy = builder.lazy;
+        this.metrics = builder.metrics;
+        this.jmx = builder.jmx;
+        this.foldedIndex = builder.foldedIndex;
+        this.fullTextIndex = builder.fullTextIndex;
+    }
+
+    /**
+     * Create a builder of options.
+     * @return new Builder object.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Whether uncompressed .dict file is accessed through memory mapping.
+     * @return true when memory mapped access is requested.
+     */
+    public boolean isMemoryMapped() {
+        return memoryMapped;
+    }
+
+    /**
+     * Maximum total bytes of inflated chunks cached for .dict.dz files.
+     * @return byte size of chunk cache.
+     */
+    public long getChunkCacheSize() {
+        return chunkCacheSize;
+    }
+
+    /**
+     * Whether precompiled index cache file is used and written.
+     * @return true when index cache is enabled.
+     */
+    public boolean isIndexCache() {
+        return indexCache;
+    }
+
+    /**
+     * Directory to keep index cache files.
+     * @return directory, or null to keep them next to the dictionary files.
+     */
+    public File getIndexCacheDirectory() {
+        return indexCacheDirectory;
+    }
+
+    /**
+     * Executor to run loading stages in parallel.
+     * @return executor, or null to load in the calling thread.
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Whether index is answered from the .idx file while it is loaded in background.
+     * @return true when lazy open is requested.
+     */
+    public boolean isLazy() {
+        return lazy;
+    }
+
+    /**
+     * Listener of lookup, read and load events.
+     * @return listener, or null when metrics are disabled.
+     */
+    public MetricsListener getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Whether a JMX bean is registered for the dictionary.
+     * @return true when JMX bean is requested.
+     */
+    public boolean isJmx() {
+        return jmx;
+    }
+
+    /**
+     * Folding of the folded index built at load time.
+     * @return folding, NONE when no folded index is built.
+     */
+    public KeyFolding getFoldedIndex() {
+        return foldedIndex;
+    }
+
+    /**
+     * Whether a full-text index of articles is opened or built.
+     * @return true when full-text index is requested.
+     */
+    public boolean isFullTextIndex() {
+        return fullTextIndex;
+    }
+
+    /**
+     * Builder of LoadOptions.
+     */
+    public static final class Builder {
+        private boolean memoryMapped = false;
+        private long chunkCacheSize = DEFAULT_CHUNK_CACHE_SIZE;
+        private boolean indexCache = false;
+        private File indexCacheDirectory = null;
+        private Executor executor = null;
+        private boolean lazy = false;
+        private MetricsListener metrics = null;
+        private boolean jmx = false;
+        private KeyFolding foldedIndex = KeyFolding.NONE;
+        private boolean fullTextIndex = false;
+
+        private Builder() {
+        }
+
+        /**
+         * Map uncompressed .dict file into memory instead of reading it with
+         * RandomAccessFile. It has no effect on .dict.dz files, and when mapping
+         * fails the dictionary falls back to RandomAccessFile access.
+         * @param value true to use memory mapped access.
+         * @return this builder.
+         */
+        public Builder memoryMapped(final boolean value) {
+            this.memoryMapped = value;
+            return this;
+        }
+
+        /**
+         * Set maximum total bytes of inflated chunks cached for .dict.dz files.
+         * A dictzip chunk is usually about 58KB. Zero disables the chunk cache.
+         * @param bytes byte size of chunk cache.
+         * @return this builder.
+         */
+        public Builder chunkCacheSize(final long bytes) {
+            if (bytes < 0) {
+                throw new IllegalArgumentException("Negative chunk cache size: " + bytes);
+            }
+            this.chunkCacheSize = bytes;
+            return this;
+        }
+
+        /**
+         * Use a precompiled index cache file. When the file is missing or older
+         * than the .ifo/.idx/.syn files, the index is parsed as usual and the
+         * cache file is written for next loads. A valid cache file is memory
+         * mapped instead of parsing the index.
+         * @param value true to enable index cache.
+         * @return this builder.
+         */
+        public Builder indexCache(final boolean value) {
+            this.indexCache = value;
+            return this;
+        }
+
+        /**
+         * Keep index cache files in given directory instead of next to the
+         * dictionary files, e.g. when dictionary directory is read only.
+         * @param directory directory of index cache files.
+         * @return this builder.
+         */
+        public Builder indexCacheDirectory(final File directory) {
+            this.indexCacheDirectory = directory;
+            return this;
+        }
+
+        /**
+         * Run loading stages on given executor: inflating .idx.gz and parsing
+         * it, parsing .syn and opening .dict or .dict.dz file overlap, so load
+         * takes about the time of the slowest stage. The calling thread takes
+         * part in loading and runs the stages the executor has not started
+         * when it needs them, so load may run on a thread of the executor
+         * itself, even its only one.
+         * @param value executor, or null to load in the calling thread.
+         * @return this builder.
+         */
+        public Builder executor(final Executor value) {
+            this.executor = value;
+            return this;
+        }
+
+        /**
+         * Return from load right after one pass over memory mapped .idx file,
+         * and answer lookups by binary search on it while the full index is
+         * loaded in background, on the executor when given. Until then,
+         * synonyms of .syn file are not used. When background load fails,
+         * e.g. on a corrupt .syn file, lookups throw IllegalStateException
+         * with the cause. It has no effect on .idx.gz files, or when a valid
+         * index cache file is found.
+         * @param value true to open lazily.
+         * @return this builder.
+         */
+        public Builder lazy(final boolean value) {
+            this.lazy = value;
+            return this;
+        }
+
+        /**
+         * Report lookups, article reads, chunk inflation and load phases to
+         * given listener, e.g. {@link DictionaryMetrics}. It also enables
+         * statistics of the article cache. Without a listener, lookups and
+         * reads are not timed.
+         * @param listener listener, or null to disable metrics.
+         * @return this builder.
+         */
+        public Builder metrics(final MetricsListener listener) {
+            this.metrics = listener;
+            return this;
+        }
+
+        /**
+         * Register a {@link StarDictDictionaryMXBean} of the dictionary on
+         * the platform MBean server, unregistered when the dictionary is
+         * closed. It enables metrics; counters are read from the listener
+         * when it is a {@link DictionaryMetrics}, otherwise from metrics kept
+         * for the bean besides the listener.
+         * @param value true to register JMX bean.
+         * @return this builder.
+         */
+        public Builder jmx(final boolean value) {
+            this.jmx = value;
+            return this;
+        }
+
+        /**
+         * Build an index of folded headwords at load time, so lookups of
+         * {@link StarDictDictionary#readArticles(String, KeyFolding)} and
+         * {@link StarDictDictionary#readArticlesPredictive(String, int, KeyFolding)}
+         * match headwords ignoring case, and diacritics with
+         * {@link KeyFolding#CASE_AND_DIACRITICS}. The index holds folded keys
+         * and references to headwords, see
+         * {@link StarDictDictionary#getFoldedIndexBytes()}. When opened
+         * lazily, it is built after the background load.
+         * @param folding folding of the index, or NONE to build no index.
+         * @return this builder.
+         */
+        public Builder foldedIndex(final KeyFolding folding) {
+            this.foldedIndex = folding;
+            return this;
+        }
+
+        /**
+         * Open a full-text index of article text for
+         * {@link StarDictDictionary#readArticlesContaining(String, int)}.
+         * The index is kept in a sidecar file next to the index cache file,
+         * see {@link #indexCacheDirectory(File)}. When the file is missing
+         * or older than the dictionary files, the .dict file is read in
+         * order, in parallel segments on the common fork join pool, and the
+         * file is written for next loads; a valid file is memory mapped.
+         * Load waits for the build unless opened lazily, when it follows
+         * the background load.
+         * @param value true to use full-text index.
+         * @return this builder.
+         */
+        public Builder fullTextIndex(final boolean value) {
+            this.fullTextIndex = value;
+            return this;
+        }
+
+        /**
+         * Build LoadOptions object.
+         * @return LoadOptions object.
+         */
+        public LoadOptions build() {
+            return new LoadOptions(this);
+        }
+    }
+}
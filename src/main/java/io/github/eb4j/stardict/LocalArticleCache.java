@@ -0,0 +1,128 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.util.function.Function;
+
+/**
+ * Article cache owned by one dictionary.
+ */
+final class LocalArticleCache implements ArticleCache {
+
+    /** underlying cache. */
+    final Cache<IndexEntry, byte[]> cache;
+
+    /**
+     * Create cache.
+     * @param options cache options.
+     * @param recordStats whether to record statistics.
+     * @param reader function to read article again on refresh.
+     */
+    LocalArticleCache(final CacheOptions options, final boolean recordStats,
+                      final Function<IndexEntry, byte[]> reader) {
+        Caffeine<Object, Object> builder = newBuilder(options);
+        if (recordStats) {
+            builder.recordStats();
+        }
+        if (options.isWeighted()) {
+            builder.weigher((IndexEntry indexEntry, byte[] article) -> indexEntry.getLen());
+        }
+        if (options.getExpiry() == CacheOptions.Expiry.REFRESH_AFTER_WRITE) {
+            // loader is used only to refresh; lookups put articles read outside of cache locks
+            cache = builder.build((IndexEntry indexEntry) -> reader.apply(indexEntry));
+        } else {
+            cache = builder.build();
+        }
+    }
+
+    /**
+     * Caffeine builder with bound and expiry of options, without weigher.
+     * @param options cache options.
+     * @return builder.
+     */
+    static Caffeine<Object, Object> newBuilder(final CacheOptions options) {
+        Caffeine<Object, Object> builder = Caffeine.newBuilder();
+        if (options.isWeighted()) {
+            builder.maximumWeight(options.getMaximumWeight());
+        } else {
+            builder.maximumSize(options.getMaximumSize());
+        }
+        switch (options.getExpiry()) {
+            case AFTER_ACCESS:
+                builder.expireAfterAccess(options.getDuration());
+                break;
+            case AFTER_WRITE:
+                builder.expireAfterWrite(options.getDuration());
+                break;
+            case REFRESH_AFTER_WRITE:
+                builder.refreshAfterWrite(options.getDuration());
+                break;
+            default:
+                break;
+        }
+        return builder;
+    }
+
+    @Override
+    public byte[] getIfPresent(final IndexEntry indexEntry) {
+        return cache.getIfPresent(indexEntry);
+    }
+
+    @Override
+    public void put(final IndexEntry indexEntry, final byte[] article) {
+        cache.put(indexEntry, article);
+    }
+
+    @Override
+    public long hitCount() {
+        return cache.stats().hitCount();
+    }
+
+    @Override
+    public long missCount() {
+        return cache.stats().missCount();
+    }
+
+    @Override
+    public long evictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    @Override
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    @Override
+    public long weightedSize() {
+        // run pending evictions, so the size is within the bound
+        cache.cleanUp();
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(-1))
+                .orElse(-1L);
+    }
+
+    @Override
+    public void close() {
+        cache.invalidateAll();
+    }
+}
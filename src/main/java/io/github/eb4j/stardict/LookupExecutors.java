@@ -0,0 +1,58 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Default executor of asynchronous lookups.
+ * <p>
+ * On Java 21 and later it starts a virtual thread per lookup, so blocking
+ * reads of dictionary files do not hold platform threads; it is looked up
+ * reflectively because the library is built for Java 8. Otherwise the
+ * common fork join pool is used.
+ */
+final class LookupExecutors {
+
+    private static final Executor DEFAULT = createDefault();
+
+    private LookupExecutors() {
+    }
+
+    /**
+     * Get default executor of lookups.
+     * @return executor.
+     */
+    static Executor getDefault() {
+        return DEFAULT;
+    }
+
+    private static Executor createDefault() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) method.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // not available, or preview feature not enabled
+            return ForkJoinPool.commonPool();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+/**
+ * Listener of lookup, read and load events of a dictionary.
+ * <p>
+ * Set it with {@link LoadOptions.Builder#metrics(MetricsListener)}; without
+ * a listener nothing is measured. Methods are called on the threads doing
+ * the work, possibly concurrently, so they should be fast and thread safe.
+ * {@link DictionaryMetrics} is an implementation keeping counters and
+ * latency histograms.
+ */
+public interface MetricsListener {
+
+    /**
+     * Kinds of lookups.
+     */
+    enum LookupType {
+        /** Lookup of a word. */
+        EXACT,
+        /** Lookup of words starting with a prefix. */
+        PREDICTIVE,
+    }
+
+    /**
+     * Phases of loading a dictionary.
+     */
+    enum LoadPhase {
+        /** Parsing .idx or .idx.gz file and building the index. */
+        INDEX,
+        /** Parsing .syn or .syn.gz file. */
+        SYNONYMS,
+        /** Opening .dict or .dict.dz file. */
+        DICT,
+        /** Reading or writing index cache file. */
+        INDEX_CACHE,
+        /** Pass over memory mapped .idx file of lazy open. */
+        LAZY_INDEX,
+        /** Whole load, until the dictionary is returned. */
+        TOTAL,
+    }
+
+    /**
+     * Called after the index is searched. Streamed predictive lookups are not
+     * reported.
+     * @param type kind of lookup.
+     * @param hit true when any entry is found.
+     * @param nanos time to search the index.
+     */
+    default void onLookup(final LookupType type, final boolean hit, final long nanos) {
+    }
+
+    /**
+     * Called after article data is read from the data file, i.e. on article
+     * cache misses.
+     * @param bytes number of bytes read.
+     * @param nanos time to read.
+     */
+    default void onRead(final int bytes, final long nanos) {
+    }
+
+    /**
+     * Called after a dictzip chunk is inflated, i.e. on chunk cache misses.
+     * @param bytes number of inflated bytes.
+     * @param nanos time to read and inflate.
+     */
+    default void onChunkInflate(final int bytes, final long nanos) {
+    }
+
+    /**
+     * Called after a phase of loading. Phases may run in parallel, and with
+     * lazy open the index phases end after load returns.
+     * @param phase phase of loading.
+     * @param nanos time of the phase.
+     */
+    default void onLoadPhase(final LoadPhase phase, final long nanos) {
+    }
+}
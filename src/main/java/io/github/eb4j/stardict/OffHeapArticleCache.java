@@ -0,0 +1,354 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Article cache keeping article bytes in direct memory slabs.
+ * <p>
+ * Articles are appended to the current slab; when no slab is free, a slab is
+ * chosen by clock eviction, where a slab read since the hand last passed it
+ * gets a second chance, and all articles in it are dropped at once. Only a
+ * primitive map from article range to packed slab position, and the ranges
+ * stored in each slab, stay on the heap; no objects are kept per article. Articles
+ * longer than a slab are not cached. A hit copies the article into a new
+ * array, because a slab is overwritten once evicted.
+ */
+final class OffHeapArticleCache implements ArticleCache {
+
+    /** Largest slab size. */
+    static final int MAX_SLAB_SIZE = 1024 * 1024;
+
+    private static final int MIN_SLAB_SIZE = 64 * 1024;
+    private static final int MIN_SLABS = 8;
+    private static final int POSITION_BITS = 24;
+    private static final long POSITION_MASK = (1L << POSITION_BITS) - 1;
+    private static final int MAX_SLABS = 1 << 16;
+
+    private final int slabSize;
+    private final ByteBuffer[] slabs;
+    /** Start and length pairs of articles in each slab. */
+    private final long[][] slabMembers;
+    private final int[] memberCounts;
+    private final boolean[] referenced;
+    private final LocationMap index = new LocationMap();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private int allocated;
+    private int current = -1;
+    private int position;
+    private int hand;
+    private long weight;
+
+    /**
+     * Create cache with slab size derived from the budget.
+     * @param budget maximum total bytes of articles.
+     */
+    OffHeapArticleCache(final long budget) {
+        this(budget, slabSize(budget));
+    }
+
+    /**
+     * Create cache.
+     * @param budget maximum total bytes of articles.
+     * @param slabSize bytes of each slab.
+     */
+    OffHeapArticleCache(final long budget, final int slabSize) {
+        if (slabSize <= 0 || slabSize > POSITION_MASK) {
+            throw new IllegalArgumentException("Invalid slab size: " + slabSize);
+        }
+        long count = Math.max(1, budget / slabSize);
+        if (count > MAX_SLABS) {
+            throw new IllegalArgumentException("Too large off-heap cache: " + budget);
+        }
+        this.slabSize = slabSize;
+        slabs = new ByteBuffer[(int) count];
+        referenced = new boolean[slabs.length];
+        slabMembers = new long[slabs.length][];
+        memberCounts = new int[slabs.length];
+    }
+
+    private static int slabSize(final long budget) {
+        // at least MIN_SLABS slabs unless the budget is small, and slabs grow past MAX_SLAB_SIZE only
+        // when more than MAX_SLABS would be needed
+        long size = Math.min(MAX_SLAB_SIZE, Math.max(budget / MIN_SLABS, Math.min(budget, MIN_SLAB_SIZE)));
+        size = Math.max(size, (budget + MAX_SLABS - 1) / MAX_SLABS);
+        return (int) Math.min(Math.max(1, size), POSITION_MASK);
+    }
+
+    @Override
+    public byte[] getIfPresent(final IndexEntry indexEntry) {
+        lock.readLock().lock();
+        try {
+            long location = index.get(indexEntry.getStart(), indexEntry.getLen());
+            if (location == LocationMap.ABSENT) {
+                misses.increment();
+                return null;
+            }
+            int slab = (int) (location >>> (2 * POSITION_BITS));
+            int offset = (int) ((location >>> POSITION_BITS) & POSITION_MASK);
+            byte[] article = new byte[(int) (location & POSITION_MASK)];
+            ByteBuffer buffer = slabs[slab].duplicate();
+            buffer.position(offset);
+            buffer.get(article);
+            // racy update is fine, the bit is only a hint for eviction
+            referenced[slab] = true;
+            hits.increment();
+            return article;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(final IndexEntry indexEntry, final byte[] article) {
+        if (article.length > slabSize) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            long start = indexEntry.getStart();
+            int length = indexEntry.getLen();
+            if (index.get(start, length) != LocationMap.ABSENT) {
+                return;
+            }
+            if (current < 0 || position + article.length > slabSize) {
+                current = nextSlab();
+                position = 0;
+            }
+            ByteBuffer buffer = slabs[current].duplicate();
+            buffer.position(position);
+            buffer.put(article);
+            index.put(start, length, ((long) current << (2 * POSITION_BITS))
+                    | ((long) position << POSITION_BITS) | article.length);
+            addMember(current, start, length);
+            position += article.length;
+            weight += article.length;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Allocate a new slab while under budget, otherwise evict one.
+     * @return index of empty slab.
+     */
+    private int nextSlab() {
+        if (allocated < slabs.length) {
+            slabs[allocated] = ByteBuffer.allocateDirect(slabSize);
+            referenced[allocated] = true;
+            return allocated++;
+        }
+        while (referenced[hand]) {
+            referenced[hand] = false;
+            hand = (hand + 1) % slabs.length;
+        }
+        int victim = hand;
+        hand = (hand + 1) % slabs.length;
+        long[] members = slabMembers[victim];
+        for (int i = 0; i < memberCounts[victim]; i++) {
+            weight -= (index.remove(members[2 * i], (int) members[2 * i + 1]) & POSITION_MASK);
+        }
+        evictions.add(memberCounts[victim]);
+        memberCounts[victim] = 0;
+        referenced[victim] = true;
+        return victim;
+    }
+
+    private void addMember(final int slab, final long start, final int length) {
+        long[] members = slabMembers[slab];
+        int count = memberCounts[slab];
+        if (members == null) {
+            members = new long[32];
+        } else if (2 * count + 2 > members.length) {
+            members = Arrays.copyOf(members, IndexTable.grow(members.length, 2 * count + 2));
+        }
+        members[2 * count] = start;
+        members[2 * count + 1] = length;
+        slabMembers[slab] = members;
+        memberCounts[slab] = count + 1;
+    }
+
+    @Override
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long missCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long weightedSize() {
+        lock.readLock().lock();
+        try {
+            return weight;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            // direct memory is freed when the slabs are collected
+            index.clear();
+            for (int i = 0; i < slabs.length; i++) {
+                slabs[i] = null;
+                slabMembers[i] = null;
+                memberCounts[i] = 0;
+            }
+            allocated = 0;
+            current = -1;
+            weight = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Open addressing map from article start and length to packed location,
+     * with linear probing and backward shift deletion. A location is never
+     * -1, as offset and length in a slab cannot both be the largest value.
+     */
+    private static final class LocationMap {
+        static final long ABSENT = -1;
+        private static final int MIN_CAPACITY = 16;
+
+        private long[] starts;
+        private int[] lengths;
+        private long[] locations;
+        private int mask;
+        private int size;
+
+        LocationMap() {
+            allocate(MIN_CAPACITY);
+        }
+
+        private void allocate(final int capacity) {
+            starts = new long[capacity];
+            lengths = new int[capacity];
+            locations = new long[capacity];
+            Arrays.fill(locations, ABSENT);
+            mask = capacity - 1;
+        }
+
+        private int home(final long start, final int length) {
+            long hash = (start * 31 + length) * 0x9E3779B97F4A7C15L;
+            return (int) (hash >>> 32) & mask;
+        }
+
+        private int find(final long start, final int length) {
+            int i = home(start, length);
+            while (locations[i] != ABSENT && (starts[i] != start || lengths[i] != length)) {
+                i = (i + 1) & mask;
+            }
+            return i;
+        }
+
+        long get(final long start, final int length) {
+            return locations[find(start, length)];
+        }
+
+        /**
+         * Add a location of an absent key.
+         */
+        void put(final long start, final int length, final long location) {
+            if (4 * (size + 1) > 3 * locations.length) {
+                long[] oldStarts = starts;
+                int[] oldLengths = lengths;
+                long[] oldLocations = locations;
+                allocate(locations.length * 2);
+                for (int i = 0; i < oldLocations.length; i++) {
+                    if (oldLocations[i] != ABSENT) {
+                        int slot = find(oldStarts[i], oldLengths[i]);
+                        starts[slot] = oldStarts[i];
+                        lengths[slot] = oldLengths[i];
+                        locations[slot] = oldLocations[i];
+                    }
+                }
+            }
+            int slot = find(start, length);
+            starts[slot] = start;
+            lengths[slot] = length;
+            locations[slot] = location;
+            size++;
+        }
+
+        /**
+         * Remove a key.
+         * @return its location, or ABSENT.
+         */
+        long remove(final long start, final int length) {
+            int hole = find(start, length);
+            long location = locations[hole];
+            if (location == ABSENT) {
+                return ABSENT;
+            }
+            // shift back following keys which may not be found past the hole otherwise
+            int i = (hole + 1) & mask;
+            while (locations[i] != ABSENT) {
+                int home = home(starts[i], lengths[i]);
+                if (((i - home) & mask) >= ((i - hole) & mask)) {
+                    starts[hole] = starts[i];
+                    lengths[hole] = lengths[i];
+                    locations[hole] = locations[i];
+                    hole = i;
+                }
+                i = (i + 1) & mask;
+            }
+            locations[hole] = ABSENT;
+            size--;
+            return location;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            allocate(MIN_CAPACITY);
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Input stream which reads its source ahead on an executor.
+ * <p>
+ * A producer task reads blocks from the source, e.g. a GZIPInputStream, and
+ * hands them over through a bounded queue, so inflating and consuming run on
+ * two threads. When the executor runs the task in the calling thread, rejects
+ * it, or has not started it when the first block is needed, e.g. because the
+ * reader occupies its only thread, the source is read directly.
+ */
+final class ReadAheadInputStream extends InputStream {
+
+    private static final int BLOCK_SIZE = 256 * 1024;
+    private static final int QUEUE_DEPTH = 4;
+    private static final Block END = new Block(new byte[0]);
+
+    private final InputStream in;
+    private final BlockingQueue<Block> filled = new ArrayBlockingQueue<>(QUEUE_DEPTH);
+    private final BlockingQueue<Block> free = new ArrayBlockingQueue<>(QUEUE_DEPTH + 2);
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile boolean direct = false;
+    private volatile boolean closed = false;
+    private volatile IOException failure;
+    private Block current;
+    private int pos = 0;
+
+    /**
+     * Start reading ahead.
+     * @param in source stream, closed when this stream is closed.
+     * @param executor executor to run producer task.
+     */
+    ReadAheadInputStream(final InputStream in, final Executor executor) {
+        this.in = in;
+        Thread owner = Thread.currentThread();
+        try {
+            executor.execute(() -> {
+                if (!started.compareAndSet(false, true)) {
+                    // reader already went on directly
+                    return;
+                }
+                if (Thread.currentThread() == owner) {
+                    // same thread executor, producer would block on full queue
+                    direct = true;
+                    return;
+                }
+                produce();
+            });
+        } catch (RejectedExecutionException e) {
+            direct = true;
+        }
+    }
+
+    private void produce() {
+        try {
+            while (!closed) {
+                Block block = free.poll();
+                if (block == null) {
+                    block = new Block(new byte[BLOCK_SIZE]);
+                }
+                block.length = 0;
+                int n = 0;
+                while (block.length < block.data.length) {
+                    n = in.read(block.data, block.length, block.data.length - block.length);
+                    if (n < 0) {
+                        break;
+                    }
+                    block.length += n;
+                }
+                if (block.length > 0) {
+                    put(block);
+                }
+                if (n < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            failure = new InterruptedIOException();
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                put(END);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            try {
+                in.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    private void put(final Block block) throws InterruptedException {
+        while (!filled.offer(block, 100, TimeUnit.MILLISECONDS)) {
+            if (closed) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Get a block with unread bytes, or switch to direct reads when the
+     * producer has not started yet.
+     * @return false at end of stream.
+     */
+    private boolean nextBlock() throws IOException {
+        if (current != null && pos < current.length) {
+            return true;
+        }
+        if (current == END) {
+            return false;
+        }
+        if (current != null) {
+            free.offer(current);
+        }
+        try {
+            current = filled.poll(100, TimeUnit.MILLISECONDS);
+            while (current == null) {
+                if (started.compareAndSet(false, true)) {
+                    // producer is still queued, maybe behind this reader
+                    direct = true;
+                    return true;
+                }
+                current = filled.poll(100, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        pos = 0;
+        if (current == END) {
+            IOException e = failure;
+            if (e != null) {
+                throw e;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!direct && !nextBlock()) {
+            return -1;
+        }
+        if (direct) {
+            return in.read();
+        }
+        return current.data[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!direct && !nextBlock()) {
+            return -1;
+        }
+        if (direct) {
+            return in.read(b, off, len);
+        }
+        int n = Math.min(len, current.length - pos);
+        System.arraycopy(current.data, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (direct || started.compareAndSet(false, true)) {
+            // no producer reads the source
+            in.close();
+        } else {
+            // let producer leave a blocked put; it closes the source
+            filled.clear();
+        }
+    }
+
+    /**
+     * Block of read ahead bytes.
+     */
+    private static final class Block {
+        private final byte[] data;
+        private int length;
+
+        Block(final byte[] data) {
+            this.data = data;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only file channel for positional reads, which survives interrupts.
+ * <p>
+ * When a thread is interrupted during a read, the JDK closes the channel for
+ * all threads. The interrupted read still fails, but the channel is opened
+ * again, so later reads work as they did with RandomAccessFile.
+ */
+final class ReopeningChannel implements Closeable {
+
+    private final Path path;
+    private volatile FileChannel channel;
+    private boolean closed;
+
+    /**
+     * Open file.
+     * @param file file to read.
+     * @throws IOException when file cannot be opened.
+     */
+    ReopeningChannel(final File file) throws IOException {
+        path = file.toPath();
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+    }
+
+    /**
+     * Read bytes at a position, see {@link FileChannel#read(ByteBuffer, long)}.
+     * @param buffer buffer to fill.
+     * @param position file position.
+     * @return number of bytes read, or -1 at end of file.
+     * @throws IOException when read failed, this channel is closed, or the
+     *                     current thread was interrupted.
+     */
+    int read(final ByteBuffer buffer, final long position) throws IOException {
+        while (true) {
+            FileChannel current = channel;
+            try {
+                return current.read(buffer, position);
+            } catch (ClosedChannelException e) {
+                reopen(current, e);
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Size of file.
+     * @return size in bytes.
+     * @throws IOException when size cannot be read.
+     */
+    long size() throws IOException {
+        while (true) {
+            FileChannel current = channel;
+            try {
+                return current.size();
+            } catch (ClosedChannelException e) {
+                reopen(current, e);
+                if (Thread.currentThread().isInterrupted()) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    private synchronized void reopen(final FileChannel failed, final ClosedChannelException e)
+            throws IOException {
+        if (closed) {
+            throw e;
+        }
+        if (channel == failed) {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        closed = true;
+        channel.close();
+    }
+}
@@ -0,0 +1,265 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Article cache shared by many dictionaries under one budget.
+ * <p>
+ * Articles are keyed by dictionary and article range, so busy dictionaries
+ * use space left by idle ones. Attach dictionaries with
+ * {@link CacheOptions.Builder#sharedCache(SharedArticleCache)}; articles of
+ * a dictionary are dropped when it is closed. Statistics are always
+ * recorded, in total here and per dictionary on each dictionary, e.g.
+ * {@link StarDictDictionary#getCacheHitCount()}.
+ */
+public final class SharedArticleCache {
+
+    private final Cache<Key, byte[]> cache;
+    private final Map<Integer, Part> parts = new ConcurrentHashMap<>();
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    /**
+     * Create shared cache.
+     * @param options bound and expiry of the cache, usually bounded by
+     *                {@link CacheOptions.Builder#maximumWeight(long)}.
+     */
+    public SharedArticleCache(final CacheOptions options) {
+        if (options.getSharedCache() != null) {
+            throw new IllegalArgumentException("Shared cache cannot be nested");
+        }
+        Caffeine<Object, Object> builder = LocalArticleCache.newBuilder(options).recordStats();
+        if (options.isWeighted()) {
+            builder.weigher((Key key, byte[] article) -> key.length);
+        }
+        // notify removals in the removing thread, so sizes of parts are current when it returns
+        builder.executor(Runnable::run);
+        builder.removalListener((Key key, byte[] article, RemovalCause cause) -> {
+            if (key == null) {
+                return;
+            }
+            Part part = parts.get(key.dictionary);
+            if (part == null) {
+                return;
+            }
+            if (cause.wasEvicted()) {
+                part.evictions.increment();
+            }
+            if (cause != RemovalCause.REPLACED) {
+                part.count.decrement();
+                part.weight.add(-key.length);
+            }
+        });
+        if (options.getExpiry() == CacheOptions.Expiry.REFRESH_AFTER_WRITE) {
+            cache = builder.build((Key key) -> {
+                Part part = parts.get(key.dictionary);
+                if (part == null) {
+                    return null;
+                }
+                return part.reader.apply(new IndexEntry(key.start, key.length, null));
+            });
+        } else {
+            cache = builder.build();
+        }
+    }
+
+    /**
+     * Attach a dictionary.
+     * @param reader function to read article again on refresh.
+     * @return part of the cache for the dictionary.
+     */
+    ArticleCache attach(final Function<IndexEntry, byte[]> reader) {
+        Part part = new Part(sequence.incrementAndGet(), reader);
+        parts.put(part.dictionary, part);
+        return part;
+    }
+
+    /**
+     * Number of attached dictionaries.
+     * @return count.
+     */
+    public int getDictionaryCount() {
+        return parts.size();
+    }
+
+    /**
+     * Number of cache hits of all dictionaries.
+     * @return hit count.
+     */
+    public long getHitCount() {
+        return cache.stats().hitCount();
+    }
+
+    /**
+     * Number of cache misses of all dictionaries.
+     * @return miss count.
+     */
+    public long getMissCount() {
+        return cache.stats().missCount();
+    }
+
+    /**
+     * Number of evicted articles of all dictionaries.
+     * @return eviction count.
+     */
+    public long getEvictionCount() {
+        return cache.stats().evictionCount();
+    }
+
+    /**
+     * Approximate number of cached articles.
+     * @return count.
+     */
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Total bytes of cached articles.
+     * @return byte count, or -1 when the cache is not bounded by weight.
+     */
+    public long getWeightedSize() {
+        cache.cleanUp();
+        return cache.policy().eviction()
+                .map(eviction -> eviction.weightedSize().orElse(-1))
+                .orElse(-1L);
+    }
+
+    /**
+     * Key of an article of a dictionary.
+     */
+    private static final class Key {
+        private final int dictionary;
+        private final long start;
+        private final int length;
+
+        Key(final int dictionary, final IndexEntry indexEntry) {
+            this.dictionary = dictionary;
+            this.start = indexEntry.getStart();
+            this.length = indexEntry.getLen();
+        }
+
+        @Override
+        public int hashCode() {
+            return (dictionary * 31 + Long.hashCode(start)) * 31 + length;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return dictionary == other.dictionary && start == other.start && length == other.length;
+        }
+    }
+
+    /**
+     * Part of the cache used by one dictionary, with its own statistics.
+     * Size of the part is counted on insertion and removal.
+     */
+    private final class Part implements ArticleCache {
+        private final int dictionary;
+        private final Function<IndexEntry, byte[]> reader;
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder evictions = new LongAdder();
+        private final LongAdder count = new LongAdder();
+        private final LongAdder weight = new LongAdder();
+
+        Part(final int dictionary, final Function<IndexEntry, byte[]> reader) {
+            this.dictionary = dictionary;
+            this.reader = reader;
+        }
+
+        @Override
+        public byte[] getIfPresent(final IndexEntry indexEntry) {
+            byte[] article = cache.getIfPresent(new Key(dictionary, indexEntry));
+            if (article == null) {
+                misses.increment();
+            } else {
+                hits.increment();
+            }
+            return article;
+        }
+
+        @Override
+        public void put(final IndexEntry indexEntry, final byte[] article) {
+            Key key = new Key(dictionary, indexEntry);
+            if (cache.asMap().put(key, article) == null) {
+                count.increment();
+                weight.add(key.length);
+            }
+        }
+
+        @Override
+        public long hitCount() {
+            return hits.sum();
+        }
+
+        @Override
+        public long missCount() {
+            return misses.sum();
+        }
+
+        @Override
+        public long evictionCount() {
+            return evictions.sum();
+        }
+
+        @Override
+        public long size() {
+            return count.sum();
+        }
+
+        @Override
+        public long weightedSize() {
+            return weight.sum();
+        }
+
+        @Override
+        public void close() {
+            parts.remove(dictionary);
+            List<Key> keys = new ArrayList<>();
+            for (Key key : cache.asMap().keySet()) {
+                if (key.dictionary == dictionary) {
+                    keys.add(key);
+                }
+            }
+            cache.invalidateAll(keys);
+            // removals of a detached part are not counted
+            count.reset();
+            weight.reset();
+        }
+    }
+}
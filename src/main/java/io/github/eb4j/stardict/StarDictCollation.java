@@ -0,0 +1,203 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Headword order of StarDict index files.
+ * <p>
+ * StarDict sorts .idx and .syn files with {@code g_ascii_strcasecmp}, and
+ * breaks ties with {@code strcmp}. Both compare UTF-8 bytes as unsigned
+ * values, and only ASCII letters are case folded. All keys sharing a case
+ * folded prefix are therefore contiguous in an index file.
+ */
+final class StarDictCollation {
+
+    private StarDictCollation() {
+    }
+
+    private static int fold(final int b) {
+        if (b >= 'A' && b <= 'Z') {
+            return b + ('a' - 'A');
+        }
+        return b;
+    }
+
+    /**
+     * Compare a key stored in a buffer with a key in StarDict order.
+     * @param buffer buffer holding UTF-8 key.
+     * @param offset offset of key in buffer.
+     * @param length byte length of key.
+     * @param key UTF-8 key to compare with.
+     * @return negative, zero or positive as the stored key is less than, equal to or greater than key.
+     */
+    static int compare(final ByteBuffer buffer, final int offset, final int length, final byte[] key) {
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int a = fold(buffer.get(offset + i) & 0xff);
+            int b = fold(key[i] & 0xff);
+            if (a != b) {
+                return a - b;
+            }
+        }
+        if (length != key.length) {
+            return length - key.length;
+        }
+        for (int i = 0; i < n; i++) {
+            int a = buffer.get(offset + i) & 0xff;
+            int b = key[i] & 0xff;
+            if (a != b) {
+                return a - b;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Compare a key stored in an array with a key in StarDict order.
+     * @param array array holding UTF-8 key.
+     * @param offset offset of key in array.
+     * @param length byte length of key.
+     * @param key UTF-8 key to compare with.
+     * @return negative, zero or positive as the stored key is less than, equal to or greater than key.
+     */
+    static int compare(final byte[] array, final int offset, final int length, final byte[] key) {
+        return compare(array, offset, length, key, 0, key.length);
+    }
+
+    /**
+     * Compare two keys stored in arrays in StarDict order.
+     * @param a array holding first UTF-8 key.
+     * @param aOffset offset of first key.
+     * @param aLength byte length of first key.
+     * @param b array holding second UTF-8 key.
+     * @param bOffset offset of second key.
+     * @param bLength byte length of second key.
+     * @return negative, zero or positive as first key is less than, equal to or greater than second key.
+     */
+    static int compare(final byte[] a, final int aOffset, final int aLength, final byte[] b, final int bOffset,
+                       final int bLength) {
+        int n = Math.min(aLength, bLength);
+        for (int i = 0; i < n; i++) {
+            int x = fold(a[aOffset + i] & 0xff);
+            int y = fold(b[bOffset + i] & 0xff);
+            if (x != y) {
+                return x - y;
+            }
+        }
+        if (aLength != bLength) {
+            return aLength - bLength;
+        }
+        for (int i = 0; i < n; i++) {
+            int x = a[aOffset + i] & 0xff;
+            int y = b[bOffset + i] & 0xff;
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Compare two keys stored in a buffer in StarDict order.
+     * @param buffer buffer holding UTF-8 keys.
+     * @param aOffset offset of first key.
+     * @param aLength byte length of first key.
+     * @param bOffset offset of second key.
+     * @param bLength byte length of second key.
+     * @return negative, zero or positive as first key is less than, equal to or greater than second key.
+     */
+    static int compare(final ByteBuffer buffer, final int aOffset, final int aLength, final int bOffset,
+                       final int bLength) {
+        int n = Math.min(aLength, bLength);
+        for (int i = 0; i < n; i++) {
+            int x = fold(buffer.get(aOffset + i) & 0xff);
+            int y = fold(buffer.get(bOffset + i) & 0xff);
+            if (x != y) {
+                return x - y;
+            }
+        }
+        if (aLength != bLength) {
+            return aLength - bLength;
+        }
+        for (int i = 0; i < n; i++) {
+            int x = buffer.get(aOffset + i) & 0xff;
+            int y = buffer.get(bOffset + i) & 0xff;
+            if (x != y) {
+                return x - y;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Compare two keys in StarDict order.
+     * @param a UTF-8 key.
+     * @param b UTF-8 key.
+     * @return negative, zero or positive as a is less than, equal to or greater than b.
+     */
+    static int compare(final byte[] a, final byte[] b) {
+        return compare(a, 0, a.length, b);
+    }
+
+    /**
+     * Compare case folded key with first bytes of case folded prefix.
+     * @param buffer buffer holding UTF-8 key.
+     * @param offset offset of key in buffer.
+     * @param length byte length of key.
+     * @param prefix UTF-8 prefix.
+     * @param prefixLength number of bytes of prefix to compare.
+     * @return zero when key starts with prefix ignoring ASCII case, otherwise order of key against prefix.
+     */
+    static int compareFolded(final ByteBuffer buffer, final int offset, final int length, final byte[] prefix,
+                             final int prefixLength) {
+        int n = Math.min(length, prefixLength);
+        for (int i = 0; i < n; i++) {
+            int a = fold(buffer.get(offset + i) & 0xff);
+            int b = fold(prefix[i] & 0xff);
+            if (a != b) {
+                return a - b;
+            }
+        }
+        if (length < prefixLength) {
+            return -1;
+        }
+        return 0;
+    }
+
+    /**
+     * Whether a stored key starts with prefix, case sensitive.
+     * @param buffer buffer holding UTF-8 key.
+     * @param offset offset of key in buffer.
+     * @param length byte length of key.
+     * @param prefix UTF-8 prefix.
+     * @return true when key starts with prefix.
+     */
+    static boolean startsWith(final ByteBuffer buffer, final int offset, final int length, final byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(offset + i) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
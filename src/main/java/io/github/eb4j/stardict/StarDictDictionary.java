@@ -20,45 +20,88 @@
  */
 package io.github.eb4j.stardict;
 
-import com.github.benmanes.caffeine.cache.Caffeine;
-import com.github.benmanes.caffeine.cache.LoadingCache;
-
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Abstract base class to represent StarDict dictionary data.
  */
 public abstract class StarDictDictionary implements AutoCloseable {
 
-    private final LoadingCache<IndexEntry, String> cache;
+    /** Largest gap between articles read together by batch lookup. */
+    private static final long BATCH_MERGE_GAP = 4096;
+    /** Largest range read at once by batch lookup, unless a single article is larger. */
+    private static final long BATCH_MAX_READ = 1024 * 1024;
+
+    /** article cache of UTF-8 bytes. */
+    final ArticleCache cache;
+    /** metrics listener, or null when metrics are disabled. */
+    final MetricsListener listener;
+    private volatile ObjectName mbeanName;
+    private volatile CompletableFuture<FullTextIndex> fullText;
 
     /** dictionary index data. */
-    protected final DictionaryData<IndexEntry> data;
+    protected final DictionaryData data;
     /** dictionary metadata. */
     protected final StarDictInfo info;
 
     /**
      * Default constructor.
      * @param data collection of <code>IndexEntry</code>s loaded from file
-     * @param maxsize max size of cache.
-     * @param duration duration to keep in cache.
      * @param info metadata info.
+     * @param cacheOptions options of article cache.
+     */
+    StarDictDictionary(final DictionaryData data, final StarDictInfo info, final CacheOptions cacheOptions) {
+        this(data, info, cacheOptions, null);
+    }
+
+    /**
+     * Constructor with metrics.
+     * @param data collection of <code>IndexEntry</code>s loaded from file
+     * @param info metadata info.
+     * @param cacheOptions options of article cache.
+     * @param listener metrics listener, or null.
      */
-    StarDictDictionary(final DictionaryData<IndexEntry> data, final StarDictInfo info, final int maxsize,
-                              final Duration duration) {
+    StarDictDictionary(final DictionaryData data, final StarDictInfo info, final CacheOptions cacheOptions,
+                       final MetricsListener listener) {
         this.data = data;
         this.info = info;
-        cache = Caffeine.newBuilder()
-                .maximumSize(maxsize)
-                .expireAfterAccess(duration)
-                .build(e -> readArticle(e.getStart(), e.getLen()));
+        this.listener = listener;
+        SharedArticleCache sharedCache = cacheOptions.getSharedCache();
+        if (sharedCache != null) {
+            cache = sharedCache.attach(this::readForRefresh);
+        } else if (cacheOptions.isOffHeap()) {
+            cache = new OffHeapArticleCache(cacheOptions.getMaximumWeight());
+        } else {
+            cache = new LocalArticleCache(cacheOptions, listener != null, this::readForRefresh);
+        }
+    }
+
+    private byte[] readForRefresh(final IndexEntry indexEntry) {
+        return read(indexEntry.getStart(), indexEntry.getLen());
     }
 
     /**
@@ -75,9 +118,10 @@ public abstract class StarDictDictionary implements AutoCloseable {
         }
         Path dictPath = Paths.get(f + ".dict.dz");
         if (dictPath.toString().endsWith(".dz")) {
-            return StarDictLoader.load(ifoFile, 1_000, Duration.ofMinutes(15));
+            return StarDictLoader.load(ifoFile, CacheOptions.DEFAULT);
         } else {
-            return StarDictLoader.load(ifoFile, 500, Duration.ofMinutes(5));
+            return StarDictLoader.load(ifoFile, CacheOptions.builder().maximumSize(500)
+                    .expireAfterAccess(Duration.ofMinutes(5)).build());
         }
     }
 
@@ -88,10 +132,53 @@ public abstract class StarDictDictionary implements AutoCloseable {
      * @param duration cache expiry time.
      * @return StarDictDicitonary object.
      * @throws Exception when i/o error or parse error occurred.
+     * @deprecated use {@link #loadDictionary(File, CacheOptions)}.
      */
+    @Deprecated
     public static StarDictDictionary loadDictionary(final File ifoFile, final int cacheSize, final Duration duration)
             throws Exception {
-        return StarDictLoader.load(ifoFile, cacheSize, duration);
+        return StarDictLoader.load(ifoFile, StarDictLoader.cacheOptions(cacheSize, duration), LoadOptions.DEFAULT);
+    }
+
+    /**
+     * Builder utility method for StarDictDictionary.
+     * @param ifoFile .ifo file.
+     * @param cacheSize cache size of article.
+     * @param duration cache expiry time.
+     * @param options options of loading and data access.
+     * @return StarDictDicitonary object.
+     * @throws Exception when i/o error or parse error occurred.
+     * @deprecated use {@link #loadDictionary(File, CacheOptions, LoadOptions)}.
+     */
+    @Deprecated
+    public static StarDictDictionary loadDictionary(final File ifoFile, final int cacheSize, final Duration duration,
+                                                    final LoadOptions options) throws Exception {
+        return StarDictLoader.load(ifoFile, StarDictLoader.cacheOptions(cacheSize, duration), options);
+    }
+
+    /**
+     * Builder utility method for StarDictDictionary.
+     * @param ifoFile .ifo file.
+     * @param cacheOptions options of article cache.
+     * @return StarDictDicitonary object.
+     * @throws Exception when i/o error or parse error occurred.
+     */
+    public static StarDictDictionary loadDictionary(final File ifoFile, final CacheOptions cacheOptions)
+            throws Exception {
+        return StarDictLoader.load(ifoFile, cacheOptions, LoadOptions.DEFAULT);
+    }
+
+    /**
+     * Builder utility method for StarDictDictionary.
+     * @param ifoFile .ifo file.
+     * @param cacheOptions options of article cache.
+     * @param options options of loading and data access.
+     * @return StarDictDicitonary object.
+     * @throws Exception when i/o error or parse error occurred.
+     */
+    public static StarDictDictionary loadDictionary(final File ifoFile, final CacheOptions cacheOptions,
+                                                    final LoadOptions options) throws Exception {
+        return StarDictLoader.load(ifoFile, cacheOptions, options);
     }
 
     /**
@@ -118,26 +205,691 @@ public abstract class StarDictDictionary implements AutoCloseable {
         return info;
     }
 
+    /**
+     * Look up articles of the word.
+     * <p>
+     * Articles are read through the article cache when first requested
+     * from the returned entries, so listing words and types does no I/O.
+     * @param word word to look up.
+     * @return list of entries.
+     */
     public List<Entry> readArticles(final String word) {
+        return readArticles(word, KeyFolding.NONE);
+    }
+
+    /**
+     * Look up articles of headwords equal to the word under the folding,
+     * e.g. "Testudo" finds "testudo" with {@link KeyFolding#CASE}. Folded
+     * lookups need a folded index of the folding or a stronger one, see
+     * {@link LoadOptions.Builder#foldedIndex(KeyFolding)}.
+     * @param word word to look up.
+     * @param folding folding of the query, NONE for exact lookup.
+     * @return list of entries, with their original headwords.
+     * @throws IllegalStateException when no folded index answers the folding.
+     */
+    public List<Entry> readArticles(final String word, final KeyFolding folding) {
+        List<Entry> list = new ArrayList<>();
+        for (Map.Entry<String, IndexEntry> e : lookUp(word, folding)) {
+            list.add(new Entry(e, this, true));
+        }
+        return list;
+    }
+
+    /**
+     * Read articles of the word as raw UTF-8 bytes, without adding them to
+     * the article cache. For memory mapped .dict and .dict.dz dictionaries
+     * the bytes are a read-only view of the mapping or of the inflated chunk
+     * when the article is not split across segments or chunks, so they can
+     * be written out without creating a String.
+     * @param word word to look up.
+     * @return list of entries; use {@link Entry#getArticleBytes()}.
+     */
+    public List<Entry> readRawArticles(final String word) {
         List<Entry> list = new ArrayList<>();
-        for (Map.Entry<String, IndexEntry> e : data.lookUp(word)) {
-            Entry entry = new Entry(e.getKey(), getType(e.getValue()), cache.get(e.getValue()));
-            list.add(entry);
+        for (Map.Entry<String, IndexEntry> e : lookUp(word, KeyFolding.NONE)) {
+            list.add(new Entry(e, this, false));
         }
         return list;
     }
 
+    /**
+     * Read articles of many words at once.
+     * <p>
+     * All index entries are resolved first, and articles not in the article
+     * cache are read in order of their offsets. Articles close to each other
+     * are read together in one sequential read, so .dict.dz chunks are
+     * inflated once for the batch.
+     * @param words words to look up.
+     * @return entries of each word, in order of words. Words without entries are mapped to empty lists.
+     */
+    public Map<String, List<Entry>> readArticles(final Collection<String> words) {
+        Map<String, List<Map.Entry<String, IndexEntry>>> hits = new LinkedHashMap<>();
+        Map<IndexEntry, byte[]> articles = new HashMap<>();
+        List<IndexEntry> pending = new ArrayList<>();
+        for (String word : words) {
+            if (hits.containsKey(word)) {
+                continue;
+            }
+            List<Map.Entry<String, IndexEntry>> entries = lookUp(word, KeyFolding.NONE);
+            hits.put(word, entries);
+            for (Map.Entry<String, IndexEntry> e : entries) {
+                IndexEntry indexEntry = e.getValue();
+                if (articles.containsKey(indexEntry)) {
+                    continue;
+                }
+                byte[] article = cache.getIfPresent(indexEntry);
+                articles.put(indexEntry, article);
+                if (article == null) {
+                    pending.add(indexEntry);
+                }
+            }
+        }
+        pending.sort(Comparator.comparingLong(IndexEntry::getStart));
+        int i = 0;
+        while (i < pending.size()) {
+            // merge entries into one range while gaps are small
+            long rangeStart = pending.get(i).getStart();
+            long rangeEnd = rangeStart + pending.get(i).getLen();
+            int j = i + 1;
+            while (j < pending.size()) {
+                IndexEntry next = pending.get(j);
+                long end = Math.max(rangeEnd, next.getStart() + next.getLen());
+                if (next.getStart() - rangeEnd > BATCH_MERGE_GAP || end - rangeStart > BATCH_MAX_READ) {
+                    break;
+                }
+                rangeEnd = end;
+                j++;
+            }
+            byte[] range = read(rangeStart, (int) (rangeEnd - rangeStart));
+            for (int k = i; k < j; k++) {
+                IndexEntry indexEntry = pending.get(k);
+                byte[] article;
+                if (range == null) {
+                    // e.g. an entry beyond end of .dict.dz, read others alone
+                    article = read(indexEntry.getStart(), indexEntry.getLen());
+                } else {
+                    // range is shorter at end of file
+                    int offset = (int) Math.min(indexEntry.getStart() - rangeStart, range.length);
+                    int len = Math.min(indexEntry.getLen(), range.length - offset);
+                    article = Arrays.copyOfRange(range, offset, offset + len);
+                }
+                if (article != null) {
+                    articles.put(indexEntry, article);
+                    cache.put(indexEntry, article);
+                }
+            }
+            i = j;
+        }
+        Map<String, List<Entry>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, List<Map.Entry<String, IndexEntry>>> hit : hits.entrySet()) {
+            List<Entry> list = new ArrayList<>();
+            for (Map.Entry<String, IndexEntry> e : hit.getValue()) {
+                list.add(new Entry(e, wrap(articles.get(e.getValue()))));
+            }
+            result.put(hit.getKey(), list);
+        }
+        return result;
+    }
+
+    /**
+     * Read articles of all words starting with the given word.
+     * <p>
+     * Articles read here are not added to the article cache, so completion
+     * of short prefixes does not evict articles of exact lookups.
+     * @param word prefix of words.
+     * @return list of entries.
+     */
     public List<Entry> readArticlesPredictive(final String word) {
+        return readArticlesPredictive(word, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Read articles of words starting with the given word, up to limit
+     * entries. Articles are read when first requested from the entries.
+     * @param word prefix of words.
+     * @param limit maximum number of entries.
+     * @return list of entries in index order.
+     */
+    public List<Entry> readArticlesPredictive(final String word, final int limit) {
+        return readArticlesPredictive(word, limit, KeyFolding.NONE);
+    }
+
+    /**
+     * Read articles of headwords starting with the word under the folding,
+     * up to limit entries. Folded lookups need a folded index, see
+     * {@link #readArticles(String, KeyFolding)}.
+     * @param word prefix of words.
+     * @param limit maximum number of entries.
+     * @param folding folding of the query, NONE for exact prefix.
+     * @return list of entries in index order when NONE, otherwise in order of folded headwords.
+     * @throws IllegalStateException when no folded index answers the folding.
+     */
+    public List<Entry> readArticlesPredictive(final String word, final int limit, final KeyFolding folding) {
         List<Entry> list = new ArrayList<>();
-        for (Map.Entry<String, IndexEntry> e : data.lookUpPredictive(word)) {
-            Entry entry = new Entry(e.getKey(), getType(e.getValue()), cache.get(e.getValue()));
-            list.add(entry);
+        for (Map.Entry<String, IndexEntry> e : lookUpPredictive(word, limit, folding)) {
+            list.add(new Entry(e, this, false));
         }
         return list;
     }
 
-    private synchronized EntryType getType(final IndexEntry starDictEntry) {
-        return starDictEntry.getType();
+    /**
+     * Stream entries of headwords matching a wildcard pattern, where
+     * {@code *} matches any sequence and {@code ?} any one character, and a
+     * backslash escapes the next character. Only headwords starting with the
+     * literal part before the first wildcard are scanned, e.g. a few for
+     * {@code "testu?o"}, but all for {@code "*udo"}. The stream can be made
+     * parallel to spread the scan over key ranges. Articles are read when
+     * requested.
+     * @param pattern wildcard pattern, case sensitive.
+     * @return sequential stream of entries in index order.
+     * @throws IllegalStateException when the index opened lazily could not be loaded.
+     */
+    public Stream<Entry> streamArticlesMatching(final String pattern) {
+        return data.streamMatching(HeadwordPattern.glob(pattern), false)
+                .map(e -> new Entry(e, this, false));
+    }
+
+    /**
+     * Read entries of headwords matching a wildcard pattern, up to limit
+     * entries. When many headwords are candidates, e.g. when the pattern
+     * starts with a wildcard, they are scanned in parallel on the common
+     * fork join pool. See {@link #streamArticlesMatching(String)}.
+     * @param pattern wildcard pattern, case sensitive.
+     * @param limit maximum number of entries.
+     * @return list of entries in index order.
+     * @throws IllegalStateException when the index opened lazily could not be loaded.
+     */
+    public List<Entry> readArticlesMatching(final String pattern, final int limit) {
+        return readMatching(HeadwordPattern.glob(pattern), limit);
+    }
+
+    /**
+     * Read entries of headwords matching a regular expression as a whole,
+     * up to limit entries. All headwords are scanned, in parallel.
+     * @param regex regular expression.
+     * @param limit maximum number of entries.
+     * @return list of entries in index order.
+     * @throws IllegalStateException when the index opened lazily could not be loaded.
+     */
+    public List<Entry> readArticlesMatching(final Pattern regex, final int limit) {
+        return readMatching(HeadwordPattern.regex(regex), limit);
+    }
+
+    private List<Entry> readMatching(final HeadwordPattern pattern, final int limit) {
+        return data.streamMatching(pattern, true).limit(limit)
+                .map(e -> new Entry(e, this, false))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Read entries whose articles contain all terms of the text, e.g.
+     * {@code "tortue"} finds Latin headwords glossed as "tortue". Terms are
+     * runs of letters and digits, compared ignoring case and diacritics,
+     * in article text without markup. Each article is reported once, with
+     * its first headword in index order. Searches need a full-text index,
+     * see {@link LoadOptions.Builder#fullTextIndex(boolean)}.
+     * @param text words to search.
+     * @param limit maximum number of entries.
+     * @return list of entries in order of articles in the .dict file.
+     * @throws IllegalStateException when there is no full-text index, or it could not be built.
+     */
+    public List<Entry> readArticlesContaining(final String text, final int limit) {
+        return readArticlesContainingAll(Collections.singletonList(text), limit);
+    }
+
+    /**
+     * Read entries whose articles contain all terms of the queries.
+     * See {@link #readArticlesContaining(String, int)}.
+     * @param queries words to search.
+     * @param limit maximum number of entries.
+     * @return list of entries in order of articles in the .dict file.
+     * @throws IllegalStateException when there is no full-text index, or it could not be built.
+     */
+    public List<Entry> readArticlesContainingAll(final Collection<String> queries, final int limit) {
+        return search(queries, true, limit);
+    }
+
+    /**
+     * Read entries whose articles contain any term of the queries.
+     * See {@link #readArticlesContaining(String, int)}.
+     * @param queries words to search.
+     * @param limit maximum number of entries.
+     * @return list of entries in order of articles in the .dict file.
+     * @throws IllegalStateException when there is no full-text index, or it could not be built.
+     */
+    public List<Entry> readArticlesContainingAny(final Collection<String> queries, final int limit) {
+        return search(queries, false, limit);
+    }
+
+    private List<Entry> search(final Collection<String> queries, final boolean all, final int limit) {
+        FullTextIndex index = getFullTextIndex();
+        IndexTable table = data.getIndexTable();
+        int[] docs = index.search(queries, all);
+        List<Map.Entry<String, IndexEntry>> found = new ArrayList<>();
+        for (int i = 0; i < docs.length && i < limit; i++) {
+            index.collect(docs[i], table, found);
+        }
+        List<Entry> list = new ArrayList<>(found.size());
+        for (Map.Entry<String, IndexEntry> e : found) {
+            list.add(new Entry(e, this, false));
+        }
+        return list;
+    }
+
+    /**
+     * Open full-text index file, or build and write it, after background
+     * load when opened lazily.
+     * @param file index file.
+     * @param sources .ifo, .idx, .syn and .dict files, null when absent.
+     */
+    void buildFullTextIndex(final File file, final File... sources) {
+        fullText = data.whenReady().thenApply(v -> {
+            try {
+                return FullTextIndex.load(file, data.getIndexTable(), this::readRange, sources);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Get full-text index, waiting for it when it is being built.
+     * @return FullTextIndex object.
+     * @throws IllegalStateException when there is no full-text index, or it could not be built.
+     */
+    private FullTextIndex getFullTextIndex() {
+        CompletableFuture<FullTextIndex> future = fullText;
+        if (future == null) {
+            throw new IllegalStateException("No full-text index");
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new IllegalStateException("Full-text index could not be built", e.getCause());
+        }
+    }
+
+    /**
+     * Find headwords similar to the word, e.g. for "did you mean"
+     * suggestions when an exact lookup misses. Headwords within the maximum
+     * Levenshtein distance are returned closest first, up to limit. Articles
+     * are read when requested from entries of the matches, and are not added
+     * to the article cache.
+     * @param word word to look up.
+     * @param maxDistance maximum edit distance in code points; 1 or 2 is practical.
+     * @param limit maximum number of headwords.
+     * @return list of matches, closest first and then in index order.
+     * @throws IllegalStateException when the index opened lazily could not be loaded.
+     */
+    public List<FuzzyMatch> readArticlesFuzzy(final String word, final int maxDistance, final int limit) {
+        if (maxDistance < 0 || limit < 0) {
+            throw new IllegalArgumentException("Invalid distance or limit: " + maxDistance + ", " + limit);
+        }
+        List<FuzzyMatch> list = new ArrayList<>();
+        if (limit == 0) {
+            return list;
+        }
+        for (FuzzySearch.Match match : data.lookUpFuzzy(word, maxDistance, limit)) {
+            List<Entry> entries = new ArrayList<>();
+            for (Map.Entry<String, IndexEntry> e : match.getEntries()) {
+                entries.add(new Entry(e, this, false));
+            }
+            list.add(new FuzzyMatch(match.getWord(), match.getDistance(), entries));
+        }
+        return list;
+    }
+
+    /**
+     * Stream entries of words starting with the given word. Index is walked
+     * as the stream is consumed, e.g. with {@code limit(10)} only ten
+     * headwords are decoded, and articles are read when requested.
+     * @param word prefix of words.
+     * @return sequential stream of entries in index order.
+     */
+    public Stream<Entry> streamArticlesPredictive(final String word) {
+        return data.streamPredictive(word).map(e -> new Entry(e, this, false));
+    }
+
+    /**
+     * Number of headwords, including synonyms, in index order positions
+     * from 0. Waits for background load when opened lazily.
+     * @return headword count.
+     * @throws IllegalStateException when the index opened lazily could not be loaded.
+     */
+    public int getHeadwordCount() {
+        return data.getIndexTable().size();
+    }
+
+    /**
+     * Position of a word in index order, that is StarDict order of .idx
+     * files. Waits for background load when opened lazily.
+     * @param word word to look up.
+     * @return position of the word when it is a headword, otherwise of the
+     *         next headword, or {@link #getHeadwordCount()} when the word is after all headwords.
+     * @throws IllegalStateException when the index opened lazily could not be loaded.
+     */
+    public int getPosition(final String word) {
+        return data.position(word);
+    }
+
+    /**
+     * Headword at a position in index order.
+     * @param position position from 0 to {@link #getHeadwordCount()} - 1.
+     * @return headword.
+     * @throws IndexOutOfBoundsException when position is out of range.
+     * @throws IllegalStateException when the index opened lazily could not be loaded.
+     */
+    public String getHeadword(final int position) {
+        return data.getKey(position);
+    }
+
+    /**
+     * Headwords around a word in index order, e.g. for a word list next to
+     * the article being shown. When the word is a headword it is included
+     * between those before and after it, otherwise the list holds the
+     * headwords before and after the place it would have.
+     * @param word word to look up.
+     * @param before maximum number of headwords before the word.
+     * @param after maximum number of headwords after the word.
+     * @return headwords in index order.
+     * @throws IllegalArgumentException when a count is negative.
+     * @throws IllegalStateException when the index opened lazily could not be loaded.
+     */
+    public List<String> getNeighbors(final String word, final int before, final int after) {
+        if (before < 0 || after < 0) {
+            throw new IllegalArgumentException("Negative neighbor count");
+        }
+        int count = getHeadwordCount();
+        int position = getPosition(word);
+        int end = position;
+        if (position < count && getHeadword(position).equals(word)) {
+            end++;
+        }
+        int from = Math.max(0, position - before);
+        int to = (int) Math.min(count, (long) end + after);
+        List<String> result = new ArrayList<>(to - from);
+        for (int k = from; k < to; k++) {
+            result.add(getHeadword(k));
+        }
+        return result;
+    }
+
+    /**
+     * Stream entries of headwords from a position on, in index order.
+     * Headwords are visited as the stream is consumed, so paging through a
+     * word list with {@link Stream#limit(long)} costs the page only.
+     * Articles are read when requested.
+     * @param position position of first headword.
+     * @return sequential stream of entries.
+     * @throws IllegalStateException when the index opened lazily could not be loaded.
+     */
+    public Stream<Entry> streamArticlesFrom(final int position) {
+        return data.streamRange(position, Integer.MAX_VALUE)
+                .map(e -> new Entry(e, this, false));
+    }
+
+    /**
+     * Stream entries of headwords from a word, inclusive, to another,
+     * exclusive, in index order. Articles are read when requested.
+     * @param from first word of range.
+     * @param to word after range.
+     * @return sequential stream of entries.
+     * @throws IllegalStateException when the index opened lazily could not be loaded.
+     */
+    public Stream<Entry> streamArticlesInRange(final String from, final String to) {
+        return data.streamRange(data.position(from), data.position(to))
+                .map(e -> new Entry(e, this, false));
+    }
+
+    /**
+     * Load article of an entry.
+     * @param indexEntry index entry of article.
+     * @param useCache true to read through the article cache, false to use
+     *                 the cache when present and otherwise read without copy.
+     * @return article bytes, or null when read failed.
+     */
+    private ByteBuffer loadArticle(final IndexEntry indexEntry, final boolean useCache) {
+        if (useCache) {
+            return wrap(getArticleBytes(indexEntry));
+        }
+        ByteBuffer article = wrap(cache.getIfPresent(indexEntry));
+        if (article == null) {
+            article = readView(indexEntry.getStart(), indexEntry.getLen());
+        }
+        return article;
+    }
+
+    /**
+     * Load articles of entries, e.g. before handing them over from an
+     * asynchronous task.
+     */
+    private static List<Entry> load(final List<Entry> entries) {
+        for (Entry entry : entries) {
+            entry.getArticleBytes();
+        }
+        return entries;
+    }
+
+    /**
+     * Get article bytes through the article cache.
+     * <p>
+     * The cache keeps compact UTF-8 bytes rather than Strings. The article
+     * is read outside of cache locks, so a virtual thread is not pinned to
+     * its carrier while reading. Concurrent misses of the same article may
+     * read it more than once.
+     */
+    private byte[] getArticleBytes(final IndexEntry indexEntry) {
+        byte[] article = cache.getIfPresent(indexEntry);
+        if (article == null) {
+            article = read(indexEntry.getStart(), indexEntry.getLen());
+            if (article != null) {
+                cache.put(indexEntry, article);
+            }
+        }
+        return article;
+    }
+
+    private List<Map.Entry<String, IndexEntry>> lookUp(final String word, final KeyFolding folding) {
+        if (listener == null) {
+            return data.lookUp(word, folding);
+        }
+        long begin = System.nanoTime();
+        List<Map.Entry<String, IndexEntry>> result = data.lookUp(word, folding);
+        listener.onLookup(MetricsListener.LookupType.EXACT, !result.isEmpty(), System.nanoTime() - begin);
+        return result;
+    }
+
+    private List<Map.Entry<String, IndexEntry>> lookUpPredictive(final String word, final int limit,
+                                                                 final KeyFolding folding) {
+        if (listener == null) {
+            return data.lookUpPredictive(word, limit, folding);
+        }
+        long begin = System.nanoTime();
+        List<Map.Entry<String, IndexEntry>> result = data.lookUpPredictive(word, limit, folding);
+        listener.onLookup(MetricsListener.LookupType.PREDICTIVE, !result.isEmpty(), System.nanoTime() - begin);
+        return result;
+    }
+
+    /**
+     * Read bytes, reported to metrics listener.
+     */
+    private byte[] read(final long start, final int len) {
+        if (listener == null) {
+            return readBytes(start, len);
+        }
+        long begin = System.nanoTime();
+        byte[] result = readBytes(start, len);
+        if (result != null) {
+            listener.onRead(result.length, System.nanoTime() - begin);
+        }
+        return result;
+    }
+
+    /**
+     * Read buffer, reported to metrics listener.
+     */
+    private ByteBuffer readView(final long start, final int len) {
+        if (listener == null) {
+            return readBuffer(start, len);
+        }
+        long begin = System.nanoTime();
+        ByteBuffer result = readBuffer(start, len);
+        if (result != null) {
+            listener.onRead(result.remaining(), System.nanoTime() - begin);
+        }
+        return result;
+    }
+
+    private static ByteBuffer wrap(final byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        return ByteBuffer.wrap(bytes);
+    }
+
+    /**
+     * Read articles of the word on the default executor.
+     * @param word word to look up.
+     * @return future of entries.
+     * @see #readArticlesAsync(String, Executor)
+     */
+    public CompletableFuture<List<Entry>> readArticlesAsync(final String word) {
+        return readArticlesAsync(word, LookupExecutors.getDefault());
+    }
+
+    /**
+     * Read articles of the word on the given executor.
+     * @param word word to look up.
+     * @param executor executor to run lookup and reads.
+     * @return future of entries.
+     */
+    public CompletableFuture<List<Entry>> readArticlesAsync(final String word, final Executor executor) {
+        return CompletableFuture.supplyAsync(() -> load(readArticles(word)), executor);
+    }
+
+    /**
+     * Read articles of words starting with the given word on the default executor.
+     * @param word prefix of words.
+     * @param limit maximum number of entries.
+     * @return future of entries.
+     * @see #readArticlesPredictiveAsync(String, int, Executor)
+     */
+    public CompletableFuture<List<Entry>> readArticlesPredictiveAsync(final String word, final int limit) {
+        return readArticlesPredictiveAsync(word, limit, LookupExecutors.getDefault());
+    }
+
+    /**
+     * Read articles of words starting with the given word on the given executor.
+     * @param word prefix of words.
+     * @param limit maximum number of entries.
+     * @param executor executor to run lookup and reads.
+     * @return future of entries.
+     */
+    public CompletableFuture<List<Entry>> readArticlesPredictiveAsync(final String word, final int limit,
+                                                                      final Executor executor) {
+        return CompletableFuture.supplyAsync(() -> load(readArticlesPredictive(word, limit)), executor);
+    }
+
+    /**
+     * Read articles of many words at once on the default executor.
+     * @param words words to look up.
+     * @return future of entries by word.
+     * @see #readArticlesAsync(Collection, Executor)
+     */
+    public CompletableFuture<Map<String, List<Entry>>> readArticlesAsync(final Collection<String> words) {
+        return readArticlesAsync(words, LookupExecutors.getDefault());
+    }
+
+    /**
+     * Read articles of many words at once on the given executor.
+     * @param words words to look up, copied when called.
+     * @param executor executor to run lookup and reads.
+     * @return future of entries by word.
+     */
+    public CompletableFuture<Map<String, List<Entry>>> readArticlesAsync(final Collection<String> words,
+                                                                         final Executor executor) {
+        List<String> copy = new ArrayList<>(words);
+        return CompletableFuture.supplyAsync(() -> readArticles(copy), executor);
+    }
+
+    /**
+     * Number of article cache hits. Counted when a metrics listener is set
+     * or the cache is shared or off heap.
+     * @return hit count.
+     */
+    public long getCacheHitCount() {
+        return cache.hitCount();
+    }
+
+    /**
+     * Number of article cache misses. Counted when a metrics listener is set
+     * or the cache is shared or off heap.
+     * @return miss count.
+     */
+    public long getCacheMissCount() {
+        return cache.missCount();
+    }
+
+    /**
+     * Number of articles evicted from the article cache. Counted when a
+     * metrics listener is set or the cache is shared or off heap.
+     * @return eviction count.
+     */
+    public long getCacheEvictionCount() {
+        return cache.evictionCount();
+    }
+
+    /**
+     * Approximate number of cached articles of this dictionary.
+     * @return number of articles.
+     */
+    public long getCacheSize() {
+        return cache.size();
+    }
+
+    /**
+     * Approximate heap bytes of the folded index besides the main index.
+     * @return byte count, 0 when no folded index is built or it is being built.
+     */
+    public long getFoldedIndexBytes() {
+        return data.getFoldedIndexBytes();
+    }
+
+    /**
+     * Total bytes of cached articles of this dictionary.
+     * @return byte count, or -1 when the cache of the dictionary is bounded by number of articles.
+     */
+    public long getCacheWeightedSize() {
+        return cache.weightedSize();
+    }
+
+    /**
+     * Register JMX bean of this dictionary.
+     * @param metrics metrics the bean reads counters from.
+     * @throws JMException when registration failed.
+     */
+    void registerMBean(final DictionaryMetrics metrics) throws JMException {
+        mbeanName = DictionaryMBean.register(this, metrics);
+    }
+
+    /**
+     * Name of registered JMX bean.
+     * @return name, or null when not registered.
+     */
+    ObjectName getMBeanName() {
+        return mbeanName;
+    }
+
+    /**
+     * Unregister JMX bean when registered and drop cached articles; called on close.
+     */
+    void release() {
+        ObjectName name = mbeanName;
+        if (name != null) {
+            mbeanName = null;
+            DictionaryMBean.unregister(name);
+        }
+        cache.close();
     }
 
     /**
@@ -147,7 +899,46 @@ public abstract class StarDictDictionary implements AutoCloseable {
      * @param len   Length of article data
      * @return Raw article text
      */
-    protected abstract String readArticle(long start, int len);
+    protected String readArticle(final long start, final int len) {
+        byte[] bytes = readBytes(start, len);
+        if (bytes == null) {
+            return null;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Read bytes from the underlying file.
+     *
+     * @param start Start offset in data file
+     * @param len   Length of data
+     * @return Raw bytes, shorter than len at end of file, or null when read failed
+     */
+    protected abstract byte[] readBytes(long start, int len);
+
+    /**
+     * Read bytes from the underlying file, without copying when the data is
+     * already in memory.
+     *
+     * @param start Start offset in data file
+     * @param len   Length of data
+     * @return Buffer which must not be modified, or null when read failed
+     */
+    protected ByteBuffer readBuffer(final long start, final int len) {
+        return wrap(readBytes(start, len));
+    }
+
+    /**
+     * Read a large range of the underlying file for a sequential scan, not
+     * through caches of the dictionary.
+     *
+     * @param start Start offset in data file
+     * @param len   Length of data
+     * @return Raw bytes, shorter than len at end of file, or null when read failed
+     */
+    byte[] readRange(final long start, final int len) {
+        return readBytes(start, len);
+    }
 
     public abstract void close() throws IOException;
 
@@ -204,17 +995,61 @@ public abstract class StarDictDictionary implements AutoCloseable {
 
     /**
      * Dictionary article data class.
+     * <p>
+     * Article may be held as UTF-8 bytes, which are decoded when
+     * {@link #getArticle()} is first called. Entries returned by lookups
+     * read the article from the dictionary when it is first requested, so
+     * it should be requested before the dictionary is closed.
      */
     public static class Entry {
 
         private final String word;
+        private final String headword;
         private final EntryType type;
-        private final String article;
+        private final IndexEntry indexEntry;
+        private final StarDictDictionary dictionary;
+        private final boolean useCache;
+        private volatile ByteBuffer articleBytes;
+        private volatile String article;
 
         public Entry(final String word, final EntryType type, final String article) {
             this.word = word;
+            this.headword = word;
             this.type = type;
             this.article = article;
+            this.indexEntry = null;
+            this.dictionary = null;
+            this.useCache = false;
+        }
+
+        /**
+         * Entry with article in UTF-8.
+         * @param hit index hit of article.
+         * @param articleBytes UTF-8 article, which is not modified.
+         */
+        Entry(final Map.Entry<String, IndexEntry> hit, final ByteBuffer articleBytes) {
+            this.word = hit.getKey();
+            this.headword = headwordOf(hit);
+            this.type = hit.getValue().getType();
+            this.articleBytes = articleBytes;
+            this.indexEntry = null;
+            this.dictionary = null;
+            this.useCache = false;
+        }
+
+        /**
+         * Entry whose article is read when first requested.
+         * @param hit index hit of article.
+         * @param dictionary dictionary to read article from.
+         * @param useCache whether to read through the article cache.
+         */
+        Entry(final Map.Entry<String, IndexEntry> hit, final StarDictDictionary dictionary, final boolean useCache) {
+            this.word = hit.getKey();
+            this.headword = headwordOf(hit);
+            this.type = hit.getValue().getType();
+            this.indexEntry = hit.getValue();
+            this.dictionary = dictionary;
+            this.useCache = useCache;
         }
 
         /**
@@ -225,6 +1060,22 @@ public abstract class StarDictDictionary implements AutoCloseable {
             return word;
         }
 
+        /**
+         * Return headword of the article in .idx file. It differs from the
+         * entry word when the entry is found through a synonym of .syn file.
+         * @return headword of article.
+         */
+        public String getHeadword() {
+            return headword;
+        }
+
+        private static String headwordOf(final Map.Entry<String, IndexEntry> hit) {
+            if (hit instanceof IndexTable.SynonymEntry) {
+                return ((IndexTable.SynonymEntry) hit).getHeadword();
+            }
+            return hit.getKey();
+        }
+
         /**
          * Return entry type.
          * @return type enum value.
@@ -238,7 +1089,54 @@ public abstract class StarDictDictionary implements AutoCloseable {
          * @return article.
          */
         public String getArticle() {
-            return article;
+            String result = article;
+            if (result == null) {
+                ByteBuffer bytes = loadBytes();
+                if (bytes == null) {
+                    return null;
+                }
+                if (bytes.hasArray()) {
+                    result = new String(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining(),
+                            StandardCharsets.UTF_8);
+                } else {
+                    result = StandardCharsets.UTF_8.decode(bytes.duplicate()).toString();
+                }
+                // String is immutable, racing threads decode same value
+                article = result;
+            }
+            return result;
+        }
+
+        /**
+         * Article bytes, read from the dictionary on first call.
+         */
+        private ByteBuffer loadBytes() {
+            ByteBuffer bytes = articleBytes;
+            if (bytes == null && dictionary != null) {
+                // racing threads read same bytes
+                bytes = dictionary.loadArticle(indexEntry, useCache);
+                articleBytes = bytes;
+            }
+            return bytes;
+        }
+
+        /**
+         * Return article as UTF-8 bytes without decoding.
+         * @return read-only buffer positioned at start of article, or null when article could not be read.
+         */
+        public ByteBuffer getArticleBytes() {
+            String text = article;
+            if (articleBytes == null && dictionary == null) {
+                if (text == null) {
+                    return null;
+                }
+                return ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+            }
+            ByteBuffer bytes = loadBytes();
+            if (bytes == null) {
+                return null;
+            }
+            return bytes.asReadOnlyBuffer();
         }
     }
 }
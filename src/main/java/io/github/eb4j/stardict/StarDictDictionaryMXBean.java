@@ -0,0 +1,160 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+/**
+ * JMX view of a dictionary, registered when
+ * {@link LoadOptions.Builder#jmx(boolean)} is set, under
+ * {@code io.github.eb4j.stardict:type=StarDictDictionary,name=<book name>,id=<n>}.
+ * Latencies are in nanoseconds.
+ */
+public interface StarDictDictionaryMXBean {
+
+    /**
+     * Book name of the dictionary.
+     * @return name.
+     */
+    String getDictionaryName();
+
+    /**
+     * Approximate number of cached articles.
+     * @return count.
+     */
+    long getArticleCacheSize();
+
+    /**
+     * Article cache hits.
+     * @return count.
+     */
+    long getArticleCacheHitCount();
+
+    /**
+     * Article cache misses.
+     * @return count.
+     */
+    long getArticleCacheMissCount();
+
+    /**
+     * Ratio of article cache hits.
+     * @return ratio between 0 and 1.
+     */
+    double getArticleCacheHitRate();
+
+    /**
+     * Articles evicted from the article cache.
+     * @return count.
+     */
+    long getArticleCacheEvictionCount();
+
+    /**
+     * Heap bytes of the folded index.
+     * @return byte count, 0 when none is built.
+     */
+    long getFoldedIndexBytes();
+
+    /**
+     * Exact lookups.
+     * @return count.
+     */
+    long getExactLookupCount();
+
+    /**
+     * Exact lookups finding any entry.
+     * @return count.
+     */
+    long getExactLookupHitCount();
+
+    /**
+     * Mean time of exact lookups.
+     * @return nanoseconds.
+     */
+    double getExactLookupMeanNanos();
+
+    /**
+     * 99th percentile of time of exact lookups.
+     * @return nanoseconds, within a factor of two.
+     */
+    long getExactLookupP99Nanos();
+
+    /**
+     * Predictive lookups.
+     * @return count.
+     */
+    long getPredictiveLookupCount();
+
+    /**
+     * Predictive lookups finding any entry.
+     * @return count.
+     */
+    long getPredictiveLookupHitCount();
+
+    /**
+     * Mean time of predictive lookups.
+     * @return nanoseconds.
+     */
+    double getPredictiveLookupMeanNanos();
+
+    /**
+     * 99th percentile of time of predictive lookups.
+     * @return nanoseconds, within a factor of two.
+     */
+    long getPredictiveLookupP99Nanos();
+
+    /**
+     * Article reads from the data file.
+     * @return count.
+     */
+    long getReadCount();
+
+    /**
+     * Bytes read from the data file.
+     * @return byte count.
+     */
+    long getBytesRead();
+
+    /**
+     * Mean time of article reads.
+     * @return nanoseconds.
+     */
+    double getReadMeanNanos();
+
+    /**
+     * 99th percentile of time of article reads.
+     * @return nanoseconds, within a factor of two.
+     */
+    long getReadP99Nanos();
+
+    /**
+     * Inflated dictzip chunks.
+     * @return count.
+     */
+    long getChunksInflated();
+
+    /**
+     * Bytes of inflated dictzip chunks.
+     * @return byte count.
+     */
+    long getBytesInflated();
+
+    /**
+     * Time to load the dictionary.
+     * @return nanoseconds.
+     */
+    long getLoadNanos();
+}
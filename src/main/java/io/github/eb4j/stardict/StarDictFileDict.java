@@ -21,45 +21,63 @@
 package io.github.eb4j.stardict;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.charset.StandardCharsets;
-import java.time.Duration;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * Non-compressed .dict file access class.
+ * <p>
+ * Articles are read with positional reads on a FileChannel, which do not
+ * share a file pointer, so concurrent reads are safe. The channel is opened
+ * again when an interrupted reader closes it.
  */
 public class StarDictFileDict extends StarDictDictionary {
-    private final RandomAccessFile dataFile;
+    private final ReopeningChannel dataFile;
 
     /**
      * Constractor of non-compressed .dict data file access class.
      * @param info metadata info.
      * @param dictFile dictionary file.
      * @param data index data.
-     * @throws FileNotFoundException when dictionary file not found.
+     * @throws IOException when dictionary file not found.
      */
-    StarDictFileDict(final StarDictInfo info, final File dictFile, final DictionaryData<IndexEntry> data,
-                     final int cacheSize, final Duration duration) throws FileNotFoundException {
-        super(data, info, cacheSize, duration);
-        dataFile = new RandomAccessFile(dictFile, "r");
+    StarDictFileDict(final StarDictInfo info, final File dictFile, final DictionaryData data,
+                     final CacheOptions cacheOptions) throws IOException {
+        this(info, dictFile, data, cacheOptions, null);
+    }
+
+    /**
+     * Constractor with metrics listener.
+     * @param info metadata info.
+     * @param dictFile dictionary file.
+     * @param data index data.
+     * @param listener metrics listener, or null.
+     * @throws IOException when dictionary file not found.
+     */
+    StarDictFileDict(final StarDictInfo info, final File dictFile, final DictionaryData data,
+                     final CacheOptions cacheOptions, final MetricsListener listener) throws IOException {
+        super(data, info, cacheOptions, listener);
+        dataFile = new ReopeningChannel(dictFile);
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    protected String readArticle(final long start, final int len) {
-        String result = null;
+    protected byte[] readBytes(final long start, final int len) {
         try {
             byte[] data = new byte[len];
-            dataFile.seek(start);
-            int readLen = dataFile.read(data);
-            result = new String(data, 0, readLen, StandardCharsets.UTF_8);
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                if (dataFile.read(buffer, start + buffer.position()) < 0) {
+                    return Arrays.copyOf(data, buffer.position());
+                }
+            }
+            return data;
         } catch (IOException ignored) {
         }
-        return result;
+        return null;
     }
 
     /**
@@ -67,6 +85,7 @@ public class StarDictFileDict extends StarDictDictionary {
      */
     @Override
     public void close() throws IOException {
+        release();
         dataFile.close();
     }
 }
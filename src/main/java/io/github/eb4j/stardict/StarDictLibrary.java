@@ -0,0 +1,395 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Set of dictionaries found in a directory tree, searched together.
+ * <p>
+ * Dictionaries are loaded in parallel on a bounded number of threads.
+ * Lookups run on all dictionaries concurrently, and results are merged in
+ * order of dictionaries, which is the order of paths of their .ifo files.
+ * A lookup waits at most the timeout; dictionaries which have not answered
+ * by then are left out of the result.
+ */
+public final class StarDictLibrary implements AutoCloseable {
+
+    /** Default timeout of lookups. */
+    public static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(2);
+
+    private final List<StarDictDictionary> dictionaries;
+    private final Map<File, Exception> failures;
+    private final Executor executor;
+    private final Duration timeout;
+
+    private StarDictLibrary(final List<StarDictDictionary> dictionaries, final Map<File, Exception> failures,
+                            final Builder builder) {
+        this.dictionaries = Collections.unmodifiableList(dictionaries);
+        this.failures = Collections.unmodifiableMap(failures);
+        this.executor = builder.executor;
+        this.timeout = builder.timeout;
+    }
+
+    /**
+     * Create a builder of library.
+     * @return new Builder object.
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Load all dictionaries in the directory tree with default options.
+     * @param directory root directory.
+     * @return library.
+     * @throws IOException when directory cannot be scanned.
+     */
+    public static StarDictLibrary load(final File directory) throws IOException {
+        return builder().load(directory);
+    }
+
+    /**
+     * Loaded dictionaries.
+     * @return unmodifiable list of dictionaries in order of paths.
+     */
+    public List<StarDictDictionary> getDictionaries() {
+        return dictionaries;
+    }
+
+    /**
+     * Dictionaries failed to load.
+     * @return unmodifiable map of .ifo file to the error.
+     */
+    public Map<File, Exception> getFailures() {
+        return failures;
+    }
+
+    /**
+     * Read articles of the word from all dictionaries within the default timeout.
+     * @param word word to look up.
+     * @return entries tagged by dictionary.
+     */
+    public List<LibraryEntry> readArticles(final String word) {
+        return readArticles(word, timeout);
+    }
+
+    /**
+     * Read articles of the word from all dictionaries.
+     * @param word word to look up.
+     * @param queryTimeout maximum time to wait for dictionaries.
+     * @return entries tagged by dictionary, of dictionaries answered in time.
+     */
+    public List<LibraryEntry> readArticles(final String word, final Duration queryTimeout) {
+        return search(dictionary -> dictionary.readArticlesAsync(word, executor), queryTimeout);
+    }
+
+    /**
+     * Read articles of words starting with the given word from all
+     * dictionaries within the default timeout.
+     * @param word prefix of words.
+     * @param limit maximum number of entries of each dictionary.
+     * @return entries tagged by dictionary.
+     */
+    public List<LibraryEntry> readArticlesPredictive(final String word, final int limit) {
+        return readArticlesPredictive(word, limit, timeout);
+    }
+
+    /**
+     * Read articles of words starting with the given word from all dictionaries.
+     * @param word prefix of words.
+     * @param limit maximum number of entries of each dictionary.
+     * @param queryTimeout maximum time to wait for dictionaries.
+     * @return entries tagged by dictionary, of dictionaries answered in time.
+     */
+    public List<LibraryEntry> readArticlesPredictive(final String word, final int limit,
+                                                     final Duration queryTimeout) {
+        return search(dictionary -> dictionary.readArticlesPredictiveAsync(word, limit, executor), queryTimeout);
+    }
+
+    private List<LibraryEntry> search(
+            final Function<StarDictDictionary, CompletableFuture<List<StarDictDictionary.Entry>>> lookup,
+            final Duration queryTimeout) {
+        List<CompletableFuture<List<StarDictDictionary.Entry>>> futures = new ArrayList<>(dictionaries.size());
+        for (StarDictDictionary dictionary : dictionaries) {
+            futures.add(lookup.apply(dictionary));
+        }
+        long deadline = System.nanoTime() + queryTimeout.toNanos();
+        boolean waiting = true;
+        List<LibraryEntry> result = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+            CompletableFuture<List<StarDictDictionary.Entry>> future = futures.get(i);
+            if (waiting) {
+                try {
+                    future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    waiting = false;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    waiting = false;
+                } catch (ExecutionException e) {
+                    // a failed dictionary is left out
+                    continue;
+                }
+            }
+            if (!future.isDone() || future.isCompletedExceptionally()) {
+                future.cancel(false);
+                continue;
+            }
+            for (StarDictDictionary.Entry entry : future.getNow(Collections.emptyList())) {
+                result.add(new LibraryEntry(dictionaries.get(i), entry));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Close all dictionaries.
+     * @throws IOException when closing a dictionary failed; other
+     *                     dictionaries are still closed.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException error = null;
+        for (StarDictDictionary dictionary : dictionaries) {
+            try {
+                dictionary.close();
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                } else {
+                    error.addSuppressed(e);
+                }
+            }
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Entry of a dictionary in the library.
+     */
+    public static final class LibraryEntry {
+        private final StarDictDictionary dictionary;
+        private final StarDictDictionary.Entry entry;
+
+        LibraryEntry(final StarDictDictionary dictionary, final StarDictDictionary.Entry entry) {
+            this.dictionary = dictionary;
+            this.entry = entry;
+        }
+
+        /**
+         * Dictionary of the entry.
+         * @return dictionary.
+         */
+        public StarDictDictionary getDictionary() {
+            return dictionary;
+        }
+
+        /**
+         * Human readable name of dictionary of the entry.
+         * @return dictionary name.
+         */
+        public String getDictionaryName() {
+            return dictionary.getDictionaryName();
+        }
+
+        /**
+         * Entry of the dictionary.
+         * @return entry.
+         */
+        public StarDictDictionary.Entry getEntry() {
+            return entry;
+        }
+    }
+
+    /**
+     * Builder of StarDictLibrary.
+     */
+    public static final class Builder {
+        private CacheOptions cacheOptions = CacheOptions.DEFAULT;
+        private LoadOptions loadOptions = LoadOptions.DEFAULT;
+        private int parallelism = Runtime.getRuntime().availableProcessors();
+        private Executor executor = LookupExecutors.getDefault();
+        private Duration timeout = DEFAULT_TIMEOUT;
+
+        private Builder() {
+        }
+
+        /**
+         * Article cache options of each dictionary, e.g. with a
+         * {@link SharedArticleCache} for a budget of the whole library.
+         * @param options cache options.
+         * @return this builder.
+         */
+        public Builder cacheOptions(final CacheOptions options) {
+            this.cacheOptions = options;
+            return this;
+        }
+
+        /**
+         * Load options of each dictionary.
+         * @param options load options.
+         * @return this builder.
+         */
+        public Builder loadOptions(final LoadOptions options) {
+            this.loadOptions = options;
+            return this;
+        }
+
+        /**
+         * Number of threads to load dictionaries with.
+         * @param threads number of threads, default is number of processors.
+         * @return this builder.
+         */
+        public Builder parallelism(final int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("Invalid parallelism: " + threads);
+            }
+            this.parallelism = threads;
+            return this;
+        }
+
+        /**
+         * Executor to run lookups of dictionaries on.
+         * @param value executor, default is the executor of asynchronous lookups.
+         * @return this builder.
+         */
+        public Builder executor(final Executor value) {
+            this.executor = value;
+            return this;
+        }
+
+        /**
+         * Default timeout of lookups.
+         * @param value timeout.
+         * @return this builder.
+         */
+        public Builder timeout(final Duration value) {
+            if (value == null || value.isNegative()) {
+                throw new IllegalArgumentException("Invalid timeout: " + value);
+            }
+            this.timeout = value;
+            return this;
+        }
+
+        /**
+         * Load all dictionaries found in the directory tree. Dictionaries
+         * failed to load are reported by {@link StarDictLibrary#getFailures()}.
+         * @param directory root directory.
+         * @return library.
+         * @throws IOException when directory cannot be scanned.
+         */
+        public StarDictLibrary load(final File directory) throws IOException {
+            if (!directory.isDirectory()) {
+                throw new FileNotFoundException("Directory not found: " + directory);
+            }
+            List<File> ifoFiles;
+            try (Stream<Path> paths = Files.walk(directory.toPath())) {
+                ifoFiles = paths.filter(path -> path.getFileName().toString().endsWith(".ifo"))
+                        .filter(Files::isRegularFile)
+                        .sorted()
+                        .map(Path::toFile)
+                        .collect(Collectors.toList());
+            }
+            List<StarDictDictionary> loaded = new ArrayList<>(ifoFiles.size());
+            Map<File, Exception> errors = new LinkedHashMap<>();
+            if (ifoFiles.isEmpty()) {
+                return new StarDictLibrary(loaded, errors, this);
+            }
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, ifoFiles.size()));
+            List<CompletableFuture<StarDictDictionary>> futures = new ArrayList<>(ifoFiles.size());
+            int next = 0;
+            try {
+                for (File ifoFile : ifoFiles) {
+                    futures.add(CompletableFuture.supplyAsync(() -> {
+                        try {
+                            return StarDictLoader.load(ifoFile, cacheOptions, loadOptions);
+                        } catch (RuntimeException e) {
+                            throw e;
+                        } catch (Exception e) {
+                            throw new CompletionException(e);
+                        }
+                    }, pool));
+                }
+                for (; next < futures.size(); next++) {
+                    try {
+                        loaded.add(futures.get(next).get());
+                    } catch (ExecutionException e) {
+                        if (e.getCause() instanceof Error) {
+                            discard(pool, loaded, futures.subList(next + 1, futures.size()));
+                            throw (Error) e.getCause();
+                        }
+                        errors.put(ifoFiles.get(next), (Exception) e.getCause());
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                discard(pool, loaded, futures.subList(next, futures.size()));
+                throw new IOException("Interrupted while loading dictionaries", e);
+            } finally {
+                pool.shutdown();
+            }
+            return new StarDictLibrary(loaded, errors, this);
+        }
+
+        /**
+         * Stop loading after a failure: close what is already loaded, and
+         * close pending dictionaries as soon as their load still completes.
+         */
+        private static void discard(final ExecutorService pool, final List<StarDictDictionary> loaded,
+                                    final List<CompletableFuture<StarDictDictionary>> pending) {
+            pool.shutdownNow();
+            for (CompletableFuture<StarDictDictionary> future : pending) {
+                future.thenAccept(Builder::closeQuietly);
+            }
+            loaded.forEach(Builder::closeQuietly);
+        }
+
+        private static void closeQuietly(final StarDictDictionary dictionary) {
+            try {
+                dictionary.close();
+            } catch (IOException ignored) {
+                // the load already failed; report that rather than the close
+            }
+        }
+    }
+}
@@ -1,22 +1,23 @@
 package io.github.eb4j.stardict;
 
-import java.io.BufferedInputStream;
+import javax.management.JMException;
 import java.io.BufferedReader;
-import java.io.ByteArrayOutputStream;
-import java.io.DataInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
+import java.nio.MappedByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.time.Duration;
 import java.util.Map;
 import java.util.Optional;
 import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
-import java.util.zip.GZIPInputStream;
 
 /**
  * Dictionary driver for StarDict format.
@@ -37,6 +38,10 @@ import java.util.zip.GZIPInputStream;
  */
 public final class StarDictLoader {
 
+    /** Upper bound of initial index capacity when .idx.gz hides the real size. */
+    private static final int MAX_HINT_ENTRIES = 1 << 20;
+    private static final long MAX_HINT_KEY_BYTES = 1 << 24;
+
     private StarDictLoader() {
     }
 
@@ -47,9 +52,73 @@ public final class StarDictLoader {
      * @param duration duration to keep entry in cache.
      * @return StarDictDictionary object.
      * @throws Exception when dictionary file is invalid, or i/o error occurred.
+     * @deprecated use {@link #load(File, CacheOptions)}.
      */
+    @Deprecated
     public static StarDictDictionary load(final File ifoFile, final int cacheSize, final Duration duration)
             throws Exception {
+        return load(ifoFile, cacheOptions(cacheSize, duration), LoadOptions.DEFAULT);
+    }
+
+    /**
+     * load stardict dictionary file.
+     * @param ifoFile .ifo file of the dictionary to load.
+     * @param cacheSize size of entry cache.
+     * @param duration duration to keep entry in cache.
+     * @param options options of loading and data access.
+     * @return StarDictDictionary object.
+     * @throws Exception when dictionary file is invalid, or i/o error occurred.
+     * @deprecated use {@link #load(File, CacheOptions, LoadOptions)}.
+     */
+    @Deprecated
+    public static StarDictDictionary load(final File ifoFile, final int cacheSize, final Duration duration,
+                                          final LoadOptions options) throws Exception {
+        return load(ifoFile, cacheOptions(cacheSize, duration), options);
+    }
+
+    /**
+     * Article cache options of deprecated positional parameters.
+     * @param cacheSize maximum number of articles.
+     * @param duration duration to keep articles after last access.
+     * @return cache options.
+     */
+    static CacheOptions cacheOptions(final int cacheSize, final Duration duration) {
+        return CacheOptions.builder().maximumSize(cacheSize).expireAfterAccess(duration).build();
+    }
+
+    /**
+     * load stardict dictionary file.
+     * @param ifoFile .ifo file of the dictionary to load.
+     * @param cacheOptions options of article cache.
+     * @return StarDictDictionary object.
+     * @throws Exception when dictionary file is invalid, or i/o error occurred.
+     */
+    public static StarDictDictionary load(final File ifoFile, final CacheOptions cacheOptions) throws Exception {
+        return load(ifoFile, cacheOptions, LoadOptions.DEFAULT);
+    }
+
+    /**
+     * load stardict dictionary file.
+     * @param ifoFile .ifo file of the dictionary to load.
+     * @param cacheOptions options of article cache.
+     * @param options options of loading and data access.
+     * @return StarDictDictionary object.
+     * @throws Exception when dictionary file is invalid, or i/o error occurred.
+     */
+    public static StarDictDictionary load(final File ifoFile, final CacheOptions cacheOptions,
+                                          final LoadOptions options) throws Exception {
+        long begin = System.nanoTime();
+        MetricsListener listener = options.getMetrics();
+        DictionaryMetrics beanMetrics = null;
+        if (options.isJmx()) {
+            if (listener instanceof DictionaryMetrics) {
+                beanMetrics = (DictionaryMetrics) listener;
+            } else {
+                beanMetrics = new DictionaryMetrics();
+                listener = CompositeMetricsListener.of(listener, beanMetrics);
+            }
+        }
+        MetricsListener metrics = listener;
         Map<String, String> header = readIFO(ifoFile);
         StarDictInfo info = new StarDictInfo(header);
         String version = info.getVersion();
@@ -87,19 +156,172 @@ public final class StarDictLoader {
                 .orElseThrow(() -> new FileNotFoundException("No .idx file could be found"));
         File synFile = getFile(dictName, ".syn.gz", ".syn")
                 .orElse(null);
-        DictionaryData<IndexEntry> data = loadData(idxFile, synFile, idxoffsetbits == 64, types);
-
         File dictFile = getFile(dictName, ".dict.dz", ".dict")
                 .orElseThrow(() -> new FileNotFoundException("No .dict.dz or .dict files were found for " + dictName));
+        // .dict header is read while the index is loaded
+        CompletableFuture<DictFactory> dictFuture = submit(() -> {
+            long start = System.nanoTime();
+            DictFactory factory = openDict(info, dictFile, cacheOptions, options, metrics);
+            report(metrics, MetricsListener.LoadPhase.DICT, start);
+            return factory;
+        }, options.getExecutor());
+        DictionaryData data;
+        try {
+            IndexSource source = new IndexSource(ifoFile, idxFile, synFile, idxoffsetbits == 64, types,
+                    info.getWordCount(), getIdxFileSize(header));
+            data = loadIndex(source, dictName, options, metrics);
+            if (options.getFoldedIndex() != KeyFolding.NONE) {
+                data.buildFoldedIndex(options.getFoldedIndex());
+            }
+        } catch (Exception e) {
+            dictFuture.thenAccept(StarDictLoader::discard);
+            throw e;
+        }
+        StarDictDictionary dictionary = join(dictFuture).create(data);
+        if (options.isFullTextIndex()) {
+            dictionary.buildFullTextIndex(getCacheFile(dictName, options.getIndexCacheDirectory(),
+                    FullTextIndex.SUFFIX), ifoFile, idxFile, synFile, dictFile);
+        }
+        report(metrics, MetricsListener.LoadPhase.TOTAL, begin);
+        if (beanMetrics != null) {
+            try {
+                dictionary.registerMBean(beanMetrics);
+            } catch (JMException ignored) {
+                // JMX bean is optional, e.g. MBean server may refuse it
+            }
+        }
+        return dictionary;
+    }
+
+    /**
+     * Report time of a loading phase when metrics are enabled.
+     */
+    private static void report(final MetricsListener metrics, final MetricsListener.LoadPhase phase,
+                               final long begin) {
+        if (metrics != null) {
+            metrics.onLoadPhase(phase, System.nanoTime() - begin);
+        }
+    }
+
+    private static DictionaryData loadIndex(final IndexSource source, final String dictName,
+                                            final LoadOptions options, final MetricsListener metrics)
+            throws IOException {
+        File cacheFile = null;
+        if (options.isIndexCache()) {
+            cacheFile = getCacheFile(dictName, options.getIndexCacheDirectory(), IndexCacheFile.SUFFIX);
+            long begin = System.nanoTime();
+            IndexTable table = IndexCacheFile.read(cacheFile, source.ifoFile, source.idxFile, source.synFile);
+            if (table != null) {
+                report(metrics, MetricsListener.LoadPhase.INDEX_CACHE, begin);
+                return new DictionaryData(table);
+            }
+        }
+        if (options.isLazy() && !source.idxFile.getName().endsWith(".gz")) {
+            long begin = System.nanoTime();
+            LazyIndex lazy = LazyIndex.open(source.idxFile, source.off64, source.types, source.wordCount);
+            if (lazy != null) {
+                report(metrics, MetricsListener.LoadPhase.LAZY_INDEX, begin);
+                File cache = cacheFile;
+                // background load runs in one task, it must not wait for other tasks on the executor
+                IOSupplier<DictionaryData> task = () -> buildData(source, cache, null, metrics);
+                Executor executor = options.getExecutor();
+                if (executor == null) {
+                    executor = ForkJoinPool.commonPool();
+                }
+                return new DictionaryData(lazy, submit(task, executor));
+            }
+        }
+        return buildData(source, cacheFile, options.getExecutor(), metrics);
+    }
+
+    private static DictionaryData buildData(final IndexSource source, final File cacheFile,
+                                            final Executor executor, final MetricsListener metrics)
+            throws IOException {
+        DictionaryData data = loadData(source, executor, metrics);
+        if (cacheFile != null) {
+            try {
+                long begin = System.nanoTime();
+                IndexCacheFile.write(cacheFile, data.getIndexTable(), source.ifoFile, source.idxFile,
+                        source.synFile);
+                report(metrics, MetricsListener.LoadPhase.INDEX_CACHE, begin);
+            } catch (IOException ignored) {
+                // cache is optional, e.g. directory may be read only
+            }
+        }
+        return data;
+    }
 
+    /**
+     * Open .dict or .dict.dz file, that is read dictzip header or map the file.
+     */
+    private static DictFactory openDict(final StarDictInfo info, final File dictFile, final CacheOptions cacheOptions,
+                                        final LoadOptions options, final MetricsListener metrics)
+            throws IOException {
+        if (dictFile.getName().endsWith(".dz")) {
+            DictZipFile zipFile = new DictZipFile(dictFile);
+            return new DictFactory() {
+                @Override
+                public StarDictDictionary create(final DictionaryData data) {
+                    return new StarDictZipDict(info, zipFile, data, cacheOptions, options.getChunkCacheSize(),
+                            metrics);
+                }
+
+                @Override
+                public void discard() throws IOException {
+                    zipFile.close();
+                }
+            };
+        }
+        if (options.isMemoryMapped()) {
+            try {
+                MappedByteBuffer[] segments = StarDictMappedFileDict.map(dictFile);
+                return data -> new StarDictMappedFileDict(info, segments, data, cacheOptions, metrics);
+            } catch (IOException | UnsupportedOperationException ignored) {
+                // fall back to RandomAccessFile access
+            }
+        }
+        return data -> new StarDictFileDict(info, dictFile, data, cacheOptions, metrics);
+    }
+
+    private static void discard(final DictFactory factory) {
         try {
-            if (dictFile.getName().endsWith(".dz")) {
-                return new StarDictZipDict(info, dictFile, data, cacheSize, duration);
-            } else {
-                return new StarDictFileDict(info, dictFile, data, cacheSize, duration);
+            factory.discard();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /**
+     * Run a loading stage on executor, or in calling thread when executor is null.
+     */
+    private static <T> CompletableFuture<T> submit(final IOSupplier<T> task, final Executor executor) {
+        Stage<T> stage = new Stage<>(task);
+        if (executor == null) {
+            stage.run();
+        } else {
+            executor.execute(stage);
+        }
+        return stage;
+    }
+
+    private static <T> T join(final CompletableFuture<T> future) throws IOException {
+        if (future instanceof Stage) {
+            // not started yet, e.g. the executor is busy with this load itself
+            ((Stage<?>) future).run();
+        }
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
             }
-        } catch (IOException ex) {
-            throw new FileNotFoundException("No .dict.dz or .dict files were found for " + dictName);
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
         }
     }
 
@@ -128,80 +350,136 @@ public final class StarDictLoader {
         return result;
     }
 
+    private static File getCacheFile(final String dictName, final File directory, final String suffix) {
+        if (directory == null) {
+            return new File(dictName + suffix);
+        }
+        // dictionaries of same name may live in different directories
+        File base = new File(dictName).getAbsoluteFile();
+        return new File(directory, base.getName() + "-" + Integer.toHexString(base.getPath().hashCode())
+                + suffix);
+    }
+
     private static Optional<File> getFile(final String basename, final String... suffixes) {
         return Stream.of(suffixes).map(suff -> new File(basename + suff)).filter(File::isFile)
                 .findFirst();
     }
 
-    private static DictionaryData<IndexEntry> loadData(final File idxFile, final File synFile, final boolean off64,
-                                                       final StarDictDictionary.EntryType[] types) throws IOException {
-        DictionaryDataBuilder<IndexEntry> builder = new DictionaryDataBuilder<>();
-        InputStream is = new FileInputStream(idxFile);
+    private static long getIdxFileSize(final Map<String, String> header) {
         try {
-            if (idxFile.getName().endsWith(".gz")) {
-                is = new GZIPInputStream(is, 8192);
-            }
-            try (DataInputStream idx = new DataInputStream(new BufferedInputStream(is));
-                 ByteArrayOutputStream mem = new ByteArrayOutputStream()) {
-                int c = 0;
-                while (true) {
-                    c = c % types.length;
-                    int b = idx.read();
-                    if (b == -1) {
-                        break;
-                    }
-                    if (b == 0) {
-                        String key = new String(mem.toByteArray(), 0, mem.size(), StandardCharsets.UTF_8);
-                        mem.reset();
-                        long bodyOffset;
-                        if (off64) {
-                            bodyOffset = idx.readLong();
-                        } else {
-                            bodyOffset = idx.readInt();
-                        }
-                        int bodyLength = idx.readInt();
-                        builder.add(key, new IndexEntry(bodyOffset, bodyLength, types[c]));
-                        c++;
-                    } else {
-                        mem.write(b);
-                    }
-                }
-            }
-        } finally {
-            is.close();
+            return Long.parseLong(header.getOrDefault("idxfilesize", "0"));
+        } catch (NumberFormatException e) {
+            return 0;
         }
-        // when there is no syn file.
-        if (synFile == null) {
-            return builder.build();
+    }
 
+    private static DictionaryData loadData(final IndexSource source, final Executor executor,
+                                           final MetricsListener metrics) throws IOException {
+        File idxFile = source.idxFile;
+        File synFile = source.synFile;
+        int entrySize = 9;
+        if (source.off64) {
+            entrySize = 13;
         }
-        //
-        is = new FileInputStream(synFile);
-        try {
-            if (synFile.getName().endsWith(".gz")) {
-                is = new GZIPInputStream(is, 8192);
-            }
-            try (DataInputStream syn = new DataInputStream(new BufferedInputStream(is));
-                 ByteArrayOutputStream mem = new ByteArrayOutputStream()) {
-                while (true) {
-                    int b = syn.read();
-                    if (b == -1) {
-                        break;
-                    }
-                    if (b == 0) {
-                        String key = new String(mem.toByteArray(), 0, mem.size(), StandardCharsets.UTF_8);
-                        mem.reset();
-                        int index = syn.readInt();
-                        builder.addSynonym(key, index);
-                    } else {
-                        mem.write(b);
-                    }
-                }
+        // .ifo header values are only hints, never allocate more than the .idx file can hold
+        int entries = Math.max(0, source.wordCount);
+        long keyBytes = source.idxFileSize - (long) entrySize * entries;
+        if (idxFile.getName().endsWith(".gz")) {
+            entries = Math.min(entries, MAX_HINT_ENTRIES);
+            keyBytes = Math.min(keyBytes, MAX_HINT_KEY_BYTES);
+        } else {
+            long idxLength = idxFile.length();
+            entries = (int) Math.min(entries, idxLength / (entrySize + 1));
+            keyBytes = Math.min(keyBytes, idxLength);
+        }
+        CompletableFuture<DictionaryDataBuilder.Synonyms> synFuture = null;
+        if (synFile != null) {
+            synFuture = submit(() -> {
+                long begin = System.nanoTime();
+                // already a task on the executor: inflating .syn.gz on it too would wait behind this task
+                DictionaryDataBuilder.Synonyms synonyms = IndexFileParser.parseSynonyms(synFile, (Executor) null);
+                report(metrics, MetricsListener.LoadPhase.SYNONYMS, begin);
+                return synonyms;
+            }, executor);
+        }
+        long begin = System.nanoTime();
+        DictionaryDataBuilder builder = new DictionaryDataBuilder(entries, keyBytes);
+        IndexFileParser.parseIndex(idxFile, source.off64, source.types, builder, executor);
+        if (synFuture != null) {
+            builder.setSynonyms(join(synFuture));
+        }
+        DictionaryData data = builder.build();
+        // includes waiting for synonyms, which are resolved in build
+        report(metrics, MetricsListener.LoadPhase.INDEX, begin);
+        return data;
+    }
+
+    /**
+     * Index files of the dictionary being loaded, with the .ifo values
+     * needed to read them.
+     */
+    private static final class IndexSource {
+        private final File ifoFile;
+        private final File idxFile;
+        private final File synFile;
+        private final boolean off64;
+        private final StarDictDictionary.EntryType[] types;
+        private final int wordCount;
+        private final long idxFileSize;
+
+        IndexSource(final File ifoFile, final File idxFile, final File synFile, final boolean off64,
+                    final StarDictDictionary.EntryType[] types, final int wordCount, final long idxFileSize) {
+            this.ifoFile = ifoFile;
+            this.idxFile = idxFile;
+            this.synFile = synFile;
+            this.off64 = off64;
+            this.types = types;
+            this.wordCount = wordCount;
+            this.idxFileSize = idxFileSize;
+        }
+    }
+
+    /**
+     * Loading stage on an executor. The stage runs once, either on the
+     * executor or in the thread joining it before the executor started it.
+     * @param <T> result type.
+     */
+    private static final class Stage<T> extends CompletableFuture<T> implements Runnable {
+        private final IOSupplier<T> task;
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        Stage(final IOSupplier<T> task) {
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                complete(task.get());
+            } catch (IOException | RuntimeException | Error e) {
+                completeExceptionally(e);
             }
-        } finally {
-            is.close();
         }
-        return builder.build();
     }
 
+    /**
+     * Loading stage which may throw IOException.
+     * @param <T> result type.
+     */
+    private interface IOSupplier<T> {
+        T get() throws IOException;
+    }
+
+    /**
+     * Opened .dict file waiting for index data.
+     */
+    private interface DictFactory {
+        StarDictDictionary create(DictionaryData data) throws IOException;
+
+        default void discard() throws IOException {
+        }
+    }
 }
@@ -0,0 +1,146 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Non-compressed .dict file access class with memory mapped I/O.
+ * <p>
+ * The file is mapped in segments of at most 1GB, so files larger than 2GB
+ * can be accessed. Articles are copied or sliced straight out of the mapping, and OS page
+ * cache serves frequently read articles without read system calls.
+ */
+public class StarDictMappedFileDict extends StarDictDictionary {
+
+    private static final int SEGMENT_SHIFT = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_SHIFT;
+
+    private final MappedByteBuffer[] segments;
+    private final long fileSize;
+
+    /**
+     * Constructor of memory mapped .dict data file access class.
+     * @param info metadata info.
+     * @param dictFile dictionary file.
+     * @param data index data.
+     * @throws IOException when dictionary file not found or cannot be mapped.
+     */
+    StarDictMappedFileDict(final StarDictInfo info, final File dictFile, final DictionaryData data,
+                           final CacheOptions cacheOptions) throws IOException {
+        this(info, map(dictFile), data, cacheOptions, null);
+    }
+
+    /**
+     * Constructor with already mapped .dict file.
+     * @param info metadata info.
+     * @param segments mapped segments of dictionary file, from {@link #map(File)}.
+     * @param data index data.
+     * @param listener metrics listener, or null.
+     */
+    StarDictMappedFileDict(final StarDictInfo info, final MappedByteBuffer[] segments, final DictionaryData data,
+                           final CacheOptions cacheOptions, final MetricsListener listener) {
+        super(data, info, cacheOptions, listener);
+        this.segments = segments;
+        long size = 0;
+        for (MappedByteBuffer segment : segments) {
+            size += segment.capacity();
+        }
+        fileSize = size;
+    }
+
+    /**
+     * Map a .dict file in segments.
+     * @param dictFile dictionary file.
+     * @return mapped segments.
+     * @throws IOException when dictionary file not found or cannot be mapped.
+     */
+    static MappedByteBuffer[] map(final File dictFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(dictFile.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int count = (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_SHIFT);
+            MappedByteBuffer[] result = new MappedByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long position = i * SEGMENT_SIZE;
+                result[i] = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(SEGMENT_SIZE, size - position));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected byte[] readBytes(final long start, final int len) {
+        if (start < 0 || start >= fileSize) {
+            return null;
+        }
+        byte[] data = new byte[(int) Math.min(len, fileSize - start)];
+        int done = 0;
+        while (done < data.length) {
+            long position = start + done;
+            // duplicate keeps position of shared buffer untouched by concurrent readers
+            ByteBuffer segment = segments[(int) (position >>> SEGMENT_SHIFT)].duplicate();
+            segment.position((int) (position & (SEGMENT_SIZE - 1)));
+            int n = Math.min(data.length - done, segment.remaining());
+            segment.get(data, done, n);
+            done += n;
+        }
+        return data;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Data within one segment is a read-only view of the mapping.
+     */
+    @Override
+    protected ByteBuffer readBuffer(final long start, final int len) {
+        if (start < 0 || start >= fileSize) {
+            return null;
+        }
+        int length = (int) Math.min(len, fileSize - start);
+        int index = (int) (start >>> SEGMENT_SHIFT);
+        int offset = (int) (start & (SEGMENT_SIZE - 1));
+        if ((long) offset + length > segments[index].capacity()) {
+            // across segment boundary
+            return super.readBuffer(start, len);
+        }
+        ByteBuffer segment = segments[index].asReadOnlyBuffer();
+        segment.position(offset);
+        segment.limit(offset + length);
+        return segment.slice();
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The mapping itself is released when the buffers are garbage collected.
+     */
+    @Override
+    public void close() throws IOException {
+        release();
+    }
+}
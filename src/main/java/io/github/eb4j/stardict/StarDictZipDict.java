@@ -20,49 +20,176 @@
  */
 package io.github.eb4j.stardict;
 
-import org.dict.zip.DictZipInputStream;
-import org.dict.zip.RandomAccessInputStream;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
-import java.nio.charset.StandardCharsets;
-import java.time.Duration;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 /**
  * DictZip compressed .dict.dz file access class.
+ * <p>
+ * Inflated chunks are kept in a cache bounded by total bytes, under the
+ * article cache, so neighbouring articles are sliced out of the same chunk
+ * instead of inflating it again.
  */
 public class StarDictZipDict extends StarDictDictionary {
 
-    private final DictZipInputStream dataFile;
+    private final DictZipFile dataFile;
+    private final Cache<Integer, byte[]> chunkCache;
 
     /**
      * Constractor.
      * @param info metadata info.
      * @param dictFile dictionary file.
      * @param data index data.
+     * @param chunkCacheSize maximum total bytes of inflated chunks to cache.
      * @throws IOException when dictionary file not found, or compression is not recognized.
      */
-    StarDictZipDict(final StarDictInfo info, final File dictFile, final DictionaryData<IndexEntry> data,
-                    final int cacheSize, final Duration duration) throws Exception {
-        super(data, info, cacheSize, duration);
-        dataFile = new DictZipInputStream(new RandomAccessInputStream(new RandomAccessFile(dictFile, "r")));
+    StarDictZipDict(final StarDictInfo info, final File dictFile, final DictionaryData data,
+                    final CacheOptions cacheOptions, final long chunkCacheSize) throws IOException {
+        this(info, new DictZipFile(dictFile), data, cacheOptions, chunkCacheSize, null);
+    }
+
+    /**
+     * Constractor with dictzip file whose header is already read.
+     * @param info metadata info.
+     * @param dataFile opened dictzip file.
+     * @param data index data.
+     * @param chunkCacheSize maximum total bytes of inflated chunks to cache.
+     * @param listener metrics listener, or null.
+     */
+    StarDictZipDict(final StarDictInfo info, final DictZipFile dataFile, final DictionaryData data,
+                    final CacheOptions cacheOptions, final long chunkCacheSize, final MetricsListener listener) {
+        super(data, info, cacheOptions, listener);
+        this.dataFile = dataFile;
+        chunkCache = Caffeine.newBuilder()
+                .maximumWeight(chunkCacheSize)
+                .weigher((Integer index, byte[] chunk) -> chunk.length)
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Get inflated chunk. It is inflated outside of cache locks, so a
+     * virtual thread is not pinned while reading and inflating.
+     */
+    private byte[] getChunk(final int index) throws IOException {
+        byte[] chunk = chunkCache.getIfPresent(index);
+        if (chunk == null) {
+            if (listener == null) {
+                chunk = dataFile.inflateChunk(index);
+            } else {
+                long begin = System.nanoTime();
+                chunk = dataFile.inflateChunk(index);
+                listener.onChunkInflate(chunk.length, System.nanoTime() - begin);
+            }
+            chunkCache.put(index, chunk);
+        }
+        return chunk;
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    protected String readArticle(final long start, final int len) {
-        String result = null;
+    protected byte[] readBytes(final long start, final int len) {
         try {
-            dataFile.seek(start);
             byte[] data = new byte[len];
-            dataFile.readFully(data);
-            result = new String(data, StandardCharsets.UTF_8);
+            int chunkLength = dataFile.getChunkLength();
+            int done = 0;
+            while (done < len) {
+                long position = start + done;
+                byte[] chunk = getChunk((int) (position / chunkLength));
+                int offset = (int) (position % chunkLength);
+                if (offset >= chunk.length) {
+                    throw new EOFException();
+                }
+                int n = Math.min(len - done, chunk.length - offset);
+                System.arraycopy(chunk, offset, data, done, n);
+                done += n;
+            }
+            return data;
         } catch (IOException ignored) {
         }
-        return result;
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Data within one chunk is a read-only view of the cached chunk.
+     */
+    @Override
+    protected ByteBuffer readBuffer(final long start, final int len) {
+        int chunkLength = dataFile.getChunkLength();
+        int offset = (int) (start % chunkLength);
+        if (start < 0 || offset + len > chunkLength) {
+            // across chunk boundary
+            return super.readBuffer(start, len);
+        }
+        try {
+            byte[] chunk = getChunk((int) (start / chunkLength));
+            if (offset + len > chunk.length) {
+                // beyond end of file
+                return super.readBuffer(start, len);
+            }
+            return ByteBuffer.wrap(chunk, offset, len).slice().asReadOnlyBuffer();
+        } catch (IOException ignored) {
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Chunks are inflated in order without the chunk cache, so a scan does
+     * not evict chunks of recent lookups.
+     */
+    @Override
+    byte[] readRange(final long start, final int len) {
+        try {
+            byte[] data = new byte[len];
+            int chunkLength = dataFile.getChunkLength();
+            int done = 0;
+            while (done < len) {
+                long position = start + done;
+                int index = (int) (position / chunkLength);
+                if (index >= dataFile.getChunkCount()) {
+                    return Arrays.copyOf(data, done);
+                }
+                byte[] chunk = dataFile.inflateChunk(index);
+                int offset = (int) (position % chunkLength);
+                if (offset >= chunk.length) {
+                    return Arrays.copyOf(data, done);
+                }
+                int n = Math.min(len - done, chunk.length - offset);
+                System.arraycopy(chunk, offset, data, done, n);
+                done += n;
+            }
+            return data;
+        } catch (IOException ignored) {
+        }
+        return null;
+    }
+
+    /**
+     * Number of chunk reads served from the chunk cache.
+     * @return hit count.
+     */
+    public long getChunkCacheHitCount() {
+        return chunkCache.stats().hitCount();
+    }
+
+    /**
+     * Number of chunk reads that inflated the chunk.
+     * @return miss count.
+     */
+    public long getChunkCacheMissCount() {
+        return chunkCache.stats().missCount();
     }
 
     /**
@@ -70,6 +197,8 @@ public class StarDictZipDict extends StarDictDictionary {
      */
     @Override
     public void close() throws IOException {
+        release();
+        chunkCache.invalidateAll();
         dataFile.close();
     }
 }
@@ -0,0 +1,96 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CacheOptionsTest {
+
+    private static final File IFO = new File("src/test/resources/dicts-zipped/latin-francais.ifo");
+
+    @Test
+    public void testBuilder() {
+        CacheOptions options = CacheOptions.DEFAULT;
+        assertFalse(options.isWeighted());
+        assertEquals(CacheOptions.DEFAULT_MAXIMUM_SIZE, options.getMaximumSize());
+        assertEquals(CacheOptions.Expiry.AFTER_ACCESS, options.getExpiry());
+
+        options = CacheOptions.builder().maximumSize(10).maximumWeight(4096).noExpiry().build();
+        assertTrue(options.isWeighted());
+        assertEquals(-1, options.getMaximumSize());
+        assertEquals(4096, options.getMaximumWeight());
+        assertEquals(CacheOptions.Expiry.NONE, options.getExpiry());
+        assertNull(options.getDuration());
+
+        options = CacheOptions.builder().refreshAfterWrite(Duration.ofSeconds(1)).build();
+        assertEquals(CacheOptions.Expiry.REFRESH_AFTER_WRITE, options.getExpiry());
+        assertEquals(Duration.ofSeconds(1), options.getDuration());
+
+        assertThrows(IllegalArgumentException.class, () -> CacheOptions.builder().maximumWeight(-1));
+        assertThrows(IllegalArgumentException.class, () -> CacheOptions.builder().expireAfterWrite(null));
+    }
+
+    @Test
+    public void testWeightedCache() throws Exception {
+        CacheOptions options = CacheOptions.builder().maximumWeight(100).expireAfterWrite(Duration.ofMinutes(1))
+                .build();
+        try (StarDictDictionary dict = StarDictDictionary.loadDictionary(IFO, options)) {
+            // articles of 20 words are longer than 100 bytes in total
+            for (Map.Entry<String, IndexEntry> e : dict.data.lookUpPredictive("a", 20)) {
+                assertFalse(dict.readArticles(e.getKey()).get(0).getArticle().isEmpty());
+            }
+            long weight = dict.getCacheWeightedSize();
+            assertTrue(weight > 0);
+            assertTrue(weight <= 100);
+        }
+    }
+
+    @Test
+    public void testExpiryPolicies() throws Exception {
+        CacheOptions[] options = {
+            CacheOptions.builder().noExpiry().build(),
+            CacheOptions.builder().refreshAfterWrite(Duration.ofMillis(1)).build(),
+        };
+        for (CacheOptions option : options) {
+            try (StarDictDictionary dict = StarDictDictionary.loadDictionary(IFO, option)) {
+                assertEquals("dinis, f. : tortue", dict.readArticles("testudo").get(0).getArticle());
+                Thread.sleep(5);
+                assertEquals("dinis, f. : tortue", dict.readArticles("testudo").get(0).getArticle());
+            }
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testPositionalParameters() throws Exception {
+        try (StarDictDictionary dict = StarDictDictionary.loadDictionary(IFO, 100, Duration.ofMinutes(1))) {
+            assertEquals("dinis, f. : tortue", dict.readArticles("testudo").get(0).getArticle());
+            assertEquals(100, ((LocalArticleCache) dict.cache).cache.policy().eviction().get().getMaximum());
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DictZipFileTest {
+
+    private static final File DICT_DZ = new File("src/test/resources/dicts-zipped/latin-francais.dict.dz");
+
+    @Test
+    public void testChunksMatchGzipStream() throws Exception {
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new FileInputStream(DICT_DZ))) {
+            byte[] buf = new byte[8192];
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                expected.write(buf, 0, n);
+            }
+        }
+        ByteArrayOutputStream actual = new ByteArrayOutputStream();
+        try (DictZipFile dictZipFile = new DictZipFile(DICT_DZ)) {
+            assertEquals(58315, dictZipFile.getChunkLength());
+            assertEquals(7, dictZipFile.getChunkCount());
+            for (int i = dictZipFile.getChunkCount() - 1; i >= 0; i--) {
+                byte[] chunk = dictZipFile.inflateChunk(i);
+                if (i < dictZipFile.getChunkCount() - 1) {
+                    assertEquals(dictZipFile.getChunkLength(), chunk.length);
+                }
+            }
+            for (int i = 0; i < dictZipFile.getChunkCount(); i++) {
+                actual.write(dictZipFile.inflateChunk(i));
+            }
+            assertThrows(IOException.class, () -> dictZipFile.inflateChunk(dictZipFile.getChunkCount()));
+        }
+        assertArrayEquals(expected.toByteArray(), actual.toByteArray());
+    }
+
+    @Test
+    public void testNotDictZip() {
+        assertThrows(IOException.class,
+                () -> new DictZipFile(new File("src/test/resources/dicts-zipped/latin-francais.idx.gz")));
+    }
+
+    @Test
+    public void testTruncatedHeader(@TempDir final Path dir) throws Exception {
+        byte[] bytes = Files.readAllBytes(DICT_DZ.toPath());
+        for (int length : new int[] {11, 12, 16, 24, 40}) {
+            File file = Files.write(dir.resolve("truncated" + length + ".dict.dz"), Arrays.copyOf(bytes, length))
+                    .toFile();
+            assertThrows(IOException.class, () -> new DictZipFile(file));
+        }
+    }
+
+    @Test
+    public void testLoadCorruptDictZip(@TempDir final Path dir) throws Exception {
+        TestDictionaries.copy(TestDictionaries.DICTS_ZIPPED, dir, "latin-francais.ifo", "latin-francais.idx.gz");
+        Path dictDz = Files.write(dir.resolve("latin-francais.dict.dz"),
+                Arrays.copyOf(Files.readAllBytes(DICT_DZ.toPath()), 16));
+        IOException e = assertThrows(IOException.class,
+                () -> StarDictLoader.load(dir.resolve("latin-francais.ifo").toFile(), CacheOptions.DEFAULT));
+        assertEquals("Not a dictzip file: " + dictDz.toFile(), e.getMessage());
+    }
+}
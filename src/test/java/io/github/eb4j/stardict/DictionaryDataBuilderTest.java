@@ -0,0 +1,228 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DictionaryDataBuilderTest {
+
+    private static final StarDictDictionary.EntryType MEAN = StarDictDictionary.EntryType.MEAN;
+
+    private static byte[] utf8(final String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testSortedIndex() {
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        builder.add(utf8("Abc"), 0, 10, MEAN);
+        builder.add(utf8("abc"), 10, 10, MEAN);
+        builder.add(utf8("abc"), 20, 10, MEAN);
+        builder.add(utf8("abd"), 30, 10, MEAN);
+        builder.add(utf8("\u00e9t\u00e9"), 40, 10, MEAN);
+        DictionaryData data = builder.build();
+        assertEquals(4, data.size());
+        assertEquals(1, data.lookUp("Abc").size());
+        List<Map.Entry<String, IndexEntry>> result = data.lookUp("abc");
+        assertEquals(2, result.size());
+        assertEquals(10, result.get(0).getValue().getStart());
+        assertEquals(20, result.get(1).getValue().getStart());
+        assertEquals(MEAN, result.get(1).getValue().getType());
+        assertEquals(0, data.lookUp("ABC").size());
+        assertEquals(3, data.lookUpPredictive("ab").size());
+        assertEquals(1, data.lookUpPredictive("Ab").size());
+        assertEquals(1, data.lookUp("\u00e9t\u00e9").size());
+        assertEquals(1, data.lookUpPredictive("\u00e9").size());
+    }
+
+    @Test
+    public void testFoldedIndex() {
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        builder.add(utf8("R\u00e9sum\u00e9"), 0, 10, MEAN);
+        builder.add(utf8("resume"), 10, 10, MEAN);
+        builder.add(utf8("r\u00e9sum\u00e9"), 20, 10, MEAN);
+        builder.add(utf8("\ufb01nal"), 30, 10, MEAN);
+        builder.add(utf8("result"), 40, 10, MEAN);
+        DictionaryData data = builder.build();
+        assertThrows(IllegalStateException.class, () -> data.lookUp("resume", KeyFolding.CASE));
+        assertEquals(0, data.getFoldedIndexBytes());
+        data.buildFoldedIndex(KeyFolding.CASE_AND_DIACRITICS);
+        assertTrue(data.getFoldedIndexBytes() > 0);
+
+        assertTrue(data.lookUp("RESUME", KeyFolding.NONE).isEmpty());
+        assertEquals(Arrays.asList("R\u00e9sum\u00e9", "r\u00e9sum\u00e9"),
+                keys(data.lookUp("R\u00c9SUM\u00c9", KeyFolding.CASE)));
+        assertEquals(Arrays.asList("resume", "R\u00e9sum\u00e9", "r\u00e9sum\u00e9"),
+                keys(data.lookUp("resume", KeyFolding.CASE_AND_DIACRITICS)));
+        // compatibility decomposition of ligature
+        assertEquals(Arrays.asList("\ufb01nal"), keys(data.lookUp("FINAL", KeyFolding.CASE_AND_DIACRITICS)));
+        assertEquals(4, data.lookUpPredictive("res", 10, KeyFolding.CASE_AND_DIACRITICS).size());
+        assertEquals(2, data.lookUpPredictive("res", 2, KeyFolding.CASE_AND_DIACRITICS).size());
+        assertEquals(Arrays.asList("result", "resume"), keys(data.lookUpPredictive("RES", 10, KeyFolding.CASE)));
+    }
+
+    private static List<String> keys(final List<Map.Entry<String, IndexEntry>> entries) {
+        return entries.stream().map(Map.Entry::getKey).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testRange() {
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        builder.add(utf8("abd"), 0, 10, MEAN);
+        builder.add(utf8("abc"), 10, 10, MEAN);
+        builder.add(utf8("Abc"), 20, 10, MEAN);
+        builder.add(utf8("abc"), 30, 10, MEAN);
+        builder.add(utf8("b"), 40, 10, MEAN);
+        DictionaryData data = builder.build();
+        assertEquals(0, data.position("Abc"));
+        assertEquals(1, data.position("abc"));
+        assertEquals(2, data.position("abcd"));
+        assertEquals(4, data.position("c"));
+        assertEquals("abd", data.getKey(2));
+        assertThrows(IndexOutOfBoundsException.class, () -> data.getKey(4));
+        assertEquals("Abc abc abc abd b", keys(data.streamRange(0, Integer.MAX_VALUE)));
+        assertEquals("abc abc", keys(data.streamRange(1, 2)));
+        assertEquals("abd", keys(data.streamRange(data.position("abcd"), data.position("b"))));
+        assertEquals("", keys(data.streamRange(3, 2)));
+        assertEquals(30, data.streamRange(1, 2).skip(1).findFirst().get().getValue().getStart());
+    }
+
+    private static String keys(final Stream<Map.Entry<String, IndexEntry>> stream) {
+        return stream.map(Map.Entry::getKey).collect(Collectors.joining(" "));
+    }
+
+    @Test
+    public void testUnsortedIndex() {
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        builder.add(utf8("zeta"), 0, 10, MEAN);
+        builder.add(utf8("alpha"), 10, 10, MEAN);
+        builder.add(utf8("zeta"), 20, 10, MEAN);
+        builder.add(utf8("beta"), 30, 10, MEAN);
+        DictionaryData data = builder.build();
+        assertEquals(3, data.size());
+        List<Map.Entry<String, IndexEntry>> result = data.lookUp("zeta");
+        assertEquals(2, result.size());
+        assertEquals(0, result.get(0).getValue().getStart());
+        assertEquals(20, result.get(1).getValue().getStart());
+        assertEquals(10, data.lookUp("alpha").get(0).getValue().getStart());
+        assertEquals("beta", data.lookUpPredictive("b").get(0).getKey());
+    }
+
+    @Test
+    public void testUnsortedSameAsStableSort() {
+        Random random = new Random(42);
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 1 + random.nextInt(4);
+            for (int j = 0; j < length; j++) {
+                sb.append("abAB".charAt(random.nextInt(4)));
+            }
+            words.add(sb.toString());
+            builder.add(utf8(sb.toString()), i, 1, MEAN);
+        }
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < words.size(); i++) {
+            expected.add(i);
+        }
+        expected.sort((a, b) -> StarDictCollation.compare(utf8(words.get(a)), utf8(words.get(b))));
+        List<Integer> actual = builder.build().streamRange(0, Integer.MAX_VALUE)
+                .map(e -> (int) e.getValue().getStart()).collect(Collectors.toList());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testSynonyms() {
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        builder.add(utf8("abandon"), 0, 10, MEAN);
+        builder.add(utf8("abandoned"), 10, 10, MEAN);
+        builder.add(utf8("zoo"), 20, 10, MEAN);
+        builder.addSynonym(utf8("abandoned"), 0);
+        builder.addSynonym(utf8("nothing"), 2);
+        builder.addSynonym(utf8("zzz"), 1);
+        DictionaryData data = builder.build();
+        assertEquals(5, data.size());
+        // synonym gets the referred entry, marked with its headword
+        List<Map.Entry<String, IndexEntry>> result = data.lookUp("abandoned");
+        assertEquals(2, result.size());
+        assertEquals(10, result.get(0).getValue().getStart());
+        assertFalse(result.get(0) instanceof IndexTable.SynonymEntry);
+        assertEquals("abandoned", result.get(1).getKey());
+        assertEquals(0, result.get(1).getValue().getStart());
+        assertEquals("abandon", ((IndexTable.SynonymEntry) result.get(1)).getHeadword());
+        assertEquals(1, data.lookUp("abandon").size());
+        result = data.lookUp("nothing");
+        assertEquals(1, result.size());
+        assertEquals(20, result.get(0).getValue().getStart());
+        assertEquals("zoo", ((IndexTable.SynonymEntry) result.get(0)).getHeadword());
+        assertEquals("abandon abandoned abandoned nothing zoo zzz", keys(data.streamRange(0, data.size())));
+        assertEquals("abandoned", ((IndexTable.SynonymEntry) data.lookUp("zzz").get(0)).getHeadword());
+    }
+
+    @Test
+    public void testUnsortedSynonyms() {
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        builder.add(utf8("zeta"), 0, 10, MEAN);
+        builder.add(utf8("alpha"), 10, 10, MEAN);
+        builder.add(utf8("beta"), 20, 10, MEAN);
+        builder.addSynonym(utf8("omega"), 0);
+        builder.addSynonym(utf8("gamma"), 2);
+        builder.addSynonym(utf8("Alpha"), 1);
+        DictionaryData data = builder.build();
+        assertEquals(6, data.size());
+        // ordinals refer to .idx order, not to the sorted table
+        assertEquals(0, data.lookUp("omega").get(0).getValue().getStart());
+        assertEquals(20, data.lookUp("gamma").get(0).getValue().getStart());
+        assertEquals("beta", ((IndexTable.SynonymEntry) data.lookUp("gamma").get(0)).getHeadword());
+        // synonym differing from its headword only in case is kept apart from it
+        assertEquals("alpha", ((IndexTable.SynonymEntry) data.lookUp("Alpha").get(0)).getHeadword());
+        assertEquals(1, data.lookUp("alpha").size());
+    }
+
+    @Test
+    public void testPredictiveLimit() {
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        builder.add(utf8("aa"), 0, 10, MEAN);
+        builder.add(utf8("ab"), 10, 10, MEAN);
+        builder.add(utf8("ab"), 20, 10, MEAN);
+        builder.add(utf8("ac"), 30, 10, MEAN);
+        DictionaryData data = builder.build();
+        // limit may cut entries of a headword
+        List<Map.Entry<String, IndexEntry>> result = data.lookUpPredictive("a", 2);
+        assertEquals(2, result.size());
+        assertEquals(10, result.get(1).getValue().getStart());
+        assertEquals(4, data.lookUpPredictive("a", 10).size());
+        assertEquals(data.lookUpPredictive("a"), data.streamPredictive("a").collect(Collectors.toList()));
+        assertEquals(0, data.streamPredictive("b").count());
+    }
+}
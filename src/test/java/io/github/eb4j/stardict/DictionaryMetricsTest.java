@@ -0,0 +1,97 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DictionaryMetricsTest {
+
+    private static final File IFO = new File("src/test/resources/dicts-zipped/latin-francais.ifo");
+
+    @Test
+    public void testMetrics() throws Exception {
+        DictionaryMetrics metrics = new DictionaryMetrics();
+        LoadOptions options = LoadOptions.builder().metrics(metrics).jmx(true).build();
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name;
+        try (StarDictDictionary dict = StarDictDictionary.loadDictionary(IFO, CacheOptions.DEFAULT, options)) {
+            assertTrue(metrics.getLoadPhaseNanos(MetricsListener.LoadPhase.TOTAL) > 0);
+            assertTrue(metrics.getLoadPhaseNanos(MetricsListener.LoadPhase.INDEX) > 0);
+            assertTrue(metrics.getLoadPhaseNanos(MetricsListener.LoadPhase.DICT) > 0);
+
+            assertEquals("dinis, f. : tortue", dict.readArticles("testudo").get(0).getArticle());
+            assertEquals("dinis, f. : tortue", dict.readArticles("testudo").get(0).getArticle());
+            assertTrue(dict.readArticles("nonexistent").isEmpty());
+            assertFalse(dict.readArticlesPredictive("testa", 10).isEmpty());
+            assertEquals(3, metrics.getLookupCount(MetricsListener.LookupType.EXACT));
+            assertEquals(2, metrics.getLookupHitCount(MetricsListener.LookupType.EXACT));
+            assertEquals(1, metrics.getLookupCount(MetricsListener.LookupType.PREDICTIVE));
+            assertEquals(1, metrics.getLookupHitCount(MetricsListener.LookupType.PREDICTIVE));
+            assertTrue(metrics.getLookupPercentileNanos(MetricsListener.LookupType.EXACT, 99) > 0);
+            // second read is served from the article cache
+            assertEquals(1, metrics.getReadCount());
+            assertEquals("dinis, f. : tortue".length(), metrics.getBytesRead());
+            assertEquals(1, dict.getCacheHitCount());
+            assertEquals(1, dict.getCacheMissCount());
+            assertEquals(1, metrics.getChunksInflated());
+            assertTrue(metrics.getBytesInflated() > 0);
+
+            name = dict.getMBeanName();
+            assertNotNull(name);
+            assertEquals(3L, server.getAttribute(name, "ExactLookupCount"));
+            assertEquals(0.5, (Double) server.getAttribute(name, "ArticleCacheHitRate"), 0.001);
+            assertEquals("latin-français", server.getAttribute(name, "DictionaryName"));
+        }
+        assertFalse(server.isRegistered(name));
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        try (StarDictDictionary dict = StarDictDictionary.loadDictionary(IFO, CacheOptions.DEFAULT)) {
+            assertEquals("dinis, f. : tortue", dict.readArticles("testudo").get(0).getArticle());
+            assertEquals("dinis, f. : tortue", dict.readArticles("testudo").get(0).getArticle());
+            assertEquals(0, dict.getCacheHitCount());
+            assertEquals(1, dict.getCacheSize());
+        }
+    }
+
+    @Test
+    public void testHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100);
+        }
+        histogram.record(100_000);
+        assertEquals(100, histogram.getCount());
+        assertEquals(127, histogram.getPercentile(50));
+        assertEquals(127, histogram.getPercentile(99));
+        assertEquals(131071, histogram.getPercentile(100));
+        assertEquals(1099, histogram.getMean(), 0.001);
+    }
+}
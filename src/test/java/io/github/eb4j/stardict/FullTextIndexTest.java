@@ -0,0 +1,135 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FullTextIndexTest {
+
+    @Test
+    public void testTokenizer() {
+        String text = ArticleTokenizer.plainText("<i>La Tortue</i>&amp;r&#xE9;sum&#233; &bogus; 1<2",
+                StarDictDictionary.EntryType.HTML);
+        List<String> terms = new ArrayList<>();
+        ArticleTokenizer.tokenize(text, terms::add);
+        assertEquals(Arrays.asList("la", "tortue", "resume", "bogus", "1"), terms);
+        terms.clear();
+        ArticleTokenizer.tokenize(ArticleTokenizer.plainText("a<b>c", StarDictDictionary.EntryType.MEAN),
+                terms::add);
+        assertEquals(Arrays.asList("a", "b", "c"), terms);
+        assertTrue(ArticleTokenizer.isText(StarDictDictionary.EntryType.XDXF));
+        assertFalse(ArticleTokenizer.isText(StarDictDictionary.EntryType.PICTURE));
+    }
+
+    @Test
+    public void testBuild(@TempDir final Path dir) throws Exception {
+        ByteArrayOutputStream dict = new ByteArrayOutputStream();
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        add(builder, dict, "testudo", "tortue de mer", StarDictDictionary.EntryType.MEAN);
+        add(builder, dict, "chelone", "<b>Tortue</b> terrestre", StarDictDictionary.EntryType.HTML);
+        add(builder, dict, "felis", "chat", StarDictDictionary.EntryType.MEAN);
+        add(builder, dict, "imago", "tortue", StarDictDictionary.EntryType.PICTURE);
+        builder.addSynonym("testudinis".getBytes(StandardCharsets.UTF_8), 0);
+        IndexTable table = builder.build().getIndexTable();
+        byte[] bytes = dict.toByteArray();
+        FullTextIndex index = FullTextIndex.build(table, (start, length) ->
+                Arrays.copyOfRange(bytes, (int) start, (int) Math.min(bytes.length, start + length)));
+        assertEquals(3, index.size());
+        assertEquals("testudo chelone",
+                describe(index, table, index.search(Collections.singletonList("TORTUE"), true)));
+        assertEquals("testudo", describe(index, table, index.search(Collections.singletonList("mer tortue"), true)));
+        assertEquals("", describe(index, table, index.search(Arrays.asList("mer", "chat"), true)));
+        assertEquals("testudo felis", describe(index, table, index.search(Arrays.asList("mer", "chat"), false)));
+        assertEquals("", describe(index, table, index.search(Collections.singletonList("b"), false)));
+
+        File source = dir.resolve("test.dict").toFile();
+        Files.write(source.toPath(), bytes);
+        File file = dir.resolve("test" + FullTextIndex.SUFFIX).toFile();
+        index.write(file, null, null, null, source);
+        FullTextIndex mapped = FullTextIndex.read(file, table, null, null, null, source);
+        assertNotNull(mapped);
+        assertEquals(index.termCount(), mapped.termCount());
+        assertArrayEquals(index.search(Collections.singletonList("tortue"), true),
+                mapped.search(Collections.singletonList("tortue"), true));
+        Files.setLastModifiedTime(source.toPath(), FileTime.fromMillis(source.lastModified() - 10000));
+        assertNull(FullTextIndex.read(file, table, null, null, null, source));
+        FullTextIndex rebuilt = FullTextIndex.load(file, table, (start, length) -> bytes, null, null, null, source);
+        assertEquals(3, rebuilt.size());
+        assertNotNull(FullTextIndex.read(file, table, null, null, null, source));
+    }
+
+    @Test
+    public void testDictionary(@TempDir final Path dir) throws Exception {
+        File ifo = new File(TestDictionaries.DICTS, "latin-francais.ifo");
+        LoadOptions options = LoadOptions.builder().fullTextIndex(true).indexCacheDirectory(dir.toFile()).build();
+        try (StarDictDictionary dict = StarDictDictionary.loadDictionary(ifo, CacheOptions.DEFAULT, options)) {
+            List<StarDictDictionary.Entry> result = dict.readArticlesContaining("tortue", 100);
+            assertTrue(result.stream().anyMatch(e -> e.getWord().equals("testudo")));
+            for (StarDictDictionary.Entry entry : result) {
+                assertTrue(KeyFolding.CASE_AND_DIACRITICS.fold(entry.getArticle()).contains("tortue"));
+            }
+            assertEquals(1, dict.readArticlesContaining("tortue", 1).size());
+            assertTrue(dict.readArticlesContainingAny(Arrays.asList("tortue", "chat"), 1000).size()
+                    > result.size());
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.filter(p -> p.toString().endsWith(FullTextIndex.SUFFIX)).count());
+        }
+        try (StarDictDictionary dict = StarDictDictionary.loadDictionary(ifo, CacheOptions.DEFAULT)) {
+            assertThrows(IllegalStateException.class, () -> dict.readArticlesContaining("tortue", 10));
+        }
+    }
+
+    private static void add(final DictionaryDataBuilder builder, final ByteArrayOutputStream dict, final String word,
+                            final String article, final StarDictDictionary.EntryType type) {
+        byte[] bytes = article.getBytes(StandardCharsets.UTF_8);
+        builder.add(word.getBytes(StandardCharsets.UTF_8), dict.size(), bytes.length, type);
+        dict.write(bytes, 0, bytes.length);
+    }
+
+    private static String describe(final FullTextIndex index, final IndexTable table, final int[] docs) {
+        List<Map.Entry<String, IndexEntry>> entries = new ArrayList<>();
+        for (int doc : docs) {
+            index.collect(doc, table, entries);
+        }
+        return entries.stream().map(Map.Entry::getKey).collect(Collectors.joining(" "));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FuzzySearchTest {
+
+    private static final StarDictDictionary.EntryType MEAN = StarDictDictionary.EntryType.MEAN;
+
+    @Test
+    public void testFuzzySearch() {
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        String[] words = {"Testudo", "testudo", "testa", "test", "tesla", "r\u00e9sum\u00e9", "resume", "toast"};
+        for (int i = 0; i < words.length; i++) {
+            builder.add(words[i].getBytes(StandardCharsets.UTF_8), i * 10, 10, MEAN);
+        }
+        IndexTable table = builder.build().getIndexTable();
+        List<FuzzySearch.Match> result = FuzzySearch.search(table, "testudo", 1, 10);
+        assertEquals(2, result.size());
+        assertEquals("testudo", result.get(0).getWord());
+        assertEquals(0, result.get(0).getDistance());
+        assertEquals("Testudo", result.get(1).getWord());
+        assertEquals(1, result.get(1).getDistance());
+        assertEquals(0, result.get(1).getEntries().get(0).getValue().getStart());
+
+        // distance counts code points, not bytes
+        result = FuzzySearch.search(table, "resume", 2, 10);
+        assertEquals("resume", result.get(0).getWord());
+        assertEquals("r\u00e9sum\u00e9", result.get(1).getWord());
+        assertEquals(2, result.get(1).getDistance());
+
+        // closest first, then index order, up to limit
+        result = FuzzySearch.search(table, "tesa", 1, 3);
+        assertEquals("tesla:1 test:1 testa:1", describe(result));
+        result = FuzzySearch.search(table, "tesa", 1, 2);
+        assertEquals("tesla:1 test:1", describe(result));
+    }
+
+    @Test
+    public void testSameAsBruteForce() {
+        Random random = new Random(42);
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 3000; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 1 + random.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                sb.append("abcABC\u00e9".charAt(random.nextInt(7)));
+            }
+            words.add(sb.toString());
+            builder.add(sb.toString().getBytes(StandardCharsets.UTF_8), i, 1, MEAN);
+        }
+        IndexTable table = builder.build().getIndexTable();
+        for (String query : new String[] {"abca", "Ab\u00e9", "", "cccccccc"}) {
+            for (int distance = 0; distance <= 2; distance++) {
+                int bound = distance;
+                List<String> expected = words.stream().distinct()
+                        .filter(w -> levenshtein(query, w) <= bound)
+                        .sorted(Comparator.comparingInt((String w) -> levenshtein(query, w))
+                                .thenComparingInt(w -> table.find(w.getBytes(StandardCharsets.UTF_8))))
+                        .limit(20)
+                        .collect(Collectors.toList());
+                List<String> actual = FuzzySearch.search(table, query, distance, 20).stream()
+                        .map(FuzzySearch.Match::getWord).collect(Collectors.toList());
+                assertEquals(expected, actual, query + " " + distance);
+            }
+        }
+    }
+
+    @Test
+    public void testDictionary() throws Exception {
+        File ifo = new File("src/test/resources/dicts/latin-francais.ifo");
+        try (StarDictDictionary dict = StarDictDictionary.loadDictionary(ifo, CacheOptions.DEFAULT)) {
+            assertTrue(dict.readArticles("testudi").isEmpty());
+            List<FuzzyMatch> result = dict.readArticlesFuzzy("testudi", 1, 5);
+            assertEquals("testudo", result.get(0).getWord());
+            assertEquals(1, result.get(0).getDistance());
+            assertEquals("dinis, f. : tortue", result.get(0).getEntries().get(0).getArticle());
+            assertTrue(dict.readArticlesFuzzy("testudi", 1, 0).isEmpty());
+            assertThrows(IllegalArgumentException.class, () -> dict.readArticlesFuzzy("testudi", -1, 5));
+        }
+    }
+
+    private static String describe(final List<FuzzySearch.Match> matches) {
+        return matches.stream().map(m -> m.getWord() + ":" + m.getDistance()).collect(Collectors.joining(" "));
+    }
+
+    private static int levenshtein(final String a, final String b) {
+        return FuzzySearch.distance(a.codePoints().toArray(), b.codePoints().toArray(), Integer.MAX_VALUE - 1);
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class HeadwordPatternTest {
+
+    private static final StarDictDictionary.EntryType MEAN = StarDictDictionary.EntryType.MEAN;
+
+    @Test
+    public void testGlob() {
+        HeadwordPattern pattern = HeadwordPattern.glob("test*");
+        assertEquals("test", new String(pattern.getPrefixBytes(), StandardCharsets.UTF_8));
+        assertTrue(pattern.matches("testudo"));
+        assertFalse(pattern.matches("Testudo"));
+        pattern = HeadwordPattern.glob("te?t*o");
+        assertEquals("te", new String(pattern.getPrefixBytes(), StandardCharsets.UTF_8));
+        assertTrue(pattern.matches("testudo"));
+        assertFalse(pattern.matches("testudi"));
+        pattern = HeadwordPattern.glob("*.a");
+        assertEquals(0, pattern.getPrefixBytes().length);
+        assertTrue(pattern.matches("x.a"));
+        assertFalse(pattern.matches("xya"));
+        pattern = HeadwordPattern.glob("a\\*b?");
+        assertEquals("a*b", new String(pattern.getPrefixBytes(), StandardCharsets.UTF_8));
+        assertTrue(pattern.matches("a*bc"));
+        assertFalse(pattern.matches("axbc"));
+        assertTrue(HeadwordPattern.regex(Pattern.compile("t.*o")).matches("testudo"));
+    }
+
+    @Test
+    public void testStreamMatching() {
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        String[] words = {"Testudo", "testudo", "testa", "test", "tesla", "r\u00e9sum\u00e9", "resume", "toast"};
+        for (int i = 0; i < words.length; i++) {
+            builder.add(words[i].getBytes(StandardCharsets.UTF_8), i * 10, 10, MEAN);
+        }
+        DictionaryData data = builder.build();
+        assertEquals("test testa testudo", match(data, "test*"));
+        assertEquals("Testudo testudo", match(data, "?estudo"));
+        assertEquals("tesla testa", match(data, "tes?a"));
+        assertEquals("r\u00e9sum\u00e9", match(data, "*\u00e9"));
+        assertEquals("", match(data, "x*"));
+    }
+
+    @Test
+    public void testParallelSameAsSequential() {
+        Random random = new Random(42);
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        for (int i = 0; i < DictionaryData.PARALLEL_THRESHOLD * 2; i++) {
+            StringBuilder sb = new StringBuilder();
+            int length = 1 + random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                sb.append("abcdAB".charAt(random.nextInt(6)));
+            }
+            builder.add(sb.toString().getBytes(StandardCharsets.UTF_8), i, 1, MEAN);
+        }
+        DictionaryData data = builder.build();
+        HeadwordPattern pattern = HeadwordPattern.glob("*b?c*");
+        List<Map.Entry<String, IndexEntry>> sequential = data.streamMatching(pattern, false)
+                .collect(Collectors.toList());
+        List<Map.Entry<String, IndexEntry>> parallel = data.streamMatching(pattern, true)
+                .collect(Collectors.toList());
+        assertFalse(sequential.isEmpty());
+        assertEquals(sequential, parallel);
+        assertEquals(sequential.subList(0, 10), data.streamMatching(pattern, true).limit(10)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    public void testDictionary() throws Exception {
+        File ifo = new File("src/test/resources/dicts/latin-francais.ifo");
+        try (StarDictDictionary dict = StarDictDictionary.loadDictionary(ifo, CacheOptions.DEFAULT)) {
+            List<StarDictDictionary.Entry> result = dict.readArticlesMatching("testu*", 10);
+            assertEquals(1, result.size());
+            assertEquals("testudo", result.get(0).getWord());
+            assertEquals("dinis, f. : tortue", result.get(0).getArticle());
+            assertEquals(result.get(0).getWord(), dict.readArticlesMatching("*udo", 100).stream()
+                    .filter(e -> e.getWord().startsWith("test")).findFirst().get().getWord());
+            assertEquals(dict.readArticlesMatching(Pattern.compile(".*udo"), 100).size(),
+                    dict.streamArticlesMatching("*udo").count());
+            assertTrue(dict.readArticlesMatching("*", 0).isEmpty());
+        }
+    }
+
+    private static String match(final DictionaryData data, final String glob) {
+        return data.streamMatching(HeadwordPattern.glob(glob), false).map(Map.Entry::getKey)
+                .collect(Collectors.joining(" "));
+    }
+}
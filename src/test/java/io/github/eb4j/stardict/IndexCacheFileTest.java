@@ -0,0 +1,102 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class IndexCacheFileTest {
+
+    @Test
+    public void testIndexCache(@TempDir final Path dir) throws Exception {
+        File ifoFile = TestDictionaries.copyDictionary(dir);
+        File idxFile = dir.resolve("latin-francais.idx").toFile();
+        File cacheFile = dir.resolve("latin-francais" + IndexCacheFile.SUFFIX).toFile();
+        LoadOptions options = LoadOptions.builder().indexCache(true).build();
+
+        StarDictDictionary parsed = StarDictDictionary.loadDictionary(ifoFile, CacheOptions.DEFAULT, options);
+        assertTrue(cacheFile.isFile());
+        IndexTable table = IndexCacheFile.read(cacheFile, ifoFile, idxFile, null);
+        assertNotNull(table);
+        assertEquals(10451, table.size());
+
+        StarDictDictionary cached = StarDictDictionary.loadDictionary(ifoFile, CacheOptions.DEFAULT, options);
+        assertEquals(10451, cached.data.size());
+        List<Map.Entry<String, IndexEntry>> all = parsed.data.lookUpPredictive("");
+        assertEquals(all.size(), cached.data.lookUpPredictive("").size());
+        for (Map.Entry<String, IndexEntry> e : all) {
+            assertEquals(parsed.data.lookUp(e.getKey()), cached.data.lookUp(e.getKey()));
+        }
+        assertEquals(0, cached.data.lookUp("Testudo").size());
+        assertEquals("dinis, f. : tortue", cached.readArticles("testudo").get(0).getArticle());
+        assertEquals(names(parsed.data.lookUpPredictive("tes")), names(cached.data.lookUpPredictive("tes")));
+        assertEquals(0, cached.data.lookUpPredictive("testudoo").size());
+        parsed.close();
+        cached.close();
+
+        // stale cache is rebuilt
+        assertTrue(idxFile.setLastModified(idxFile.lastModified() + 10_000));
+        assertNull(IndexCacheFile.read(cacheFile, ifoFile, idxFile, null));
+        StarDictDictionary.loadDictionary(ifoFile, CacheOptions.DEFAULT, options).close();
+        assertNotNull(IndexCacheFile.read(cacheFile, ifoFile, idxFile, null));
+    }
+
+    @Test
+    public void testSynonyms(@TempDir final Path dir) throws Exception {
+        File ifoFile = Files.write(dir.resolve("test.ifo"), new byte[1]).toFile();
+        File idxFile = Files.write(dir.resolve("test.idx"), new byte[2]).toFile();
+        File synFile = Files.write(dir.resolve("test.syn"), new byte[3]).toFile();
+        File cacheFile = dir.resolve("test" + IndexCacheFile.SUFFIX).toFile();
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        builder.add("beta".getBytes(StandardCharsets.UTF_8), 0, 10, StarDictDictionary.EntryType.MEAN);
+        builder.add("alpha".getBytes(StandardCharsets.UTF_8), 10, 10, StarDictDictionary.EntryType.MEAN);
+        builder.addSynonym("gamma".getBytes(StandardCharsets.UTF_8), 0);
+        IndexTable written = builder.build().getIndexTable();
+        IndexCacheFile.write(cacheFile, written, ifoFile, idxFile, synFile);
+
+        IndexTable table = IndexCacheFile.read(cacheFile, ifoFile, idxFile, synFile);
+        assertNotNull(table);
+        assertEquals(3, table.size());
+        List<Map.Entry<String, IndexEntry>> result = new ArrayList<>();
+        table.collect(table.find("gamma".getBytes(StandardCharsets.UTF_8)), "gamma", result);
+        assertEquals(0, result.get(0).getValue().getStart());
+        assertEquals("beta", ((IndexTable.SynonymEntry) result.get(0)).getHeadword());
+        result.clear();
+        table.collect(table.find("beta".getBytes(StandardCharsets.UTF_8)), "beta", result);
+        assertFalse(result.get(0) instanceof IndexTable.SynonymEntry);
+    }
+
+    private static List<String> names(final List<Map.Entry<String, IndexEntry>> entries) {
+        return entries.stream().map(Map.Entry::getKey).sorted().collect(Collectors.toList());
+    }
+}
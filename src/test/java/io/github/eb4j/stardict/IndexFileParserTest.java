@@ -0,0 +1,181 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class IndexFileParserTest {
+
+    private static final StarDictDictionary.EntryType[] TYPES = {StarDictDictionary.EntryType.MEAN};
+
+    private Path tempDir;
+
+    @BeforeEach
+    public void setUp(@TempDir final Path dir) {
+        tempDir = dir;
+    }
+
+    private static byte[] index(final boolean off64, final String... words) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        long offset = 0xfffffff0L;
+        if (off64) {
+            offset += 0x100000000L;
+        }
+        for (String word : words) {
+            out.write(word.getBytes(StandardCharsets.UTF_8));
+            out.write(0);
+            if (off64) {
+                out.writeLong(offset);
+            } else {
+                out.writeInt((int) offset);
+            }
+            out.writeInt(word.length());
+            offset += word.length();
+        }
+        return bytes.toByteArray();
+    }
+
+    private File write(final String name, final byte[] data) throws IOException {
+        File file = tempDir.resolve(name).toFile();
+        try (OutputStream out = Files.newOutputStream(file.toPath())) {
+            if (name.endsWith(".gz")) {
+                try (OutputStream gz = new GZIPOutputStream(out)) {
+                    gz.write(data);
+                }
+            } else {
+                out.write(data);
+            }
+        }
+        return file;
+    }
+
+    private DictionaryData parse(final File file, final boolean off64) throws IOException {
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        IndexFileParser.parseIndex(file, off64, TYPES, builder);
+        return builder.build();
+    }
+
+    @Test
+    public void testParse32() throws IOException {
+        DictionaryData data = parse(write("test.idx", index(false, "alpha", "beta", "beta", "gamma")), false);
+        assertEquals(3, data.size());
+        List<Map.Entry<String, IndexEntry>> result = data.lookUp("beta");
+        assertEquals(2, result.size());
+        // offsets above 2GB are unsigned
+        assertEquals(0xfffffff5L, result.get(0).getValue().getStart());
+        assertEquals(4, result.get(1).getValue().getLen());
+    }
+
+    @Test
+    public void testParse64Gzip() throws IOException {
+        DictionaryData data = parse(write("test.idx.gz", index(true, "alpha", "beta", "gamma")), true);
+        assertEquals(3, data.size());
+        assertEquals(0x1fffffff9L, data.lookUp("gamma").get(0).getValue().getStart());
+    }
+
+    @Test
+    public void testLongHeadword() throws IOException {
+        char[] chars = new char[IndexFileParser.BUFFER_SIZE * 2 + 3];
+        Arrays.fill(chars, 'x');
+        String longWord = new String(chars);
+        DictionaryData data = parse(write("test.idx", index(false, "a", longWord, "y")), false);
+        assertEquals(3, data.size());
+        assertEquals(longWord.length(), data.lookUp(longWord).get(0).getValue().getLen());
+        assertEquals(1, data.lookUp("y").size());
+    }
+
+    @Test
+    public void testManyBlocks() throws IOException {
+        String[] words = new String[200000];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = String.format("w%07d", i);
+        }
+        DictionaryData data = parse(write("test.idx", index(true, words)), true);
+        assertEquals(words.length, data.size());
+        assertEquals(1, data.lookUp("w0123456").size());
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        byte[] full = index(false, "alpha", "beta");
+        File file = write("test.idx", Arrays.copyOf(full, full.length - 2));
+        assertThrows(EOFException.class, () -> parse(file, false));
+    }
+
+    @Test
+    public void testSynonyms() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.write("beta".getBytes(StandardCharsets.UTF_8));
+        out.write(0);
+        out.writeInt(0);
+        DictionaryDataBuilder builder = new DictionaryDataBuilder();
+        IndexFileParser.parseIndex(write("test.idx", index(false, "alpha", "beta")), false, TYPES, builder);
+        IndexFileParser.parseSynonyms(write("test.syn", bytes.toByteArray()), builder);
+        DictionaryData data = builder.build();
+        assertEquals(1, data.lookUp("alpha").size());
+        List<Map.Entry<String, IndexEntry>> result = data.lookUp("beta");
+        assertEquals(2, result.size());
+        assertEquals(0xfffffff0L, result.get(1).getValue().getStart());
+    }
+
+    @Test
+    public void testReadAhead() throws IOException {
+        String[] words = new String[100000];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = String.format("w%07d", i);
+        }
+        File file = write("test.idx.gz", index(false, words));
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            for (Executor executor : new Executor[] {pool, Runnable::run}) {
+                DictionaryDataBuilder builder = new DictionaryDataBuilder();
+                IndexFileParser.parseIndex(file, false, TYPES, builder, executor);
+                DictionaryData data = builder.build();
+                assertEquals(words.length, data.size());
+                assertEquals(1, data.lookUp("w0099999").size());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
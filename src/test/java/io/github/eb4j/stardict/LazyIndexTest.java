@@ -0,0 +1,106 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package io.github.eb4j.stardict;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LazyIndexTest {
+
+    private static final StarDictDictionary.EntryType[] TYPES = {StarDictDictionary.EntryType.MEAN};
+
+    private static List<Map.Entry<String, IndexEntry>> predictive(final LazyIndex lazy, final String prefix) {
+        List<Map.Entry<String, IndexEntry>> result = new ArrayList<>();
+        lazy.collectPredictive(prefix.getBytes(StandardCharsets.UTF_8), -1, Integer.MAX_VALUE, result);
+        return result;
+    }
+
+    @Test
+    public void testSameAsTable() throws Exception {
+        StarDictDictionary dict = StarDictDictionary.loadDictionary(
+                new File("src/test/resources/dicts/latin-francais.ifo"));
+        LazyIndex lazy = LazyIndex.open(new File("src/test/resources/dicts/latin-francais.idx"), false, TYPES,
+                dict.info.getWordCount());
+        assertNotNull(lazy);
+        assertEquals(dict.data.size(), lazy.size());
+        List<Map.Entry<String, IndexEntry>> all = dict.data.lookUpPredictive("");
+        assertEquals(all, predictive(lazy, ""));
+        for (Map.Entry<String, IndexEntry> e : all) {
+            assertEquals(dict.data.lookUp(e.getKey()), lazy.lookUp(e.getKey()));
+        }
+        for (String prefix : new String[] {"a", "test", "TEST", "zz", "é"}) {
+            assertEquals(dict.data.lookUpPredictive(prefix), predictive(lazy, prefix));
+        }
+        assertEquals(0, lazy.lookUp("nonexistent").size());
+        // bogus wordcount of .ifo is bounded by the file
+        assertEquals(lazy.size(), LazyIndex.open(new File("src/test/resources/dicts/latin-francais.idx"), false,
+                TYPES, Integer.MAX_VALUE - 1).size());
+        List<Map.Entry<String, IndexEntry>> limited = new ArrayList<>();
+        int next = lazy.collectPredictive("a".getBytes(StandardCharsets.UTF_8), -1, 5, limited);
+        assertEquals(dict.data.lookUpPredictive("a", 5), limited);
+        lazy.collectPredictive("a".getBytes(StandardCharsets.UTF_8), next, Integer.MAX_VALUE, limited);
+        assertEquals(dict.data.lookUpPredictive("a"), limited);
+        dict.close();
+    }
+
+    @Test
+    public void testLazyLoad() throws Exception {
+        File ifo = new File("src/test/resources/dicts/latin-francais.ifo");
+        StarDictDictionary dict = StarDictDictionary.loadDictionary(ifo, CacheOptions.DEFAULT,
+                LoadOptions.builder().lazy(true).build());
+        List<StarDictDictionary.Entry> result = dict.readArticles("testudo");
+        assertEquals(1, result.size());
+        assertEquals("dinis, f. : tortue", result.get(0).getArticle());
+        dict.data.whenReady().join();
+        assertEquals(10451, dict.data.size());
+        assertEquals(result.get(0).getArticle(), dict.readArticles("testudo").get(0).getArticle());
+        dict.close();
+    }
+
+    @Test
+    public void testFailedLoad(@TempDir final Path dir) throws Exception {
+        File ifo = TestDictionaries.copyDictionary(dir);
+        // truncated record
+        Files.write(dir.resolve("latin-francais.syn"), new byte[] {'t', 'o', 'r', 't', 'u', 'e', 0, 0, 0});
+        try (StarDictDictionary dict = StarDictDictionary.loadDictionary(ifo, CacheOptions.DEFAULT,
+                LoadOptions.builder().lazy(true).build())) {
+            assertThrows(CompletionException.class, () -> dict.data.whenReady().join());
+            IllegalStateException e = assertThrows(IllegalStateException.class, () -> dict.readArticles("testudo"));
+            assertTrue(e.getCause() instanceof IOException);
+            assertThrows(IllegalStateException.class, dict::getHeadwordCount);
+            assertThrows(IllegalStateException.class, () -> dict.getNeighbors("testudo", 1, 1));
+            assertThrows(IllegalStateException.class, () -> dict.readArticlesFuzzy("testudi", 1, 5));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class OffHeapArticleCacheTest {
+
+    private static final File IFO = new File("src/test/resources/dicts-zipped/latin-francais.ifo");
+
+    private static IndexEntry entry(final int start) {
+        return new IndexEntry(start, 4, StarDictDictionary.EntryType.MEAN);
+    }
+
+    private static byte[] article(final int start) {
+        return String.format("%04d", start).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void testClockEviction() {
+        // three slabs of two articles
+        OffHeapArticleCache cache = new OffHeapArticleCache(24, 8);
+        for (int i = 0; i < 6; i++) {
+            cache.put(entry(i), article(i));
+        }
+        assertEquals(6, cache.size());
+        assertEquals(24, cache.weightedSize());
+        assertArrayEquals(article(0), cache.getIfPresent(entry(0)));
+
+        // first sweep clears all bits and evicts the first slab; the read
+        // article has no second chance left, since bits of all slabs were set
+        cache.put(entry(6), article(6));
+        assertNull(cache.getIfPresent(entry(0)));
+        assertNull(cache.getIfPresent(entry(1)));
+        assertEquals(2, cache.evictionCount());
+
+        // a read slab survives the next sweep, the unread one is evicted
+        assertArrayEquals(article(2), cache.getIfPresent(entry(2)));
+        cache.put(entry(7), article(7));
+        cache.put(entry(8), article(8));
+        assertArrayEquals(article(2), cache.getIfPresent(entry(2)));
+        assertNull(cache.getIfPresent(entry(4)));
+        assertArrayEquals(article(8), cache.getIfPresent(entry(8)));
+        assertEquals(4, cache.evictionCount());
+        assertTrue(cache.weightedSize() <= 24);
+        assertEquals(4, cache.hitCount());
+
+        // longer than a slab
+        cache.put(new IndexEntry(100, 9, StarDictDictionary.EntryType.MEAN), new byte[9]);
+        assertNull(cache.getIfPresent(new IndexEntry(100, 9, StarDictDictionary.EntryType.MEAN)));
+
+        cache.close();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.weightedSize());
+    }
+
+    @Test
+    public void testManyArticles() {
+        // index grows and entries are removed slab by slab many times
+        OffHeapArticleCache cache = new OffHeapArticleCache(4096, 64);
+        Random random = new Random(42);
+        for (int n = 0; n < 20000; n++) {
+            int start = random.nextInt(5000);
+            cache.put(entry(start), article(start));
+            assertArrayEquals(article(start), cache.getIfPresent(entry(start)));
+        }
+        int present = 0;
+        for (int start = 0; start < 5000; start++) {
+            byte[] article = cache.getIfPresent(entry(start));
+            if (article != null) {
+                assertArrayEquals(article(start), article);
+                present++;
+            }
+        }
+        assertEquals(present, cache.size());
+        assertEquals(4 * present, cache.weightedSize());
+        assertTrue(present <= 4096 / 4);
+    }
+
+    @Test
+    public void testDictionary() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> CacheOptions.builder().offHeap(true).build());
+        CacheOptions options = CacheOptions.builder().maximumWeight(1024 * 1024).offHeap(true).build();
+        try (StarDictDictionary dict = StarDictDictionary.loadDictionary(IFO, options)) {
+            assertEquals("dinis, f. : tortue", dict.readArticles("testudo").get(0).getArticle());
+            assertEquals("dinis, f. : tortue", dict.readArticles("testudo").get(0).getArticle());
+            assertEquals(1, dict.getCacheHitCount());
+            assertEquals(1, dict.getCacheSize());
+            assertEquals("dinis, f. : tortue".length(), dict.getCacheWeightedSize());
+        }
+    }
+}
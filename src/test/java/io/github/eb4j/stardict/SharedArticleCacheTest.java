@@ -0,0 +1,82 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class SharedArticleCacheTest {
+
+    private static final File IFO = new File("src/test/resources/dicts/latin-francais.ifo");
+    private static final File ZIPPED_IFO = new File("src/test/resources/dicts-zipped/latin-francais.ifo");
+
+    @Test
+    public void testSharedCache() throws Exception {
+        SharedArticleCache shared = new SharedArticleCache(CacheOptions.builder().maximumWeight(100).build());
+        CacheOptions options = CacheOptions.builder().sharedCache(shared).build();
+        try (StarDictDictionary dict = StarDictDictionary.loadDictionary(IFO, options)) {
+            StarDictDictionary zipped = StarDictDictionary.loadDictionary(ZIPPED_IFO, options);
+            assertEquals(2, shared.getDictionaryCount());
+
+            // same article of both dictionaries is cached separately
+            assertEquals("dinis, f. : tortue", dict.readArticles("testudo").get(0).getArticle());
+            assertEquals("dinis, f. : tortue", dict.readArticles("testudo").get(0).getArticle());
+            assertEquals("dinis, f. : tortue", zipped.readArticles("testudo").get(0).getArticle());
+            assertEquals(1, dict.getCacheHitCount());
+            assertEquals(1, dict.getCacheMissCount());
+            assertEquals(0, zipped.getCacheHitCount());
+            assertEquals(1, zipped.getCacheMissCount());
+            assertEquals(1, shared.getHitCount());
+            assertEquals(2, shared.getMissCount());
+            assertEquals(1, zipped.getCacheSize());
+            assertEquals("dinis, f. : tortue".length(), zipped.getCacheWeightedSize());
+
+            // articles of 20 words of both dictionaries are longer than the budget in total
+            for (Map.Entry<String, IndexEntry> e : dict.data.lookUpPredictive("a", 20)) {
+                assertFalse(dict.readArticles(e.getKey()).get(0).getArticle().isEmpty());
+                assertFalse(zipped.readArticles(e.getKey()).get(0).getArticle().isEmpty());
+            }
+            long weight = shared.getWeightedSize();
+            assertTrue(weight > 0);
+            assertTrue(weight <= 100);
+            assertEquals(weight, dict.getCacheWeightedSize() + zipped.getCacheWeightedSize());
+            assertTrue(shared.getEvictionCount() > 0);
+
+            zipped.close();
+            assertEquals(1, shared.getDictionaryCount());
+            assertEquals(0, zipped.getCacheSize());
+            assertEquals(dict.getCacheWeightedSize(), shared.getWeightedSize());
+        }
+        assertEquals(0, shared.getDictionaryCount());
+        assertEquals(0, shared.getWeightedSize());
+    }
+
+    @Test
+    public void testNested() {
+        SharedArticleCache shared = new SharedArticleCache(CacheOptions.DEFAULT);
+        CacheOptions options = CacheOptions.builder().sharedCache(shared).build();
+        assertThrows(IllegalArgumentException.class, () -> new SharedArticleCache(options));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Multi-threaded article reads must return the same articles as a single-threaded read.
+ */
+public class StarDictConcurrencyTest {
+
+    private static final int THREADS = 8;
+
+    @Test
+    public void testConcurrentFileDict() throws Exception {
+        verify(new File("src/test/resources/dicts/latin-francais.ifo"), LoadOptions.DEFAULT);
+    }
+
+    @Test
+    public void testConcurrentMappedFileDict() throws Exception {
+        verify(new File("src/test/resources/dicts/latin-francais.ifo"),
+                LoadOptions.builder().memoryMapped(true).build());
+    }
+
+    @Test
+    public void testConcurrentZipDict() throws Exception {
+        verify(new File("src/test/resources/dicts-zipped/latin-francais.ifo"), LoadOptions.DEFAULT);
+    }
+
+    private void verify(final File ifoFile, final LoadOptions options) throws Exception {
+        try (StarDictDictionary dict = StarDictDictionary.loadDictionary(ifoFile, CacheOptions.DEFAULT, options)) {
+            List<Map.Entry<String, IndexEntry>> entries = dict.data.lookUpPredictive("");
+            assertEquals(10451, entries.size());
+            List<String> baseline = new ArrayList<>();
+            for (Map.Entry<String, IndexEntry> e : entries) {
+                String article = dict.readArticle(e.getValue().getStart(), e.getValue().getLen());
+                assertNotNull(article);
+                baseline.add(article);
+            }
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            try {
+                List<Future<Integer>> futures = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    futures.add(executor.submit(reader(dict, entries, baseline, t)));
+                }
+                for (Future<Integer> future : futures) {
+                    assertEquals(0, future.get().intValue());
+                }
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    private Callable<Integer> reader(final StarDictDictionary dict, final List<Map.Entry<String, IndexEntry>> entries,
+                                     final List<String> baseline, final int seed) {
+        return () -> {
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < entries.size(); i++) {
+                order.add(i);
+            }
+            Collections.shuffle(order, new Random(seed));
+            int mismatches = 0;
+            for (int i : order) {
+                Map.Entry<String, IndexEntry> e = entries.get(i);
+                boolean matched;
+                if (i % 2 == 0) {
+                    matched = baseline.get(i).equals(dict.readArticle(e.getValue().getStart(),
+                            e.getValue().getLen()));
+                } else {
+                    // through the article cache
+                    matched = dict.readArticles(e.getKey()).stream()
+                            .anyMatch(entry -> baseline.get(i).equals(entry.getArticle()));
+                }
+                if (!matched) {
+                    mismatches++;
+                }
+            }
+            return mismatches;
+        };
+    }
+}
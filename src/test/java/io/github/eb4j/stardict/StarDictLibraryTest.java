@@ -0,0 +1,169 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StarDictLibraryTest {
+
+    private static final File RESOURCES = new File("src/test/resources");
+
+    @Test
+    public void testLibrary() throws Exception {
+        try (StarDictLibrary library = StarDictLibrary.builder().parallelism(2).load(RESOURCES)) {
+            assertEquals(2, library.getDictionaries().size());
+            assertTrue(library.getFailures().isEmpty());
+
+            List<StarDictLibrary.LibraryEntry> result = library.readArticles("testudo");
+            assertEquals(2, result.size());
+            assertEquals(library.getDictionaries().get(0), result.get(0).getDictionary());
+            assertEquals(library.getDictionaries().get(1), result.get(1).getDictionary());
+            for (StarDictLibrary.LibraryEntry entry : result) {
+                assertEquals("latin-français", entry.getDictionaryName());
+                assertEquals("dinis, f. : tortue", entry.getEntry().getArticle());
+            }
+            assertTrue(library.readArticles("nonexistent").isEmpty());
+
+            result = library.readArticlesPredictive("testa", 3);
+            int single = library.getDictionaries().get(0).readArticlesPredictive("testa", 3).size();
+            assertTrue(single > 0);
+            assertEquals(2 * single, result.size());
+            for (StarDictLibrary.LibraryEntry entry : result) {
+                assertTrue(entry.getEntry().getWord().startsWith("testa"));
+            }
+        }
+    }
+
+    @Test
+    public void testFailures(@TempDir final Path dir) throws Exception {
+        TestDictionaries.copyDictionary(dir.resolve("latin"));
+        Path broken = dir.resolve("broken.ifo");
+        Files.write(broken, Collections.singletonList("not a dictionary"), StandardCharsets.UTF_8);
+        try (StarDictLibrary library = StarDictLibrary.load(dir.toFile())) {
+            assertEquals(1, library.getDictionaries().size());
+            assertEquals(Collections.singleton(broken.toFile()), library.getFailures().keySet());
+            assertEquals(1, library.readArticles("testudo").size());
+        }
+        assertThrows(FileNotFoundException.class,
+                () -> StarDictLibrary.load(broken.toFile()));
+    }
+
+    @Test
+    public void testInterruptedLoadClosesDictionaries(@TempDir final Path dir) throws Exception {
+        File fds = new File("/proc/self/fd");
+        if (!fds.isDirectory()) {
+            // open files are only observable on Linux
+            return;
+        }
+        for (int i = 0; i < 2; i++) {
+            TestDictionaries.copyDictionary(dir.resolve("latin" + i));
+        }
+        // loads hold their opened dictionary until the caller was interrupted
+        CountDownLatch opened = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        MetricsListener listener = new MetricsListener() {
+            @Override
+            public void onLoadPhase(final LoadPhase phase, final long nanos) {
+                if (phase != LoadPhase.TOTAL) {
+                    return;
+                }
+                opened.countDown();
+                boolean interrupted = false;
+                while (true) {
+                    try {
+                        release.await();
+                        break;
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        // without mapping, every open dictionary holds its .dict file open
+        LoadOptions options = LoadOptions.builder().memoryMapped(false).metrics(listener).build();
+        CompletableFuture<Throwable> failure = new CompletableFuture<>();
+        Thread caller = new Thread(() -> {
+            try {
+                StarDictLibrary.builder().parallelism(2).loadOptions(options).load(dir.toFile()).close();
+                failure.complete(null);
+            } catch (IOException e) {
+                failure.complete(e);
+            }
+        });
+        caller.start();
+        assertTrue(opened.await(30, TimeUnit.SECONDS));
+        assertEquals(2, openFiles(fds, dir));
+        caller.interrupt();
+        assertTrue(failure.get(30, TimeUnit.SECONDS) instanceof IOException);
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (openFiles(fds, dir) > 0) {
+            assertTrue(System.nanoTime() < deadline, "dictionaries left open");
+            Thread.sleep(10);
+        }
+    }
+
+    private static int openFiles(final File fds, final Path dir) throws IOException {
+        int count = 0;
+        File[] links = fds.listFiles();
+        if (links != null) {
+            for (File link : links) {
+                try {
+                    if (Files.readSymbolicLink(link.toPath()).startsWith(dir)) {
+                        count++;
+                    }
+                } catch (IOException e) {
+                    // closed meanwhile
+                }
+            }
+        }
+        return count;
+    }
+
+    @Test
+    public void testTimeout() throws Exception {
+        // lookups submitted to this executor never run
+        try (StarDictLibrary library = StarDictLibrary.builder().executor(command -> { })
+                .timeout(Duration.ofMillis(10)).load(RESOURCES)) {
+            assertEquals(2, library.getDictionaries().size());
+            assertTrue(library.readArticles("testudo").isEmpty());
+            assertTrue(library.readArticlesPredictive("testa", 3, Duration.ZERO).isEmpty());
+        }
+    }
+}
@@ -52,6 +52,8 @@ public class StarDictProprietaryTest {
         assertEquals(1, result.size());
         // should be same result.
         assertEquals(article, result.get(0).getArticle());
+        assertEquals(word, result.get(0).getWord());
+        assertEquals("abandon", result.get(0).getHeadword());
     }
 
     static boolean fileExist() {
@@ -20,13 +20,30 @@
 package io.github.eb4j.stardict;
 
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.DataOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
@@ -74,6 +91,62 @@ public class StarDictTest {
         assertEquals(StarDictDictionary.EntryType.MEAN, result.get(0).getType());
     }
 
+    @Test
+    public void testReadMappedFileDict() throws Exception {
+        StarDictDictionary dict = StarDictDictionary.loadDictionary(
+                new File("src/test/resources/dicts/latin-francais.ifo"), CacheOptions.DEFAULT,
+                LoadOptions.builder().memoryMapped(true).build());
+        assertTrue(dict instanceof StarDictMappedFileDict);
+        String word = "testudo";
+        List<StarDictDictionary.Entry> result = dict.readArticles(word);
+        assertEquals(1, result.size());
+        assertEquals(word, result.get(0).getWord());
+        assertEquals("dinis, f. : tortue", result.get(0).getArticle());
+        // same article as RandomAccessFile access
+        try (StarDictDictionary fileDict = new StarDictFileDict(dict.info,
+                new File("src/test/resources/dicts/latin-francais.dict"), dict.data, CacheOptions.DEFAULT)) {
+            assertEquals(dict.readArticles("a").get(0).getArticle(),
+                    fileDict.readArticles("a").get(0).getArticle());
+        }
+        dict.close();
+    }
+
+    @Test
+    public void testReadFileDictAfterInterrupt() throws Exception {
+        try (StarDictDictionary dict = StarDictDictionary.loadDictionary(
+                new File("src/test/resources/dicts/latin-francais.ifo"), CacheOptions.DEFAULT,
+                LoadOptions.builder().memoryMapped(false).build())) {
+            assertTrue(dict instanceof StarDictFileDict);
+            assertReadAfterInterrupt(dict);
+        }
+    }
+
+    @Test
+    public void testReadZipDictAfterInterrupt() throws Exception {
+        try (StarDictDictionary dict = StarDictDictionary.loadDictionary(
+                new File("src/test/resources/dicts-zipped/latin-francais.ifo"))) {
+            assertTrue(dict instanceof StarDictZipDict);
+            assertReadAfterInterrupt(dict);
+        }
+    }
+
+    /**
+     * An interrupted reader must not break reads of other threads.
+     */
+    private static void assertReadAfterInterrupt(final StarDictDictionary dict) throws Exception {
+        Thread reader = new Thread(() -> {
+            Thread.currentThread().interrupt();
+            for (StarDictDictionary.Entry entry : dict.readArticles("abacus")) {
+                entry.getArticle();
+            }
+        });
+        reader.start();
+        reader.join();
+        List<StarDictDictionary.Entry> result = dict.readArticles("testudo");
+        assertEquals(1, result.size());
+        assertEquals("dinis, f. : tortue", result.get(0).getArticle());
+    }
+
     @Test
     public void testReadZipDict() throws Exception {
         StarDictDictionary dict = StarDictDictionary.loadDictionary(
@@ -91,5 +164,250 @@ public class StarDictTest {
         assertEquals(word, result.get(0).getWord());
         assertEquals("dinis, f. : tortue", result.get(0).getArticle());
         assertEquals(StarDictDictionary.EntryType.MEAN, result.get(0).getType());
+
+        // neighbour articles are sliced from the cached chunk
+        StarDictZipDict zipDict = (StarDictZipDict) dict;
+        long misses = zipDict.getChunkCacheMissCount();
+        long hits = zipDict.getChunkCacheHitCount();
+        result = dict.readArticlesPredictive("testa");
+        assertFalse(result.isEmpty());
+        // articles are not read until requested
+        assertEquals(hits, zipDict.getChunkCacheHitCount());
+        for (StarDictDictionary.Entry entry : result) {
+            assertFalse(entry.getArticle().isEmpty());
+        }
+        assertEquals(misses, zipDict.getChunkCacheMissCount());
+        assertTrue(zipDict.getChunkCacheHitCount() >= result.size());
+    }
+
+    @Test
+    public void testParallelLoad() throws Exception {
+        File ifo = new File("src/test/resources/dicts-zipped/latin-francais.ifo");
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            StarDictDictionary parallel = StarDictDictionary.loadDictionary(ifo, CacheOptions.DEFAULT,
+                    LoadOptions.builder().executor(executor).build());
+            StarDictDictionary sequential = StarDictDictionary.loadDictionary(ifo);
+            assertEquals(sequential.data.size(), parallel.data.size());
+            assertEquals(sequential.data.lookUpPredictive(""), parallel.data.lookUpPredictive(""));
+            assertEquals("dinis, f. : tortue", parallel.readArticles("testudo").get(0).getArticle());
+            parallel.close();
+            sequential.close();
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSingleThreadLoadWithSynonyms(@TempDir final Path dir) throws Exception {
+        File ifo = TestDictionaries.copyDictionary(dir);
+        writeSynonym(dir);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        ExecutorService caller = Executors.newSingleThreadExecutor();
+        try {
+            // load runs on another thread than the only worker of the executor
+            Future<StarDictDictionary> future = caller.submit(() -> StarDictDictionary.loadDictionary(ifo,
+                    CacheOptions.DEFAULT, LoadOptions.builder().executor(executor).build()));
+            try (StarDictDictionary dict = future.get(30, TimeUnit.SECONDS)) {
+                assertEquals(1, dict.readArticles("tortue").size());
+            }
+        } finally {
+            caller.shutdownNow();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testLoadOnOnlyExecutorThread(@TempDir final Path dir) throws Exception {
+        File ifo = TestDictionaries.copyZippedDictionary(dir);
+        writeSynonym(dir);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // stages and read ahead of .idx.gz queue behind the load itself
+            Future<StarDictDictionary> future = executor.submit(() -> StarDictDictionary.loadDictionary(ifo,
+                    CacheOptions.DEFAULT, LoadOptions.builder().executor(executor).build()));
+            try (StarDictDictionary dict = future.get(30, TimeUnit.SECONDS)) {
+                assertEquals(1, dict.readArticles("testudo").size());
+                assertEquals(1, dict.readArticles("tortue").size());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Write .syn.gz holding "tortue" as synonym of the first .idx entry.
+     */
+    private static void writeSynonym(final Path dir) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(
+                Files.newOutputStream(dir.resolve("latin-francais.syn.gz"))))) {
+            out.write("tortue".getBytes(StandardCharsets.UTF_8));
+            out.write(0);
+            out.writeInt(0);
+        }
+    }
+
+    @Test
+    public void testBogusWordCount(@TempDir final Path dir) throws Exception {
+        TestDictionaries.copy(TestDictionaries.DICTS, dir, "latin-francais.idx", "latin-francais.dict");
+        String ifo = new String(Files.readAllBytes(new File(TestDictionaries.DICTS, "latin-francais.ifo").toPath()),
+                StandardCharsets.UTF_8);
+        for (String count : new String[] {"2147483647", "100000000"}) {
+            File ifoFile = Files.write(dir.resolve("latin-francais.ifo"),
+                    ifo.replace("wordcount=10451", "wordcount=" + count).getBytes(StandardCharsets.UTF_8)).toFile();
+            // header values are hints, the index is sized by the .idx file
+            try (StarDictDictionary dict = StarDictDictionary.loadDictionary(ifoFile, CacheOptions.DEFAULT)) {
+                assertEquals(10451, dict.data.size());
+            }
+        }
+    }
+
+    @Test
+    public void testReadArticlesPredictiveLimit() throws Exception {
+        StarDictDictionary dict = StarDictDictionary.loadDictionary(
+                new File("src/test/resources/dicts/latin-francais.ifo"));
+        List<StarDictDictionary.Entry> all = dict.readArticlesPredictive("a");
+        assertTrue(all.size() > 10);
+        List<StarDictDictionary.Entry> limited = dict.readArticlesPredictive("a", 10);
+        assertEquals(10, limited.size());
+        List<StarDictDictionary.Entry> streamed = dict.streamArticlesPredictive("a").limit(10)
+                .collect(Collectors.toList());
+        assertEquals(10, streamed.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(all.get(i).getWord(), limited.get(i).getWord());
+            assertEquals(all.get(i).getArticle(), limited.get(i).getArticle());
+            assertEquals(all.get(i).getWord(), streamed.get(i).getWord());
+            assertEquals(all.get(i).getArticle(), streamed.get(i).getArticle());
+        }
+        assertEquals(all.size(), dict.streamArticlesPredictive("a").count());
+        assertEquals(0, dict.readArticlesPredictive("nonexistent", 10).size());
+        dict.close();
+    }
+
+    @Test
+    public void testReadArticlesBatch() throws Exception {
+        List<String> words = Arrays.asList("testudo", "a", "nonexistent", "abduco", "testudo", "zona");
+        for (String path : new String[] {"src/test/resources/dicts/latin-francais.ifo",
+                "src/test/resources/dicts-zipped/latin-francais.ifo"}) {
+            StarDictDictionary dict = StarDictDictionary.loadDictionary(new File(path), CacheOptions.DEFAULT,
+                    LoadOptions.builder().chunkCacheSize(0).build());
+            StarDictDictionary single = StarDictDictionary.loadDictionary(new File(path));
+            Map<String, List<StarDictDictionary.Entry>> result = dict.readArticles(words);
+            assertEquals(Arrays.asList("testudo", "a", "nonexistent", "abduco", "zona"),
+                    new ArrayList<>(result.keySet()));
+            assertTrue(result.get("nonexistent").isEmpty());
+            assertFalse(result.get("abduco").isEmpty());
+            assertFalse(result.get("zona").isEmpty());
+            for (String word : result.keySet()) {
+                List<StarDictDictionary.Entry> expected = single.readArticles(word);
+                assertEquals(expected.size(), result.get(word).size());
+                for (int i = 0; i < expected.size(); i++) {
+                    assertEquals(expected.get(i).getWord(), result.get(word).get(i).getWord());
+                    assertEquals(expected.get(i).getArticle(), result.get(word).get(i).getArticle());
+                }
+            }
+            dict.close();
+            single.close();
+        }
+    }
+
+    @Test
+    public void testReadRawArticles() throws Exception {
+        LoadOptions[] options = {LoadOptions.builder().memoryMapped(true).build(), LoadOptions.DEFAULT};
+        String[] paths = {"src/test/resources/dicts/latin-francais.ifo",
+                "src/test/resources/dicts-zipped/latin-francais.ifo"};
+        for (int i = 0; i < paths.length; i++) {
+            StarDictDictionary dict = StarDictDictionary.loadDictionary(new File(paths[i]), CacheOptions.DEFAULT,
+                    options[i]);
+            List<StarDictDictionary.Entry> result = dict.readRawArticles("testudo");
+            assertEquals(1, result.size());
+            ByteBuffer bytes = result.get(0).getArticleBytes();
+            assertTrue(bytes.isReadOnly());
+            byte[] article = new byte[bytes.remaining()];
+            bytes.get(article);
+            assertArrayEquals("dinis, f. : tortue".getBytes(StandardCharsets.UTF_8), article);
+            // buffer is not consumed by reading a duplicate
+            assertEquals("dinis, f. : tortue", result.get(0).getArticle());
+            // cached bytes are shared with readArticles
+            assertEquals("dinis, f. : tortue", dict.readArticles("testudo").get(0).getArticle());
+            assertEquals(article.length, dict.readRawArticles("testudo").get(0).getArticleBytes().remaining());
+            dict.close();
+        }
+    }
+
+    @Test
+    public void testNeighbors() throws Exception {
+        File ifo = new File("src/test/resources/dicts/latin-francais.ifo");
+        LoadOptions options = LoadOptions.builder().lazy(true).build();
+        try (StarDictDictionary dict = StarDictDictionary.loadDictionary(ifo, CacheOptions.DEFAULT, options)) {
+            int position = dict.getPosition("testudo");
+            assertEquals("testudo", dict.getHeadword(position));
+            List<String> neighbors = dict.getNeighbors("testudo", 2, 2);
+            assertEquals(5, neighbors.size());
+            assertEquals("testudo", neighbors.get(2));
+            assertEquals(dict.getHeadword(position - 2), neighbors.get(0));
+            assertEquals(dict.getHeadword(position + 2), neighbors.get(4));
+            // absent word sits between its neighbors
+            neighbors = dict.getNeighbors("testudn", 1, 1);
+            assertEquals(Arrays.asList(dict.getHeadword(position - 1), "testudo"), neighbors);
+            assertEquals(Arrays.asList(dict.getHeadword(0)), dict.getNeighbors("", 3, 1));
+            int count = dict.getHeadwordCount();
+            assertEquals(2, dict.getNeighbors(dict.getHeadword(count - 1), 1, 5).size());
+
+            List<StarDictDictionary.Entry> page = dict.streamArticlesFrom(position).limit(3)
+                    .collect(Collectors.toList());
+            assertEquals("testudo", page.get(0).getWord());
+            assertEquals("dinis, f. : tortue", page.get(0).getArticle());
+            assertEquals(neighbors.get(1), page.get(0).getWord());
+            assertEquals(1, dict.streamArticlesInRange("testudo", "testudp").count());
+            assertEquals(count, dict.streamArticlesFrom(0).map(StarDictDictionary.Entry::getWord).distinct().count());
+        }
+    }
+
+    @Test
+    public void testReadArticlesFolded() throws Exception {
+        File ifo = new File("src/test/resources/dicts/latin-francais.ifo");
+        try (StarDictDictionary dict = StarDictDictionary.loadDictionary(ifo, CacheOptions.DEFAULT)) {
+            assertTrue(dict.readArticles("Testudo").isEmpty());
+            assertThrows(IllegalStateException.class, () -> dict.readArticles("Testudo", KeyFolding.CASE));
+            assertEquals(0, dict.getFoldedIndexBytes());
+        }
+        LoadOptions[] options = {
+            LoadOptions.builder().foldedIndex(KeyFolding.CASE).build(),
+            LoadOptions.builder().foldedIndex(KeyFolding.CASE_AND_DIACRITICS).lazy(true).build(),
+        };
+        for (LoadOptions option : options) {
+            try (StarDictDictionary dict = StarDictDictionary.loadDictionary(ifo, CacheOptions.DEFAULT, option)) {
+                List<StarDictDictionary.Entry> result = dict.readArticles("TESTUDO", KeyFolding.CASE);
+                assertEquals(1, result.size());
+                assertEquals("testudo", result.get(0).getWord());
+                assertEquals("dinis, f. : tortue", result.get(0).getArticle());
+                assertEquals(dict.readArticlesPredictive("testa", 10).size(),
+                        dict.readArticlesPredictive("TestA", 10, KeyFolding.CASE).size());
+                assertTrue(dict.getFoldedIndexBytes() > 0);
+            }
+        }
+    }
+
+    @Test
+    public void testReadArticlesAsync() throws Exception {
+        StarDictDictionary dict = StarDictDictionary.loadDictionary(
+                new File("src/test/resources/dicts-zipped/latin-francais.ifo"));
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<StarDictDictionary.Entry> result = dict.readArticlesAsync("testudo", executor).get();
+            assertEquals(1, result.size());
+            assertEquals("dinis, f. : tortue", result.get(0).getArticle());
+            assertEquals(10, dict.readArticlesPredictiveAsync("a", 10, executor).get().size());
+            Map<String, List<StarDictDictionary.Entry>> batch =
+                    dict.readArticlesAsync(Arrays.asList("testudo", "zona"), executor).get();
+            assertEquals(2, batch.size());
+            assertEquals("dinis, f. : tortue", batch.get("testudo").get(0).getArticle());
+        } finally {
+            executor.shutdown();
+        }
+        // default executor, virtual threads when available
+        assertEquals("dinis, f. : tortue", dict.readArticlesAsync("testudo").get().get(0).getArticle());
+        dict.close();
     }
 }
@@ -0,0 +1,72 @@
+/*
+ * Stardict4j - access library for stardict format.
+ * Copyright (C) 2022 Hiroshi Miura.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package io.github.eb4j.stardict;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Copies of the test dictionaries, for tests which write next to a
+ * dictionary or replace some of its files.
+ */
+final class TestDictionaries {
+
+    static final File DICTS = new File("src/test/resources/dicts");
+    static final File DICTS_ZIPPED = new File("src/test/resources/dicts-zipped");
+
+    private TestDictionaries() {
+    }
+
+    /**
+     * Copy the uncompressed latin-francais dictionary.
+     * @param target directory to copy to, created when missing.
+     * @return copied .ifo file.
+     * @throws IOException when copy failed.
+     */
+    static File copyDictionary(final Path target) throws IOException {
+        copy(DICTS, target, "latin-francais.ifo", "latin-francais.idx", "latin-francais.dict");
+        return target.resolve("latin-francais.ifo").toFile();
+    }
+
+    /**
+     * Copy the latin-francais dictionary with .idx.gz and .dict.dz files.
+     * @param target directory to copy to, created when missing.
+     * @return copied .ifo file.
+     * @throws IOException when copy failed.
+     */
+    static File copyZippedDictionary(final Path target) throws IOException {
+        copy(DICTS_ZIPPED, target, "latin-francais.ifo", "latin-francais.idx.gz", "latin-francais.dict.dz");
+        return target.resolve("latin-francais.ifo").toFile();
+    }
+
+    /**
+     * Copy some files of a test dictionary.
+     * @param source directory of test dictionary.
+     * @param target directory to copy to, created when missing.
+     * @param names names of files to copy.
+     * @throws IOException when copy failed.
+     */
+    static void copy(final File source, final Path target, final String... names) throws IOException {
+        Files.createDirectories(target);
+        for (String name : names) {
+            Files.copy(new File(source, name).toPath(), target.resolve(name));
+        }
+    }
+}